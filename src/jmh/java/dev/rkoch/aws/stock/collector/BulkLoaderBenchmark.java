@@ -0,0 +1,168 @@
+package dev.rkoch.aws.stock.collector;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse.BodyHandlers;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import com.amazonaws.services.lambda.runtime.logging.LogLevel;
+import dev.rkoch.aws.s3.parquet.S3Parquet;
+import dev.rkoch.aws.stock.collector.api.NasdaqResponseParser;
+import dev.rkoch.aws.stock.collector.cache.CacheEntry;
+import dev.rkoch.aws.stock.collector.cache.FileHistoryCache;
+import dev.rkoch.aws.stock.collector.cache.HistoryCache;
+import dev.rkoch.aws.stock.collector.metrics.Metrics;
+import dev.rkoch.aws.stock.collector.replay.ReplayLogger;
+import dev.rkoch.aws.stock.collector.replay.ReplayServer;
+import dev.rkoch.aws.stock.collector.replay.SyntheticFixtures;
+import dev.rkoch.aws.stock.collector.store.FileS3Client;
+import dev.rkoch.aws.stock.collector.store.S3ObjectStore;
+
+@BenchmarkMode(Mode.Throughput)
+@Fork(1)
+@Measurement(iterations = 5, time = 5)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 2, time = 5)
+public class BulkLoaderBenchmark {
+
+  @AuxCounters(AuxCounters.Type.OPERATIONS)
+  @State(Scope.Thread)
+  public static class Rows {
+
+    public long rows;
+
+  }
+
+  private static final String API_PATH = "/api/quote/%s/historical?assetclass=stocks&limit=%s&fromdate=%s&todate=%s";
+
+  private static final String BUCKET_NAME = "dev-rkoch-spre";
+
+  private static final String KEY = "raw/stock/localDate=%s/data.parquet";
+
+  private static final HistoryCache NO_CACHE = new HistoryCache() {
+
+    @Override
+    public CacheEntry get(final String symbol) {
+      return null;
+    }
+
+    @Override
+    public void put(final String symbol, final CacheEntry entry) {
+
+    }
+
+  };
+
+  @Param({"encode", "parquet"})
+  private String sink;
+
+  @Param({"100"})
+  private int symbols;
+
+  @Param({"10"})
+  private int years;
+
+  private final Map<String, byte[]> responses = new HashMap<>();
+
+  private final List<String> symbolList = new ArrayList<>();
+
+  private Path directory;
+
+  private LocalDate fromDate;
+
+  private LocalDate toDate;
+
+  private S3Parquet s3Parquet;
+
+  private TradingCalendar tradingCalendar;
+
+  @Benchmark
+  public void load(final Rows rows, final Blackhole blackhole) {
+    LongAdder written = new LongAdder();
+    NasdaqResponseParser parser = new NasdaqResponseParser();
+    BulkLoader loader = new BulkLoader(new ReplayLogger(LogLevel.WARN), (symbol, from, to) -> {
+      try {
+        return parser.parse(new ByteArrayInputStream(responses.get(symbol)), symbol).getHistory().slice(from, to);
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    }, tradingCalendar, Deadline.none(), (int) ChronoUnit.DAYS.between(fromDate, toDate), new Metrics());
+    try (PartitionWriter writer = new PartitionWriter(new ReplayLogger(LogLevel.WARN), 16, (date, batch) -> write(date, batch, blackhole),
+        (date, batch) -> written.add(batch.size()))) {
+      if (!loader.load(symbolList, fromDate, toDate, writer)) {
+        throw new IllegalStateException("load failed");
+      }
+    }
+    rows.rows += written.sum();
+  }
+
+  @Setup
+  public void setUp() throws Exception {
+    directory = Files.createTempDirectory("bulk-loader-benchmark");
+    toDate = LocalDate.now().plusDays(1);
+    fromDate = toDate.minusYears(years);
+    FileS3Client s3Client = new FileS3Client(directory.resolve("store"));
+    s3Parquet = new S3Parquet(s3Client);
+    tradingCalendar = new TradingCalendar(new S3ObjectStore(s3Client, BUCKET_NAME));
+    FileHistoryCache nasdaqCache = new FileHistoryCache(directory.resolve("nasdaq"));
+    new SyntheticFixtures(s3Parquet, tradingCalendar, nasdaqCache, NO_CACHE).generate(symbols, fromDate, toDate);
+    try (ReplayServer server = new ReplayServer(directory.resolve("nasdaq")); HttpClient httpClient = HttpClient.newHttpClient()) {
+      for (int i = 0; i < symbols; i++) {
+        String symbol = i % 100 == 99 ? "SYN%03d.B".formatted(i) : "SYN%03d".formatted(i);
+        URI uri = server.getUri().resolve(API_PATH.formatted(symbol.replace(".", "-"), 10_000, fromDate, toDate.minusDays(1)));
+        responses.put(symbol, httpClient.send(HttpRequest.newBuilder(uri).build(), BodyHandlers.ofByteArray()).body());
+        symbolList.add(symbol);
+      }
+    }
+  }
+
+  @TearDown
+  public void tearDown() throws IOException {
+    try (Stream<Path> paths = Files.walk(directory)) {
+      for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+        Files.delete(path);
+      }
+    }
+  }
+
+  private void write(final LocalDate date, final StockBatch batch, final Blackhole blackhole) throws Exception {
+    if ("parquet".equals(sink)) {
+      s3Parquet.write(BUCKET_NAME, KEY.formatted(date), batch.rows());
+      return;
+    }
+    StockBatch.Row prototype = new StockBatch.Row();
+    for (StockBatch.Row row : batch.rows()) {
+      prototype.getDehydrator().dehydrate(row, (name, value) -> blackhole.consume(value));
+    }
+  }
+
+}
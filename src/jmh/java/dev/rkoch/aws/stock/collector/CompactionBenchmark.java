@@ -0,0 +1,105 @@
+package dev.rkoch.aws.stock.collector;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import com.amazonaws.services.lambda.runtime.logging.LogLevel;
+import dev.rkoch.aws.s3.parquet.S3Parquet;
+import dev.rkoch.aws.stock.collector.metrics.Metrics;
+import dev.rkoch.aws.stock.collector.replay.ReplayLogger;
+import dev.rkoch.aws.stock.collector.store.FileS3Client;
+import dev.rkoch.aws.stock.collector.store.ObjectStore;
+import dev.rkoch.aws.stock.collector.store.S3ObjectStore;
+
+@BenchmarkMode(Mode.AverageTime)
+@Fork(1)
+@Measurement(iterations = 5, time = 5)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 2, time = 5)
+public class CompactionBenchmark {
+
+  private static final String BUCKET_NAME = "dev-rkoch-spre";
+
+  private static final String KEY = "raw/stock/localDate=%s/data.parquet";
+
+  @Param({"daily", "monthly"})
+  private String layout;
+
+  @Param({"12"})
+  private int months;
+
+  @Param({"all", "symbol"})
+  private String query;
+
+  @Param({"500"})
+  private int symbols;
+
+  private Path directory;
+
+  private StockQuery stockQuery;
+
+  private StockReader stockReader;
+
+  @Benchmark
+  public StockBatch scan() {
+    return stockReader.read(stockQuery);
+  }
+
+  @Setup
+  public void setUp() throws Exception {
+    directory = Files.createTempDirectory("compaction-benchmark");
+    LocalDate fromDate = LocalDate.of(2024, 1, 1);
+    LocalDate toDate = fromDate.plusMonths(months);
+    FileS3Client s3Client = new FileS3Client(directory);
+    ObjectStore objectStore = new S3ObjectStore(s3Client, BUCKET_NAME);
+    S3Parquet s3Parquet = new S3Parquet(s3Client);
+    TradingCalendar tradingCalendar = new TradingCalendar(objectStore);
+    SplittableRandom random = new SplittableRandom(42);
+    for (LocalDate date : tradingCalendar.getTradingDays(fromDate, toDate)) {
+      StockBatch batch = new StockBatch(symbols);
+      for (int i = 0; i < symbols; i++) {
+        double price = 20 + random.nextDouble() * 480;
+        batch.add((int) date.toEpochDay(), "SYN%03d".formatted(i), price, price * 1.01, price * 0.99, price, 100_000 + random.nextInt(10_000_000));
+      }
+      s3Parquet.write(BUCKET_NAME, KEY.formatted(date), batch.rows());
+    }
+    if ("monthly".equals(layout)) {
+      Compactor compactor = new Compactor(new ReplayLogger(LogLevel.WARN), objectStore, tradingCalendar, Deadline.none(), 16, new Metrics());
+      if (!compactor.compact(fromDate, toDate)) {
+        throw new IllegalStateException("compaction failed");
+      }
+    }
+    stockQuery = new StockQuery(fromDate, toDate, "symbol".equals(query) ? Set.of("SYN007") : null, List.of(StockRecord.CLOSE));
+    stockReader = new StockReader(objectStore, tradingCalendar, 16, new Metrics());
+  }
+
+  @TearDown
+  public void tearDown() throws IOException {
+    try (Stream<Path> paths = Files.walk(directory)) {
+      for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+        Files.delete(path);
+      }
+    }
+  }
+
+}
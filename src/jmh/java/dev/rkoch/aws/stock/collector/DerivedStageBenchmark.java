@@ -0,0 +1,123 @@
+package dev.rkoch.aws.stock.collector;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import com.amazonaws.services.lambda.runtime.logging.LogLevel;
+import dev.rkoch.aws.s3.parquet.S3Parquet;
+import dev.rkoch.aws.stock.collector.metrics.Metrics;
+import dev.rkoch.aws.stock.collector.replay.ReplayLogger;
+import dev.rkoch.aws.stock.collector.store.FileS3Client;
+import dev.rkoch.aws.stock.collector.store.ObjectStore;
+import dev.rkoch.aws.stock.collector.store.S3ObjectStore;
+
+@BenchmarkMode(Mode.SingleShotTime)
+@Fork(1)
+@Measurement(iterations = 5)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 2)
+public class DerivedStageBenchmark {
+
+  private static final String BUCKET_NAME = "dev-rkoch-spre";
+
+  private static final String KEY = "raw/stock/localDate=%s/data.parquet";
+
+  @Param({"100"})
+  private int symbols;
+
+  @Param({"2"})
+  private int years;
+
+  private final List<LocalDate> dates = new ArrayList<>();
+
+  private final List<StockBatch> batches = new ArrayList<>();
+
+  private Path directory;
+
+  private LocalDate fromDate;
+
+  private LocalDate toDate;
+
+  private ObjectStore objectStore;
+
+  private S3Parquet s3Parquet;
+
+  private TradingCalendar tradingCalendar;
+
+  @Benchmark
+  public boolean backfill() {
+    DerivedStage stage = stage();
+    return stage.catchUp(fromDate, toDate, Deadline.none());
+  }
+
+  @Benchmark
+  public boolean incremental() {
+    DerivedStage stage = stage();
+    if (!stage.catchUp(fromDate, dates.get(1), Deadline.none())) {
+      return false;
+    }
+    for (int i = 1; i < dates.size(); i++) {
+      stage.accept(dates.get(i), batches.get(i));
+    }
+    return true;
+  }
+
+  @Setup
+  public void setUp() throws Exception {
+    directory = Files.createTempDirectory("derived-stage-benchmark");
+    fromDate = LocalDate.of(2024, 1, 1).minusYears(years);
+    toDate = LocalDate.of(2024, 1, 1);
+    FileS3Client s3Client = new FileS3Client(directory);
+    objectStore = new S3ObjectStore(s3Client, BUCKET_NAME);
+    s3Parquet = new S3Parquet(s3Client);
+    tradingCalendar = new TradingCalendar(objectStore);
+    SplittableRandom random = new SplittableRandom(42);
+    double[] prices = random.doubles(symbols, 20, 500).toArray();
+    for (LocalDate date : tradingCalendar.getTradingDays(fromDate, toDate)) {
+      StockBatch batch = new StockBatch(symbols);
+      for (int i = 0; i < symbols; i++) {
+        prices[i] = Math.max(1, prices[i] * (1 + (random.nextDouble() - 0.5) * 0.04));
+        batch.add((int) date.toEpochDay(), "SYN%03d".formatted(i), prices[i], prices[i] * 1.01, prices[i] * 0.99, prices[i], 100_000 + random.nextInt(10_000_000));
+      }
+      s3Parquet.write(BUCKET_NAME, KEY.formatted(date), batch.rows());
+      dates.add(date);
+      batches.add(batch);
+    }
+  }
+
+  private DerivedStage stage() {
+    DerivedStage stage = new DerivedStage(new ReplayLogger(LogLevel.WARN), objectStore, s3Parquet, tradingCalendar, 16, new Metrics());
+    stage.reset();
+    return stage;
+  }
+
+  @TearDown
+  public void tearDown() throws IOException {
+    try (Stream<Path> paths = Files.walk(directory)) {
+      for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+        Files.delete(path);
+      }
+    }
+  }
+
+}
@@ -0,0 +1,129 @@
+package dev.rkoch.aws.stock.collector;
+
+import java.io.IOException;
+import java.net.http.HttpClient;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import dev.rkoch.aws.s3.parquet.S3Parquet;
+import dev.rkoch.aws.stock.collector.api.CircuitBreaker;
+import dev.rkoch.aws.stock.collector.api.HttpTransport;
+import dev.rkoch.aws.stock.collector.api.NasdaqApi;
+import dev.rkoch.aws.stock.collector.api.RateLimiter;
+import dev.rkoch.aws.stock.collector.cache.CacheEntry;
+import dev.rkoch.aws.stock.collector.cache.FileHistoryCache;
+import dev.rkoch.aws.stock.collector.cache.HistoryCache;
+import dev.rkoch.aws.stock.collector.metrics.Metrics;
+import dev.rkoch.aws.stock.collector.replay.ReplayServer;
+import dev.rkoch.aws.stock.collector.replay.SyntheticFixtures;
+import dev.rkoch.aws.stock.collector.store.FileS3Client;
+import dev.rkoch.aws.stock.collector.store.S3ObjectStore;
+
+@BenchmarkMode(Mode.AverageTime)
+@Fork(1)
+@Measurement(iterations = 5, time = 2)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 2)
+public class NasdaqTransportBenchmark {
+
+  @AuxCounters(AuxCounters.Type.EVENTS)
+  @State(Scope.Thread)
+  public static class Bytes {
+
+    public long decodedBytes;
+
+    public long wireBytes;
+
+  }
+
+  private static final HistoryCache NO_CACHE = new HistoryCache() {
+
+    @Override
+    public CacheEntry get(final String symbol) {
+      return null;
+    }
+
+    @Override
+    public void put(final String symbol, final CacheEntry entry) {
+
+    }
+
+  };
+
+  private static final String NASDAQ = "nasdaq";
+
+  @Param({"true", "false"})
+  private boolean compression;
+
+  @Param({"20"})
+  private int symbols;
+
+  @Param({"10"})
+  private int years;
+
+  private Path directory;
+
+  private LocalDate fromDate;
+
+  private LocalDate toDate;
+
+  private HttpClient httpClient;
+
+  private ReplayServer server;
+
+  @Benchmark
+  public void fetchHistories(final Bytes bytes, final Blackhole blackhole) throws Exception {
+    Metrics metrics = new Metrics();
+    HttpTransport transport = new HttpTransport(Metrics.NASDAQ, httpClient, RateLimiter.unlimited(), 8, Duration.ofSeconds(30), 1, Duration.ZERO, Duration.ZERO,
+        CircuitBreaker.disabled(), compression);
+    NasdaqApi nasdaqApi = new NasdaqApi(fromDate, toDate, server.getUri(), transport, NO_CACHE, Duration.ZERO, metrics, Deadline.none());
+    for (int i = 0; i < symbols; i++) {
+      blackhole.consume(nasdaqApi.getHistory(i % 100 == 99 ? "SYN%03d.B".formatted(i) : "SYN%03d".formatted(i), fromDate, toDate));
+    }
+    bytes.wireBytes = metrics.getCount(Metrics.NASDAQ + ".bytes");
+    bytes.decodedBytes = metrics.getCount(Metrics.NASDAQ + ".decodedBytes");
+  }
+
+  @Setup
+  public void setUp() throws Exception {
+    directory = Files.createTempDirectory("nasdaq-transport-benchmark");
+    toDate = LocalDate.now().plusDays(1);
+    fromDate = toDate.minusYears(years);
+    FileS3Client s3Client = new FileS3Client(directory.resolve("store"));
+    new SyntheticFixtures(new S3Parquet(s3Client), new TradingCalendar(new S3ObjectStore(s3Client, "dev-rkoch-spre")),
+        new FileHistoryCache(directory.resolve(NASDAQ)), NO_CACHE).generate(symbols, fromDate, toDate);
+    server = new ReplayServer(directory.resolve(NASDAQ));
+    httpClient = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+  }
+
+  @TearDown
+  public void tearDown() throws IOException {
+    httpClient.close();
+    server.close();
+    try (Stream<Path> paths = Files.walk(directory)) {
+      for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+        Files.delete(path);
+      }
+    }
+  }
+
+}
@@ -0,0 +1,82 @@
+package dev.rkoch.aws.stock.collector;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import dev.rkoch.aws.stock.collector.api.NasdaqResponseParser;
+import dev.rkoch.aws.stock.collector.store.FileS3Client;
+import dev.rkoch.aws.stock.collector.store.ObjectStore;
+import dev.rkoch.aws.stock.collector.store.S3ObjectStore;
+
+@BenchmarkMode(Mode.SingleShotTime)
+@Fork(10)
+@Measurement(iterations = 1)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 0)
+public class PrimerBenchmark {
+
+  private static final String BUCKET_NAME = "bench";
+
+  private static final String ROW = "{\"date\":\"%s\",\"close\":\"$1,234.5%s\",\"volume\":\"12,345,678\",\"open\":\"$1,230.00\",\"high\":\"$1,240.25\",\"low\":\"$1,220.75\"}";
+
+  @Param({"false", "true"})
+  private boolean primed;
+
+  private byte[] response;
+
+  private Path directory;
+
+  @Benchmark
+  public StockBatch firstInvocation() throws Exception {
+    StockHistory history = new NasdaqResponseParser().parse(new ByteArrayInputStream(response), "AAA").getHistory();
+    StockBatch batch = new StockBatch(history.size());
+    for (int i = 0; i < history.size(); i++) {
+      batch.add(history, i);
+    }
+    ObjectStore objectStore = new S3ObjectStore(new FileS3Client(directory), BUCKET_NAME);
+    StockWriter.write(objectStore, "first.parquet", batch);
+    return StockReader.read(objectStore, "first.parquet");
+  }
+
+  @Setup
+  public void setUp() throws IOException {
+    StringBuilder rows = new StringBuilder();
+    for (int day = 1; day <= 28; day++) {
+      rows.append(day > 1 ? "," : "").append(ROW.formatted("02/%02d/2025".formatted(day), day % 10));
+    }
+    response = ("{\"data\":{\"symbol\":\"AAA\",\"totalRecords\":28,\"tradesTable\":{\"asOf\":null,\"rows\":[" + rows
+        + "]}},\"message\":null,\"status\":{\"rCode\":200,\"bCodeMessage\":null,\"developerMessage\":null}}").getBytes(StandardCharsets.UTF_8);
+    directory = Files.createTempDirectory("primer-benchmark");
+    if (primed) {
+      new Primer().prime();
+    }
+  }
+
+  @TearDown
+  public void tearDown() throws IOException {
+    try (Stream<Path> paths = Files.walk(directory)) {
+      for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+        Files.delete(path);
+      }
+    }
+  }
+
+}
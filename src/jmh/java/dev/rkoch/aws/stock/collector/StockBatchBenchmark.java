@@ -0,0 +1,144 @@
+package dev.rkoch.aws.stock.collector;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import blue.strategic.parquet.Dehydrator;
+import dev.rkoch.aws.s3.parquet.S3Parquet;
+import dev.rkoch.aws.stock.collector.store.FileS3Client;
+import dev.rkoch.aws.stock.collector.store.ObjectStore;
+import dev.rkoch.aws.stock.collector.store.S3ObjectStore;
+
+@BenchmarkMode(Mode.AverageTime)
+@Fork(1)
+@Measurement(iterations = 5, time = 2)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 2)
+public class StockBatchBenchmark {
+
+  private static final String BUCKET_NAME = "bench";
+
+  private static final String KEY = "raw/stock/localDate=%s/data.parquet";
+
+  @Param({"6000"})
+  private int symbols;
+
+  private int epochDay;
+
+  private String[] ids;
+
+  private double[] prices;
+
+  private long[] volumes;
+
+  private Path directory;
+
+  private ObjectStore objectStore;
+
+  private S3Parquet s3Parquet;
+
+  @Benchmark
+  public void batchEncode(final Blackhole blackhole) {
+    StockBatch batch = toBatch();
+    List<StockBatch.Row> rows = batch.rows();
+    Dehydrator<StockBatch.Row> dehydrator = new StockBatch.Row().getDehydrator();
+    for (StockBatch.Row row : rows) {
+      dehydrator.dehydrate(row, (name, value) -> blackhole.consume(value));
+    }
+  }
+
+  @Benchmark
+  public StockBatch batchRead() throws Exception {
+    return StockReader.read(objectStore, KEY.formatted("batch"));
+  }
+
+  @Benchmark
+  public void batchWrite() throws Exception {
+    StockWriter.write(objectStore, KEY.formatted("batch"), toBatch());
+  }
+
+  @Benchmark
+  public void rowEncode(final Blackhole blackhole) {
+    List<StockRecord> records = toRecords();
+    Dehydrator<StockRecord> dehydrator = new StockRecord().getDehydrator();
+    for (StockRecord record : records) {
+      dehydrator.dehydrate(record, (name, value) -> blackhole.consume(value));
+    }
+  }
+
+  @Benchmark
+  public List<StockRecord> rowRead() throws Exception {
+    return s3Parquet.read(BUCKET_NAME, KEY.formatted("rows"), StockRecord.class);
+  }
+
+  @Benchmark
+  public void rowWrite() throws Exception {
+    s3Parquet.write(BUCKET_NAME, KEY.formatted("rows"), toRecords());
+  }
+
+  @Setup
+  public void setUp() throws Exception {
+    epochDay = (int) LocalDate.of(2025, 1, 2).toEpochDay();
+    ids = new String[symbols];
+    prices = new double[symbols];
+    volumes = new long[symbols];
+    for (int i = 0; i < symbols; i++) {
+      ids[i] = SymbolDictionary.symbols().intern("S%05d".formatted(i));
+      prices[i] = 10 + i / 100.0;
+      volumes[i] = 1_000L * i;
+    }
+    directory = Files.createTempDirectory("stock-batch-benchmark");
+    FileS3Client s3Client = new FileS3Client(directory);
+    objectStore = new S3ObjectStore(s3Client, BUCKET_NAME);
+    s3Parquet = new S3Parquet(s3Client);
+    batchWrite();
+    rowWrite();
+  }
+
+  @TearDown
+  public void tearDown() throws IOException {
+    try (Stream<Path> paths = Files.walk(directory)) {
+      for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+        Files.delete(path);
+      }
+    }
+  }
+
+  private StockBatch toBatch() {
+    StockBatch batch = new StockBatch(symbols);
+    for (int i = 0; i < symbols; i++) {
+      batch.add(epochDay, ids[i], prices[i], prices[i], prices[i], prices[i], volumes[i]);
+    }
+    return batch;
+  }
+
+  private List<StockRecord> toRecords() {
+    LocalDate date = LocalDate.ofEpochDay(epochDay);
+    List<StockRecord> records = new ArrayList<>(symbols);
+    for (int i = 0; i < symbols; i++) {
+      records.add(StockRecord.of(date, ids[i], prices[i], prices[i], prices[i], prices[i], volumes[i]));
+    }
+    return records;
+  }
+
+}
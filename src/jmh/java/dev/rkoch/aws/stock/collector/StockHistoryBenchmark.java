@@ -0,0 +1,78 @@
+package dev.rkoch.aws.stock.collector;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+@BenchmarkMode(Mode.AverageTime)
+@Fork(1)
+@Measurement(iterations = 5, time = 1)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 1)
+public class StockHistoryBenchmark {
+
+  private static final int DATES = 1024;
+
+  private static final int YEARS = 10;
+
+  private StockHistory history;
+
+  private List<StockRecord> records;
+
+  private LocalDate[] dates;
+
+  @Benchmark
+  public void indexed(final Blackhole blackhole) {
+    for (LocalDate date : dates) {
+      blackhole.consume(history.get(date));
+    }
+  }
+
+  @Benchmark
+  public void reversedScan(final Blackhole blackhole) {
+    for (LocalDate date : dates) {
+      StockRecord match = null;
+      for (StockRecord record : records.reversed()) {
+        if (record.getLocalDate().isEqual(date)) {
+          match = record;
+          break;
+        }
+      }
+      blackhole.consume(match);
+    }
+  }
+
+  @Setup
+  public void setUp() {
+    LocalDate toDate = LocalDate.of(2025, 1, 1);
+    LocalDate fromDate = toDate.minusYears(YEARS);
+    StockHistory.Builder builder = StockHistory.builder("BENCH");
+    for (LocalDate date = fromDate; date.isBefore(toDate); date = date.plusDays(1)) {
+      if (date.getDayOfWeek() != DayOfWeek.SATURDAY && date.getDayOfWeek() != DayOfWeek.SUNDAY) {
+        builder.add((int) date.toEpochDay(), 1, 1, 1, 1, 1);
+      }
+    }
+    history = builder.build();
+    records = history.getRecords();
+    SplittableRandom random = new SplittableRandom(42);
+    dates = new LocalDate[DATES];
+    for (int i = 0; i < DATES; i++) {
+      dates[i] = fromDate.plusDays(random.nextLong(toDate.toEpochDay() - fromDate.toEpochDay()));
+    }
+  }
+
+}
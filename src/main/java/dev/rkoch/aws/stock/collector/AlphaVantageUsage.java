@@ -0,0 +1,49 @@
+package dev.rkoch.aws.stock.collector;
+
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.Properties;
+import dev.rkoch.aws.stock.collector.store.ObjectStore;
+import dev.rkoch.aws.stock.collector.store.PropertiesStore;
+
+public class AlphaVantageUsage {
+
+  private static final String KEY = "state/alphavantage/usage.properties";
+
+  private static final String DATE = "date";
+
+  private static final String USED = "used";
+
+  private final ObjectStore objectStore;
+
+  private final LocalDate date;
+
+  private int used;
+
+  public AlphaVantageUsage(ObjectStore objectStore) {
+    this(objectStore, LocalDate.now(ZoneOffset.UTC));
+  }
+
+  public AlphaVantageUsage(ObjectStore objectStore, LocalDate date) {
+    this.objectStore = objectStore;
+    this.date = date;
+    this.used = getUsed(PropertiesStore.load(objectStore.get(KEY)));
+  }
+
+  public synchronized int get() {
+    return used;
+  }
+
+  private int getUsed(final Properties properties) {
+    return date.toString().equals(properties.getProperty(DATE)) ? Integer.parseInt(properties.getProperty(USED, "0")) : 0;
+  }
+
+  public synchronized void increment() {
+    used = getUsed(PropertiesStore.update(objectStore, KEY, (properties) -> {
+      int current = Math.max(used, getUsed(properties));
+      properties.setProperty(DATE, date.toString());
+      properties.setProperty(USED, String.valueOf(current + 1));
+    }));
+  }
+
+}
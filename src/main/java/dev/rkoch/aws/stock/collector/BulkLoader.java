@@ -0,0 +1,147 @@
+package dev.rkoch.aws.stock.collector;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import com.amazonaws.services.lambda.runtime.LambdaLogger;
+import com.amazonaws.services.lambda.runtime.logging.LogLevel;
+import dev.rkoch.aws.stock.collector.metrics.Metrics;
+
+public class BulkLoader {
+
+  @FunctionalInterface
+  public interface HistorySource {
+
+    StockHistory get(String symbol, LocalDate fromDate, LocalDate toDate);
+
+  }
+
+  private final LambdaLogger logger;
+
+  private final HistorySource source;
+
+  private final TradingCalendar tradingCalendar;
+
+  private final Deadline deadline;
+
+  private final int windowDays;
+
+  private final Metrics metrics;
+
+  public BulkLoader(LambdaLogger logger, HistorySource source, TradingCalendar tradingCalendar, Deadline deadline, int windowDays, Metrics metrics) {
+    this.logger = logger;
+    this.source = source;
+    this.tradingCalendar = tradingCalendar;
+    this.deadline = deadline;
+    this.windowDays = Math.max(1, windowDays);
+    this.metrics = metrics;
+  }
+
+  StockBatch getBatch(final int epochDay, final List<String> symbols, final StockHistory[] histories) {
+    StockBatch batch = new StockBatch(symbols.size());
+    for (int i = 0; i < histories.length; i++) {
+      StockHistory history = histories[i];
+      int index = history.indexOf(epochDay);
+      if (index < 0) {
+        batch.add(epochDay, symbols.get(i), 0, 0, 0, 0, 0);
+      } else {
+        batch.add(history, index);
+      }
+    }
+    return batch;
+  }
+
+  StockHistory[] getHistories(final List<String> symbols, final LocalDate fromDate, final LocalDate toDate) {
+    List<Future<StockHistory>> futures = new ArrayList<>(symbols.size());
+    try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+      for (String symbol : symbols) {
+        futures.add(executor.submit(() -> source.get(symbol, fromDate, toDate)));
+      }
+      StockHistory[] histories = new StockHistory[symbols.size()];
+      for (int i = 0; i < histories.length; i++) {
+        histories[i] = futures.get(i).get();
+      }
+      return histories;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new RuntimeException(e);
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof RuntimeException runtimeException) {
+        throw runtimeException;
+      } else {
+        throw new RuntimeException(e.getCause());
+      }
+    }
+  }
+
+  private int[] getTradingDays(final LocalDate fromDate, final LocalDate toDate, final LocalDate endDate, final StockHistory[] histories) {
+    int from = (int) fromDate.toEpochDay();
+    int to = (int) toDate.toEpochDay();
+    int[] counts = new int[Math.max(0, to - from)];
+    BitSet probed = new BitSet(counts.length);
+    for (StockHistory history : histories) {
+      for (int i = 0; i < history.size(); i++) {
+        int epochDay = history.getEpochDay(i);
+        if (epochDay >= from && epochDay < to) {
+          counts[epochDay - from]++;
+        }
+      }
+    }
+    for (int i = 0; i < histories[0].size(); i++) {
+      int epochDay = histories[0].getEpochDay(i);
+      if (epochDay >= from && epochDay < to) {
+        probed.set(epochDay - from);
+      }
+    }
+    int probes = Math.min(StockCollector.CLOSURE_PROBES, histories.length);
+    int[] epochDays = new int[counts.length];
+    int count = 0;
+    for (int offset = 0; offset < counts.length; offset++) {
+      if (counts[offset] == 0) {
+        continue;
+      }
+      epochDays[count++] = from + offset;
+      LocalDate date = LocalDate.ofEpochDay(from + offset);
+      if ((probed.get(offset) || counts[offset] >= probes) && tradingCalendar.getTradingDays(date.plusDays(1), endDate).size() >= StockCollector.CLOSURE_SETTLE_DAYS) {
+        tradingCalendar.learn(date, true);
+      }
+    }
+    return Arrays.copyOf(epochDays, count);
+  }
+
+  public boolean load(final List<String> symbols, final LocalDate startDate, final LocalDate endDate, final PartitionWriter writer) {
+    if (symbols.isEmpty()) {
+      return true;
+    }
+    for (LocalDate fromDate = startDate; fromDate.isBefore(endDate); fromDate = fromDate.plusDays(windowDays)) {
+      LocalDate toDate = fromDate.plusDays(windowDays).isBefore(endDate) ? fromDate.plusDays(windowDays) : endDate;
+      if (deadline.isNear()) {
+        logger.log("%s stopped before deadline".formatted(fromDate), LogLevel.WARN);
+        writer.flush();
+        return false;
+      }
+      long start = metrics.start();
+      StockHistory[] histories = getHistories(symbols, fromDate, toDate);
+      metrics.stop(Metrics.COLLECT_GET_HISTORIES, start);
+      if (histories[0].isEmpty() && !tradingCalendar.getTradingDays(fromDate, toDate).isEmpty()) {
+        logger.log("%s to %s no data for %s".formatted(fromDate, toDate, symbols.getFirst()), LogLevel.WARN);
+        writer.flush();
+        return false;
+      }
+      for (int epochDay : getTradingDays(fromDate, toDate, endDate, histories)) {
+        if (!writer.submit(LocalDate.ofEpochDay(epochDay), () -> getBatch(epochDay, symbols, histories))) {
+          return false;
+        }
+      }
+      logger.log("%s to %s loaded".formatted(fromDate, toDate), LogLevel.INFO);
+    }
+    return writer.flush();
+  }
+
+}
@@ -0,0 +1,103 @@
+package dev.rkoch.aws.stock.collector;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import dev.rkoch.aws.stock.collector.store.ObjectStore;
+
+public class Checkpoint {
+
+  private static final String KEY = "state/checkpoint/%s.properties";
+
+  private static final String FRAGMENT_KEY = "staging/checkpoint/%s/localDate=%s/part-%05d.parquet";
+
+  private static final String CURSOR = "cursor";
+
+  private static final String DATE = "date";
+
+  private static final String FRAGMENTS = "fragments";
+
+  private final ObjectStore objectStore;
+
+  private final String name;
+
+  private final String key;
+
+  private final Properties properties = new Properties();
+
+  public Checkpoint(ObjectStore objectStore, String name) {
+    this.objectStore = objectStore;
+    this.name = name;
+    this.key = KEY.formatted(name);
+    byte[] bytes = objectStore.get(key);
+    if (bytes != null) {
+      try {
+        properties.load(new ByteArrayInputStream(bytes));
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    }
+  }
+
+  public synchronized void clear(final LocalDate date) {
+    if (!isFor(date)) {
+      return;
+    }
+    for (int i = 0; i < getFragments(); i++) {
+      objectStore.delete(FRAGMENT_KEY.formatted(name, date, i));
+    }
+    properties.clear();
+    objectStore.delete(key);
+  }
+
+  public synchronized String getCursor() {
+    return properties.getProperty(CURSOR);
+  }
+
+  private int getFragments() {
+    return Integer.parseInt(properties.getProperty(FRAGMENTS, "0"));
+  }
+
+  public synchronized List<StockRecord> getRecords() throws Exception {
+    LocalDate date = LocalDate.parse(properties.getProperty(DATE));
+    List<StockRecord> records = new ArrayList<>();
+    for (int i = 0; i < getFragments(); i++) {
+      StockBatch batch = StockReader.read(objectStore, FRAGMENT_KEY.formatted(name, date, i));
+      for (int j = 0; j < batch.size(); j++) {
+        records.add(batch.getRecord(j));
+      }
+    }
+    return records;
+  }
+
+  public synchronized boolean isFor(final LocalDate date) {
+    return date.toString().equals(properties.getProperty(DATE));
+  }
+
+  public synchronized void save(final LocalDate date, final List<StockRecord> records) throws Exception {
+    if (records.isEmpty()) {
+      return;
+    }
+    if (!isFor(date)) {
+      clear(LocalDate.parse(properties.getProperty(DATE, date.toString())));
+      properties.setProperty(DATE, date.toString());
+    }
+    int fragment = getFragments();
+    StockWriter.write(objectStore, FRAGMENT_KEY.formatted(name, date, fragment), StockBatch.of(records));
+    properties.setProperty(FRAGMENTS, String.valueOf(fragment + 1));
+    properties.setProperty(CURSOR, records.getLast().getId());
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try {
+      properties.store(bytes, null);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    objectStore.put(key, bytes.toByteArray());
+  }
+
+}
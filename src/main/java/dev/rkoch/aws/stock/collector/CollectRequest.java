@@ -0,0 +1,129 @@
+package dev.rkoch.aws.stock.collector;
+
+import java.util.List;
+
+public class CollectRequest {
+
+  public static final String COMPACT = "compact";
+
+  public static final String COORDINATOR = "coordinator";
+
+  public static final String DERIVE = "derive";
+
+  public static final String RECONCILE = "reconcile";
+
+  private Boolean bySector;
+
+  private String fromDate;
+
+  private String mode;
+
+  private List<String> sectors;
+
+  private String shard;
+
+  private Integer shards;
+
+  private String symbolAfter;
+
+  private Integer symbolCount;
+
+  private String toDate;
+
+  public CollectRequest() {
+
+  }
+
+  public Boolean getBySector() {
+    return bySector;
+  }
+
+  public String getFromDate() {
+    return fromDate;
+  }
+
+  public String getMode() {
+    return mode;
+  }
+
+  public List<String> getSectors() {
+    return sectors;
+  }
+
+  public String getShard() {
+    return shard;
+  }
+
+  public Integer getShards() {
+    return shards;
+  }
+
+  public String getSymbolAfter() {
+    return symbolAfter;
+  }
+
+  public Integer getSymbolCount() {
+    return symbolCount;
+  }
+
+  public String getToDate() {
+    return toDate;
+  }
+
+  public boolean isCompact() {
+    return COMPACT.equalsIgnoreCase(mode);
+  }
+
+  public boolean isCoordinator() {
+    return COORDINATOR.equalsIgnoreCase(mode);
+  }
+
+  public boolean isDerive() {
+    return DERIVE.equalsIgnoreCase(mode);
+  }
+
+  public boolean isReconcile() {
+    return RECONCILE.equalsIgnoreCase(mode);
+  }
+
+  public boolean isShard() {
+    return shard != null || symbolAfter != null || symbolCount != null;
+  }
+
+  public void setBySector(Boolean bySector) {
+    this.bySector = bySector;
+  }
+
+  public void setFromDate(String fromDate) {
+    this.fromDate = fromDate;
+  }
+
+  public void setMode(String mode) {
+    this.mode = mode;
+  }
+
+  public void setSectors(List<String> sectors) {
+    this.sectors = sectors;
+  }
+
+  public void setShard(String shard) {
+    this.shard = shard;
+  }
+
+  public void setShards(Integer shards) {
+    this.shards = shards;
+  }
+
+  public void setSymbolAfter(String symbolAfter) {
+    this.symbolAfter = symbolAfter;
+  }
+
+  public void setSymbolCount(Integer symbolCount) {
+    this.symbolCount = symbolCount;
+  }
+
+  public void setToDate(String toDate) {
+    this.toDate = toDate;
+  }
+
+}
@@ -0,0 +1,82 @@
+package dev.rkoch.aws.stock.collector;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+import com.amazonaws.services.lambda.runtime.LambdaLogger;
+import com.amazonaws.services.lambda.runtime.logging.LogLevel;
+import dev.rkoch.aws.stock.collector.metrics.Metrics;
+import dev.rkoch.aws.stock.collector.store.ObjectStore;
+
+public class Compactor {
+
+  private static final String PARQUET_KEY = "raw/stock/localDate=%s/data.parquet";
+
+  private static final String PARTITION_PREFIX = "raw/stock/localDate=";
+
+  private final LambdaLogger logger;
+
+  private final ObjectStore objectStore;
+
+  private final StockReader reader;
+
+  private final LayoutManifest layout;
+
+  private final Deadline deadline;
+
+  private final Metrics metrics;
+
+  public Compactor(LambdaLogger logger, ObjectStore objectStore, TradingCalendar tradingCalendar, Deadline deadline, int concurrency,
+      Metrics metrics) {
+    this.logger = logger;
+    this.objectStore = objectStore;
+    this.reader = new StockReader(objectStore, tradingCalendar, PARQUET_KEY, concurrency, metrics);
+    this.layout = new LayoutManifest(objectStore);
+    this.deadline = deadline;
+    this.metrics = metrics;
+  }
+
+  public boolean compact(final LocalDate defaultFromDate, final LocalDate endDate) {
+    YearMonth lastMonth = layout.getLastMonth();
+    YearMonth endMonth = YearMonth.from(endDate);
+    for (YearMonth month = lastMonth == null ? YearMonth.from(defaultFromDate) : lastMonth.plusMonths(1); month.isBefore(endMonth); month = month.plusMonths(1)) {
+      if (deadline.isNear()) {
+        logger.log("%s compaction stopped before deadline".formatted(month), LogLevel.WARN);
+        return false;
+      }
+      try {
+        compact(month);
+      } catch (Exception e) {
+        logger.log("%s %s".formatted(month, e.getMessage()), LogLevel.ERROR);
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private void compact(final YearMonth month) throws Exception {
+    long start = metrics.start();
+    List<String> keys = getPartitionKeys(month);
+    StockBatch batch = keys.isEmpty() ? new StockBatch(0) : reader.read(keys, new StockQuery(month.atDay(1), month.plusMonths(1).atDay(1), null, null));
+    if (batch.size() > 0) {
+      StockWriter.write(objectStore, LayoutManifest.getKey(month), batch.sortBySymbol());
+    }
+    layout.add(month);
+    keys.forEach(objectStore::delete);
+    metrics.stop(Metrics.COMPACT, start);
+    logger.log("%s compacted %s partitions".formatted(month, keys.size()), LogLevel.INFO);
+  }
+
+  private List<String> getPartitionKeys(final YearMonth month) {
+    List<String> keys = new ArrayList<>();
+    for (String key : objectStore.list(PARTITION_PREFIX + month + "-")) {
+      int end = PARTITION_PREFIX.length() + 10;
+      if (key.length() > end && key.equals(PARQUET_KEY.formatted(key.substring(PARTITION_PREFIX.length(), end)))) {
+        keys.add(key);
+      }
+    }
+    return keys;
+  }
+
+}
@@ -0,0 +1,38 @@
+package dev.rkoch.aws.stock.collector;
+
+import java.time.Duration;
+import java.util.function.LongSupplier;
+import com.amazonaws.services.lambda.runtime.Context;
+
+public class Deadline {
+
+  public static Deadline none() {
+    return new Deadline(() -> Long.MAX_VALUE, Duration.ZERO);
+  }
+
+  public static Deadline of(final Context context, final Duration reserve) {
+    return context == null ? none() : new Deadline(context::getRemainingTimeInMillis, reserve);
+  }
+
+  private final LongSupplier remainingMillis;
+
+  private final long reserveMillis;
+
+  public Deadline(LongSupplier remainingMillis, Duration reserve) {
+    this.remainingMillis = remainingMillis;
+    this.reserveMillis = reserve.toMillis();
+  }
+
+  public long getRemainingMillis() {
+    return remainingMillis.getAsLong();
+  }
+
+  public boolean hasTime(final Duration wait) {
+    return remainingMillis.getAsLong() - wait.toMillis() > reserveMillis;
+  }
+
+  public boolean isNear() {
+    return remainingMillis.getAsLong() <= reserveMillis;
+  }
+
+}
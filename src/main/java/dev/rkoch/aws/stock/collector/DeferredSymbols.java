@@ -0,0 +1,108 @@
+package dev.rkoch.aws.stock.collector;
+
+import java.time.LocalDate;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import dev.rkoch.aws.stock.collector.store.ObjectStore;
+import dev.rkoch.aws.stock.collector.store.PropertiesStore;
+
+public class DeferredSymbols {
+
+  public enum Reason {
+    ALPHAVANTAGE, NASDAQ
+  }
+
+  private static final String KEY = "state/alphavantage/deferred.properties";
+
+  private static final String SEPARATOR = ",";
+
+  private static LocalDate getDate(final Properties properties, final String symbol) {
+    String value = properties.getProperty(symbol);
+    return value == null ? null : LocalDate.parse(value.split(SEPARATOR, 2)[0]);
+  }
+
+  private final ObjectStore objectStore;
+
+  private final Map<String, LocalDate> deferred = new TreeMap<>();
+
+  private final Map<String, Reason> reasons = new TreeMap<>();
+
+  private final Set<String> added = new TreeSet<>();
+
+  private final Map<String, LocalDate> removed = new TreeMap<>();
+
+  public DeferredSymbols(ObjectStore objectStore) {
+    this.objectStore = objectStore;
+    load(PropertiesStore.load(objectStore.get(KEY)));
+  }
+
+  public synchronized void add(final String symbol, final LocalDate date, final Reason reason) {
+    LocalDate current = deferred.get(symbol);
+    if (current == null || date.isBefore(current)) {
+      deferred.put(symbol, date);
+      added.add(symbol);
+    }
+    if (reasons.put(symbol, reason) != reason) {
+      added.add(symbol);
+    }
+    if (added.contains(symbol)) {
+      removed.remove(symbol);
+    }
+  }
+
+  public synchronized Map<String, LocalDate> get(final Reason reason) {
+    Map<String, LocalDate> symbols = new TreeMap<>();
+    deferred.forEach((symbol, date) -> {
+      if (reasons.get(symbol) == reason) {
+        symbols.put(symbol, date);
+      }
+    });
+    return symbols;
+  }
+
+  private void load(final Properties properties) {
+    deferred.clear();
+    reasons.clear();
+    properties.forEach((symbol, value) -> {
+      String[] parts = ((String) value).split(SEPARATOR, 2);
+      deferred.put((String) symbol, LocalDate.parse(parts[0]));
+      reasons.put((String) symbol, parts.length > 1 ? Reason.valueOf(parts[1]) : Reason.ALPHAVANTAGE);
+    });
+  }
+
+  private void merge(final Properties properties) {
+    removed.forEach((symbol, date) -> {
+      LocalDate current = getDate(properties, symbol);
+      if (current != null && !current.isBefore(date)) {
+        properties.remove(symbol);
+      }
+    });
+    for (String symbol : added) {
+      LocalDate current = getDate(properties, symbol);
+      LocalDate date = current == null || deferred.get(symbol).isBefore(current) ? deferred.get(symbol) : current;
+      properties.setProperty(symbol, date + SEPARATOR + reasons.get(symbol));
+    }
+  }
+
+  public synchronized void remove(final String symbol) {
+    reasons.remove(symbol);
+    LocalDate date = deferred.remove(symbol);
+    if (date != null) {
+      added.remove(symbol);
+      removed.put(symbol, date);
+    }
+  }
+
+  public synchronized void save() {
+    if (added.isEmpty() && removed.isEmpty()) {
+      return;
+    }
+    load(PropertiesStore.update(objectStore, KEY, this::merge));
+    added.clear();
+    removed.clear();
+  }
+
+}
@@ -0,0 +1,262 @@
+package dev.rkoch.aws.stock.collector;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+import org.apache.parquet.schema.LogicalTypeAnnotation;
+import org.apache.parquet.schema.MessageType;
+import org.apache.parquet.schema.PrimitiveType.PrimitiveTypeName;
+import org.apache.parquet.schema.Types;
+import blue.strategic.parquet.Dehydrator;
+import blue.strategic.parquet.Hydrator;
+import blue.strategic.parquet.ValueWriter;
+import dev.rkoch.aws.s3.parquet.ParquetRecord;
+
+public class DerivedBatch {
+
+  public static class Row implements ParquetRecord<Row> {
+
+    private static final MessageType SCHEMA = new MessageType("derived-record", //
+        Types.required(PrimitiveTypeName.INT32).as(LogicalTypeAnnotation.dateType()).named(LOCAL_DATE), //
+        Types.required(PrimitiveTypeName.BINARY).as(LogicalTypeAnnotation.stringType()).named(ID), //
+        Types.required(PrimitiveTypeName.DOUBLE).named(CLOSE), //
+        Types.optional(PrimitiveTypeName.DOUBLE).named(DAILY_RETURN), //
+        Types.optional(PrimitiveTypeName.DOUBLE).named(SMA_SHORT), //
+        Types.optional(PrimitiveTypeName.DOUBLE).named(SMA_LONG), //
+        Types.optional(PrimitiveTypeName.DOUBLE).named(VOLATILITY), //
+        Types.optional(PrimitiveTypeName.DOUBLE).named(VWAP) //
+    );
+
+    private static double toDouble(final Object value) {
+      return value == null ? Double.NaN : (double) value;
+    }
+
+    private static void write(final ValueWriter valueWriter, final String name, final double value) {
+      if (!Double.isNaN(value)) {
+        valueWriter.write(name, value);
+      }
+    }
+
+    private final DerivedBatch batch;
+
+    private final int index;
+
+    public Row() {
+      this(null, -1);
+    }
+
+    private Row(DerivedBatch batch, int index) {
+      this.batch = batch;
+      this.index = index;
+    }
+
+    public DerivedBatch getBatch() {
+      return batch;
+    }
+
+    @Override
+    public Dehydrator<Row> getDehydrator() {
+      return (row, valueWriter) -> {
+        DerivedBatch batch = row.batch;
+        int i = row.index;
+        valueWriter.write(LOCAL_DATE, batch.epochDays[i]);
+        valueWriter.write(ID, batch.getSymbol(i));
+        valueWriter.write(CLOSE, batch.close[i]);
+        write(valueWriter, DAILY_RETURN, batch.dailyReturn[i]);
+        write(valueWriter, SMA_SHORT, batch.smaShort[i]);
+        write(valueWriter, SMA_LONG, batch.smaLong[i]);
+        write(valueWriter, VOLATILITY, batch.volatility[i]);
+        write(valueWriter, VWAP, batch.vwap[i]);
+      };
+    }
+
+    @Override
+    public Hydrator<Row, Row> getHydrator() {
+      DerivedBatch target = new DerivedBatch(INITIAL_CAPACITY);
+      return new Hydrator<>() {
+
+        @Override
+        public Row add(Row row, String heading, Object value) {
+          int i = row.index;
+          switch (heading) {
+            case LOCAL_DATE:
+              target.epochDays[i] = (int) value;
+              return row;
+            case ID:
+              target.symbolCodes[i] = SymbolDictionary.symbols().code((String) value);
+              return row;
+            case CLOSE:
+              target.close[i] = (double) value;
+              return row;
+            case DAILY_RETURN:
+              target.dailyReturn[i] = toDouble(value);
+              return row;
+            case SMA_SHORT:
+              target.smaShort[i] = toDouble(value);
+              return row;
+            case SMA_LONG:
+              target.smaLong[i] = toDouble(value);
+              return row;
+            case VOLATILITY:
+              target.volatility[i] = toDouble(value);
+              return row;
+            case VWAP:
+              target.vwap[i] = toDouble(value);
+              return row;
+            default:
+              throw new IllegalArgumentException("Unexpected value: " + heading);
+          }
+        }
+
+        @Override
+        public Row finish(Row row) {
+          return row;
+        }
+
+        @Override
+        public Row start() {
+          return new Row(target, target.addEmpty());
+        }
+
+      };
+    }
+
+    public int getIndex() {
+      return index;
+    }
+
+    @Override
+    public MessageType getSchema() {
+      return SCHEMA;
+    }
+
+  }
+
+  static final String LOCAL_DATE = "localDate";
+  static final String ID = "id";
+  static final String CLOSE = "close";
+  static final String DAILY_RETURN = "dailyReturn";
+  static final String SMA_SHORT = "sma" + RollingWindows.SHORT_WINDOW;
+  static final String SMA_LONG = "sma" + RollingWindows.LONG_WINDOW;
+  static final String VOLATILITY = "volatility" + RollingWindows.SHORT_WINDOW;
+  static final String VWAP = "vwap" + RollingWindows.SHORT_WINDOW;
+
+  private static final int INITIAL_CAPACITY = 512;
+
+  public static DerivedBatch from(final List<Row> rows) {
+    return rows.isEmpty() ? new DerivedBatch(0) : rows.getFirst().getBatch();
+  }
+
+  private int[] epochDays;
+  private int[] symbolCodes;
+  private double[] close;
+  private double[] dailyReturn;
+  private double[] smaShort;
+  private double[] smaLong;
+  private double[] volatility;
+  private double[] vwap;
+  private int size;
+
+  public DerivedBatch(int capacity) {
+    int initialCapacity = Math.max(16, capacity);
+    epochDays = new int[initialCapacity];
+    symbolCodes = new int[initialCapacity];
+    close = new double[initialCapacity];
+    dailyReturn = new double[initialCapacity];
+    smaShort = new double[initialCapacity];
+    smaLong = new double[initialCapacity];
+    volatility = new double[initialCapacity];
+    vwap = new double[initialCapacity];
+  }
+
+  public DerivedBatch add(final int epochDay, final int symbolCode, final double close, final double dailyReturn, final double smaShort, final double smaLong,
+      final double volatility, final double vwap) {
+    int i = addEmpty();
+    this.epochDays[i] = epochDay;
+    this.symbolCodes[i] = symbolCode;
+    this.close[i] = close;
+    this.dailyReturn[i] = dailyReturn;
+    this.smaShort[i] = smaShort;
+    this.smaLong[i] = smaLong;
+    this.volatility[i] = volatility;
+    this.vwap[i] = vwap;
+    return this;
+  }
+
+  private int addEmpty() {
+    if (size == epochDays.length) {
+      int capacity = size * 2;
+      epochDays = Arrays.copyOf(epochDays, capacity);
+      symbolCodes = Arrays.copyOf(symbolCodes, capacity);
+      close = Arrays.copyOf(close, capacity);
+      dailyReturn = Arrays.copyOf(dailyReturn, capacity);
+      smaShort = Arrays.copyOf(smaShort, capacity);
+      smaLong = Arrays.copyOf(smaLong, capacity);
+      volatility = Arrays.copyOf(volatility, capacity);
+      vwap = Arrays.copyOf(vwap, capacity);
+    }
+    dailyReturn[size] = Double.NaN;
+    smaShort[size] = Double.NaN;
+    smaLong[size] = Double.NaN;
+    volatility[size] = Double.NaN;
+    vwap[size] = Double.NaN;
+    return size++;
+  }
+
+  public double getClose(final int index) {
+    return close[index];
+  }
+
+  public double getDailyReturn(final int index) {
+    return dailyReturn[index];
+  }
+
+  public int getEpochDay(final int index) {
+    return epochDays[index];
+  }
+
+  public double getSmaLong(final int index) {
+    return smaLong[index];
+  }
+
+  public double getSmaShort(final int index) {
+    return smaShort[index];
+  }
+
+  public String getSymbol(final int index) {
+    return SymbolDictionary.symbols().get(symbolCodes[index]);
+  }
+
+  public int getSymbolCode(final int index) {
+    return symbolCodes[index];
+  }
+
+  public double getVolatility(final int index) {
+    return volatility[index];
+  }
+
+  public double getVwap(final int index) {
+    return vwap[index];
+  }
+
+  public List<Row> rows() {
+    return new AbstractList<>() {
+
+      @Override
+      public Row get(int index) {
+        return new Row(DerivedBatch.this, index);
+      }
+
+      @Override
+      public int size() {
+        return size;
+      }
+
+    };
+  }
+
+  public int size() {
+    return size;
+  }
+
+}
@@ -0,0 +1,181 @@
+package dev.rkoch.aws.stock.collector;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.stream.IntStream;
+import com.amazonaws.services.lambda.runtime.LambdaLogger;
+import com.amazonaws.services.lambda.runtime.logging.LogLevel;
+import dev.rkoch.aws.s3.parquet.S3Parquet;
+import dev.rkoch.aws.stock.collector.metrics.Metrics;
+import dev.rkoch.aws.stock.collector.store.ObjectStore;
+
+public class DerivedStage {
+
+  private static final String BUCKET_NAME = "dev-rkoch-spre";
+
+  private static final String PARQUET_KEY = "derived/stock/localDate=%s/data.parquet";
+
+  private static final String STATE_KEY = "state/derived/windows.bin";
+
+  private static final List<String> COLUMNS = List.of(StockRecord.CLOSE, StockRecord.HIGH, StockRecord.LOW, StockRecord.VOLUME);
+
+  private static final int INITIAL_CAPACITY = 512;
+
+  private final LambdaLogger logger;
+
+  private final ObjectStore objectStore;
+
+  private final S3Parquet s3Parquet;
+
+  private final TradingCalendar tradingCalendar;
+
+  private final int concurrency;
+
+  private final Metrics metrics;
+
+  private RollingWindows windows;
+
+  private boolean changed;
+
+  public DerivedStage(LambdaLogger logger, ObjectStore objectStore, S3Parquet s3Parquet, TradingCalendar tradingCalendar, int concurrency, Metrics metrics) {
+    this.logger = logger;
+    this.objectStore = objectStore;
+    this.s3Parquet = s3Parquet;
+    this.tradingCalendar = tradingCalendar;
+    this.concurrency = Math.max(1, concurrency);
+    this.metrics = metrics;
+    byte[] bytes = objectStore.get(STATE_KEY);
+    try {
+      this.windows = bytes == null ? new RollingWindows(INITIAL_CAPACITY) : RollingWindows.decode(bytes);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  public synchronized void accept(final LocalDate date, final StockBatch batch) {
+    if (windows.isEmpty()) {
+      return;
+    }
+    LocalDate lastDate = LocalDate.ofEpochDay(windows.getLastEpochDay());
+    if (!date.isAfter(lastDate) || tradingCalendar.next(lastDate.plusDays(1)).isBefore(date)) {
+      return;
+    }
+    try {
+      write(update(batch));
+    } catch (Exception e) {
+      logger.log("%s derived %s".formatted(date, e.getMessage()), LogLevel.ERROR);
+    }
+  }
+
+  public synchronized boolean catchUp(final LocalDate defaultFromDate, final LocalDate endDate, final Deadline deadline) {
+    return catchUp(defaultFromDate, LocalDate.MIN, endDate, deadline);
+  }
+
+  private boolean catchUp(final LocalDate defaultFromDate, final LocalDate writeFromDate, final LocalDate endDate, final Deadline deadline) {
+    StockReader reader = new StockReader(objectStore, tradingCalendar, concurrency, metrics);
+    LocalDate fromDate = windows.isEmpty() ? defaultFromDate : LocalDate.ofEpochDay(windows.getLastEpochDay() + 1L);
+    try {
+      for (LocalDate date = fromDate; date.isBefore(endDate); date = YearMonth.from(date).plusMonths(1).atDay(1)) {
+        if (deadline.isNear()) {
+          logger.log("%s derived stopped before deadline".formatted(date), LogLevel.WARN);
+          return false;
+        }
+        LocalDate toDate = YearMonth.from(date).plusMonths(1).atDay(1);
+        StockBatch batch = reader.read(new StockQuery(date, toDate.isBefore(endDate) ? toDate : endDate, null, COLUMNS));
+        write(update(batch).stream().filter((derived) -> derived.getEpochDay(0) >= writeFromDate.toEpochDay()).toList());
+        save();
+      }
+      return true;
+    } catch (Exception e) {
+      logger.log("%s derived %s".formatted(fromDate, e.getMessage()), LogLevel.ERROR);
+      return false;
+    }
+  }
+
+  public synchronized boolean recompute(final LocalDate defaultFromDate, final LocalDate fromDate, final LocalDate endDate, final Deadline deadline) {
+    if (!windows.isEmpty() && fromDate.toEpochDay() <= windows.getLastEpochDay()) {
+      reset();
+      return catchUp(defaultFromDate, fromDate, endDate, deadline);
+    }
+    return catchUp(defaultFromDate, endDate, deadline);
+  }
+
+  public synchronized void reset() {
+    windows = new RollingWindows(INITIAL_CAPACITY);
+    changed = true;
+  }
+
+  public synchronized void save() {
+    if (!changed) {
+      return;
+    }
+    try {
+      objectStore.put(STATE_KEY, windows.encode());
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    changed = false;
+  }
+
+  private List<DerivedBatch> update(final StockBatch batch) {
+    int[] order = IntStream.range(0, batch.size()).boxed().sorted(Comparator.comparingInt(batch::getEpochDay)).mapToInt(Integer::intValue).toArray();
+    List<DerivedBatch> derived = new ArrayList<>();
+    DerivedBatch current = null;
+    int epochDay = Integer.MIN_VALUE;
+    for (int index : order) {
+      if (batch.getEpochDay(index) != epochDay) {
+        if (current != null && current.size() > 0) {
+          derived.add(current);
+        }
+        current = new DerivedBatch(INITIAL_CAPACITY);
+        epochDay = batch.getEpochDay(index);
+      }
+      windows.update(batch, index, current);
+    }
+    if (current != null && current.size() > 0) {
+      derived.add(current);
+    }
+    changed |= !derived.isEmpty();
+    return derived;
+  }
+
+  private void write(final List<DerivedBatch> batches) throws Exception {
+    List<Future<?>> futures = new ArrayList<>(batches.size());
+    Semaphore permits = new Semaphore(concurrency);
+    try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+      for (DerivedBatch batch : batches) {
+        futures.add(executor.submit(() -> {
+          permits.acquire();
+          try {
+            long start = metrics.start();
+            s3Parquet.write(BUCKET_NAME, PARQUET_KEY.formatted(LocalDate.ofEpochDay(batch.getEpochDay(0))), batch.rows());
+            metrics.stop(Metrics.DERIVED, start);
+            return null;
+          } finally {
+            permits.release();
+          }
+        }));
+      }
+      for (Future<?> future : futures) {
+        future.get();
+      }
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof Exception exception) {
+        throw exception;
+      } else {
+        throw new RuntimeException(e.getCause());
+      }
+    }
+  }
+
+}
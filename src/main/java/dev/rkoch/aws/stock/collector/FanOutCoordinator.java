@@ -0,0 +1,164 @@
+package dev.rkoch.aws.stock.collector;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import com.amazonaws.services.lambda.runtime.LambdaLogger;
+import com.amazonaws.services.lambda.runtime.logging.LogLevel;
+import dev.rkoch.aws.collector.utils.State;
+import dev.rkoch.aws.stock.collector.invoke.Invoker;
+import dev.rkoch.aws.stock.collector.store.ObjectStore;
+
+public class FanOutCoordinator {
+
+  private static final String PARQUET_KEY = "raw/stock/localDate=%s/data.parquet";
+
+  private static final String STAGING_KEY = "staging/stock/localDate=%s/shard=%s/data.parquet";
+
+  private static final String FANOUT = "fanout";
+
+  private static final String MERGE = FANOUT + "/merge";
+
+  private static final Duration LEASE_DURATION = Duration.ofMinutes(15);
+
+  public static Shard getShard(final ObjectStore objectStore, final Symbols symbols, final CollectRequest request) {
+    List<String> range = symbols.getAfter(request.getSymbolAfter());
+    if (request.getSymbolCount() != null) {
+      range = range.subList(0, Math.max(0, Math.min(request.getSymbolCount(), range.size())));
+    }
+    String name = Shard.toPartitionValue(
+        request.getShard() != null ? request.getShard() : "%s-%s".formatted(Objects.toString(request.getSymbolAfter(), "first"), range.size()));
+    return new Shard(name, range, STAGING_KEY.formatted("%s", name), new ShardProgress(objectStore, FANOUT + "/" + name), parse(request.getFromDate()),
+        parse(request.getToDate()));
+  }
+
+  private static LocalDate parse(final String date) {
+    return date == null || date.isBlank() ? null : LocalDate.parse(date.strip());
+  }
+
+  private final LambdaLogger logger;
+
+  private final ObjectStore objectStore;
+
+  public FanOutCoordinator(LambdaLogger logger, ObjectStore objectStore) {
+    this.logger = logger;
+    this.objectStore = objectStore;
+  }
+
+  public void coordinate(final State state, final Symbols symbols, final CollectRequest request, final Invoker invoker, final LocalDate defaultFromDate,
+      final int defaultShards) {
+    try (Lease lease = new Lease(objectStore, FANOUT, LEASE_DURATION)) {
+      if (!lease.acquire()) {
+        logger.log("fan-out lease held elsewhere", LogLevel.WARN);
+        return;
+      }
+      FanOutPlan plan = merge(state, FanOutPlan.load(objectStore));
+      if (plan == null) {
+        LocalDate fromDate = Objects.requireNonNullElse(parse(request.getFromDate()), defaultFromDate);
+        LocalDate toDate = Objects.requireNonNullElse(parse(request.getToDate()), LocalDate.now());
+        if (!fromDate.isBefore(toDate)) {
+          return;
+        }
+        plan = FanOutPlan.create(fromDate, toDate, symbols.get(), request.getShards() == null ? defaultShards : request.getShards());
+        new ShardProgress(objectStore, MERGE).delete();
+      }
+      Instant now = Instant.now();
+      for (CollectRequest shardRequest : plan.getRequests()) {
+        Instant invokedAt = plan.getInvokedAt(shardRequest);
+        if (isDone(plan, shardRequest) || invokedAt != null && invokedAt.plus(LEASE_DURATION).isAfter(now)) {
+          continue;
+        }
+        plan.setInvokedAt(shardRequest, now);
+        plan.save(objectStore);
+        invoker.invoke(shardRequest);
+        logger.log("%s invoked".formatted(shardRequest.getShard()), LogLevel.INFO);
+      }
+      plan.save(objectStore);
+    }
+  }
+
+  private ShardProgress getProgress(final CollectRequest request) {
+    return new ShardProgress(objectStore, FANOUT + "/" + Shard.toPartitionValue(request.getShard()));
+  }
+
+  private boolean isDone(final FanOutPlan plan, final CollectRequest request) {
+    LocalDate lastAddedDate = getProgress(request).getLastAddedStockDate();
+    return lastAddedDate != null && !lastAddedDate.isBefore(plan.getToDate().minusDays(1));
+  }
+
+  public void merge(final State state) {
+    try (Lease lease = new Lease(objectStore, FANOUT, LEASE_DURATION)) {
+      if (!lease.acquire()) {
+        logger.log("fan-out lease held elsewhere", LogLevel.WARN);
+        return;
+      }
+      merge(state, FanOutPlan.load(objectStore));
+    }
+  }
+
+  private FanOutPlan merge(final State state, final FanOutPlan plan) {
+    if (plan == null) {
+      return null;
+    }
+    for (CollectRequest request : plan.getRequests()) {
+      if (!isDone(plan, request)) {
+        return plan;
+      }
+    }
+    ShardProgress mergeProgress = new ShardProgress(objectStore, MERGE);
+    LocalDate merged = mergeProgress.getLastAddedStockDate();
+    LocalDate date = merged == null || merged.isBefore(plan.getFromDate()) ? plan.getFromDate() : merged.plusDays(1);
+    try {
+      for (; date.isBefore(plan.getToDate()); date = date.plusDays(1)) {
+        if (mergePartition(plan, date)) {
+          logger.log("%s merged".formatted(date), LogLevel.INFO);
+        }
+        mergeProgress.setLastAddedStockDate(date);
+      }
+    } catch (Exception e) {
+      throw new RuntimeException(e.getMessage(), e);
+    } finally {
+      LocalDate lastAddedStockDate = state.getLastAddedStockDate();
+      if (mergeProgress.getLastAddedStockDate() != null && (lastAddedStockDate == null || lastAddedStockDate.isBefore(mergeProgress.getLastAddedStockDate()))) {
+        state.setLastAddedStockDate(mergeProgress.getLastAddedStockDate());
+      }
+    }
+    for (CollectRequest request : plan.getRequests()) {
+      getProgress(request).delete();
+    }
+    mergeProgress.delete();
+    plan.delete(objectStore);
+    logger.log("fan-out %s to %s completed".formatted(plan.getFromDate(), plan.getToDate()), LogLevel.INFO);
+    return null;
+  }
+
+  private boolean mergePartition(final FanOutPlan plan, final LocalDate date) throws Exception {
+    List<String> keys = new ArrayList<>(plan.getRequests().size());
+    List<String> missing = new ArrayList<>();
+    for (CollectRequest request : plan.getRequests()) {
+      String key = STAGING_KEY.formatted(date, Shard.toPartitionValue(request.getShard()));
+      if (objectStore.getETag(key) != null) {
+        keys.add(key);
+      } else if (!isDone(plan, request)) {
+        missing.add(request.getShard());
+      }
+    }
+    if (keys.isEmpty()) {
+      return false;
+    }
+    if (!missing.isEmpty()) {
+      throw new IllegalStateException("%s missing fragments for %s".formatted(date, missing));
+    }
+    StockBatch batch = new StockBatch(keys.size() * 128);
+    for (String key : keys) {
+      batch.addAll(StockReader.read(objectStore, key));
+    }
+    StockWriter.write(objectStore, PARQUET_KEY.formatted(date), batch);
+    keys.forEach(objectStore::delete);
+    return true;
+  }
+
+}
@@ -0,0 +1,146 @@
+package dev.rkoch.aws.stock.collector;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import dev.rkoch.aws.stock.collector.store.ObjectStore;
+
+public class FanOutPlan {
+
+  private static final String KEY = "state/fanout/plan.properties";
+
+  private static final String FROM_DATE = "fromDate";
+
+  private static final String SHARDS = "shards";
+
+  private static final String SHARD_INVOKED_AT = "shard.%s.invokedAt";
+
+  private static final String SHARD_NAME = "shard.%s.name";
+
+  private static final String SHARD_SYMBOL_AFTER = "shard.%s.symbolAfter";
+
+  private static final String SHARD_SYMBOL_COUNT = "shard.%s.symbolCount";
+
+  private static final String TO_DATE = "toDate";
+
+  public static FanOutPlan create(final LocalDate fromDate, final LocalDate toDate, final List<String> symbols, final int shardCount) {
+    int count = Math.max(1, Math.min(shardCount, symbols.size()));
+    int size = (symbols.size() + count - 1) / Math.max(1, count);
+    List<CollectRequest> requests = new ArrayList<>(count);
+    for (int i = 0, start = 0; start < symbols.size(); i++, start += size) {
+      CollectRequest request = new CollectRequest();
+      request.setShard("%s-%s".formatted(fromDate, i));
+      request.setSymbolAfter(start == 0 ? null : symbols.get(start - 1));
+      request.setSymbolCount(Math.min(size, symbols.size() - start));
+      request.setFromDate(fromDate.toString());
+      request.setToDate(toDate.toString());
+      requests.add(request);
+    }
+    return new FanOutPlan(fromDate, toDate, requests, Map.of());
+  }
+
+  public static FanOutPlan load(final ObjectStore objectStore) {
+    byte[] bytes = objectStore.get(KEY);
+    if (bytes == null) {
+      return null;
+    }
+    Properties properties = new Properties();
+    try {
+      properties.load(new ByteArrayInputStream(bytes));
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    LocalDate fromDate = LocalDate.parse(properties.getProperty(FROM_DATE));
+    LocalDate toDate = LocalDate.parse(properties.getProperty(TO_DATE));
+    int shards = Integer.parseInt(properties.getProperty(SHARDS));
+    List<CollectRequest> requests = new ArrayList<>(shards);
+    Map<String, Instant> invokedAt = new HashMap<>();
+    for (int i = 0; i < shards; i++) {
+      CollectRequest request = new CollectRequest();
+      request.setShard(properties.getProperty(SHARD_NAME.formatted(i)));
+      request.setSymbolAfter(properties.getProperty(SHARD_SYMBOL_AFTER.formatted(i)));
+      request.setSymbolCount(Integer.valueOf(properties.getProperty(SHARD_SYMBOL_COUNT.formatted(i))));
+      request.setFromDate(fromDate.toString());
+      request.setToDate(toDate.toString());
+      requests.add(request);
+      String value = properties.getProperty(SHARD_INVOKED_AT.formatted(i));
+      if (value != null) {
+        invokedAt.put(request.getShard(), Instant.parse(value));
+      }
+    }
+    return new FanOutPlan(fromDate, toDate, requests, invokedAt);
+  }
+
+  private final LocalDate fromDate;
+
+  private final LocalDate toDate;
+
+  private final List<CollectRequest> requests;
+
+  private final Map<String, Instant> invokedAt;
+
+  private FanOutPlan(LocalDate fromDate, LocalDate toDate, List<CollectRequest> requests, Map<String, Instant> invokedAt) {
+    this.fromDate = fromDate;
+    this.toDate = toDate;
+    this.requests = List.copyOf(requests);
+    this.invokedAt = new HashMap<>(invokedAt);
+  }
+
+  public void delete(final ObjectStore objectStore) {
+    objectStore.delete(KEY);
+  }
+
+  public LocalDate getFromDate() {
+    return fromDate;
+  }
+
+  public Instant getInvokedAt(final CollectRequest request) {
+    return invokedAt.get(request.getShard());
+  }
+
+  public List<CollectRequest> getRequests() {
+    return requests;
+  }
+
+  public LocalDate getToDate() {
+    return toDate;
+  }
+
+  public void save(final ObjectStore objectStore) {
+    Properties properties = new Properties();
+    properties.setProperty(FROM_DATE, fromDate.toString());
+    properties.setProperty(TO_DATE, toDate.toString());
+    properties.setProperty(SHARDS, String.valueOf(requests.size()));
+    for (int i = 0; i < requests.size(); i++) {
+      CollectRequest request = requests.get(i);
+      properties.setProperty(SHARD_NAME.formatted(i), request.getShard());
+      if (request.getSymbolAfter() != null) {
+        properties.setProperty(SHARD_SYMBOL_AFTER.formatted(i), request.getSymbolAfter());
+      }
+      properties.setProperty(SHARD_SYMBOL_COUNT.formatted(i), String.valueOf(request.getSymbolCount()));
+      if (invokedAt.containsKey(request.getShard())) {
+        properties.setProperty(SHARD_INVOKED_AT.formatted(i), invokedAt.get(request.getShard()).toString());
+      }
+    }
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try {
+      properties.store(bytes, null);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    objectStore.put(KEY, bytes.toByteArray());
+  }
+
+  public void setInvokedAt(final CollectRequest request, final Instant instant) {
+    invokedAt.put(request.getShard(), instant);
+  }
+
+}
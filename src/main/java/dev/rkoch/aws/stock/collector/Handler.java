@@ -1,31 +1,369 @@
 package dev.rkoch.aws.stock.collector;
 
+import java.net.URI;
 import java.net.http.HttpClient;
+import java.net.http.HttpClient.Redirect;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import org.crac.Core;
+import org.crac.Resource;
 import com.amazonaws.services.lambda.runtime.Context;
+import com.amazonaws.services.lambda.runtime.LambdaLogger;
 import com.amazonaws.services.lambda.runtime.RequestHandler;
 import dev.rkoch.aws.s3.parquet.S3Parquet;
+import dev.rkoch.aws.stock.collector.api.CircuitBreaker;
+import dev.rkoch.aws.stock.collector.api.HttpTransport;
+import dev.rkoch.aws.stock.collector.api.RateLimiter;
+import dev.rkoch.aws.stock.collector.cache.FileHistoryCache;
+import dev.rkoch.aws.stock.collector.cache.HistoryCache;
+import dev.rkoch.aws.stock.collector.cache.MemoryHistoryCache;
+import dev.rkoch.aws.stock.collector.cache.S3HistoryCache;
+import dev.rkoch.aws.stock.collector.cache.TieredHistoryCache;
+import dev.rkoch.aws.stock.collector.invoke.Invoker;
+import dev.rkoch.aws.stock.collector.invoke.LambdaInvoker;
+import dev.rkoch.aws.stock.collector.invoke.LocalInvoker;
+import dev.rkoch.aws.stock.collector.metrics.Metrics;
+import dev.rkoch.aws.stock.collector.store.FileS3Client;
+import dev.rkoch.aws.stock.collector.store.ObjectStore;
+import dev.rkoch.aws.stock.collector.store.S3ObjectStore;
 import software.amazon.awssdk.http.urlconnection.UrlConnectionHttpClient;
 import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.lambda.LambdaClient;
 import software.amazon.awssdk.services.s3.S3Client;
 
-public class Handler implements RequestHandler<Void, Void> {
+public class Handler implements RequestHandler<CollectRequest, Void>, Resource {
+
+  private static final String BUCKET_NAME = "dev-rkoch-spre";
+
+  private static final String ALPHAVANTAGE = "alphavantage";
+
+  private static final String LOCAL = "local";
+
+  private static final String NASDAQ = "nasdaq";
+
+  private static final String ALPHAVANTAGE_API_KEY = "ALPHAVANTAGE_API_KEY";
+
+  private static final String AV_REQUESTS_PER_DAY = "AV_REQUESTS_PER_DAY";
+
+  private static final String AV_REQUESTS_PER_MINUTE = "AV_REQUESTS_PER_MINUTE";
+
+  private static final String BACKFILL_MIN_DAYS = "BACKFILL_MIN_DAYS";
+
+  private static final String BACKFILL_WRITE_CONCURRENCY = "BACKFILL_WRITE_CONCURRENCY";
+
+  private static final String BULK_WINDOW_DAYS = "BULK_WINDOW_DAYS";
+
+  private static final String CACHE_DIRECTORY = "CACHE_DIRECTORY";
+
+  private static final String CACHE_MEMORY_ENTRIES = "CACHE_MEMORY_ENTRIES";
+
+  private static final String CACHE_S3_PREFIX = "CACHE_S3_PREFIX";
+
+  private static final String CACHE_TTL_HOURS = "CACHE_TTL_HOURS";
+
+  private static final String CHECKPOINT_CHUNK_SIZE = "CHECKPOINT_CHUNK_SIZE";
+
+  private static final String CHECKPOINT_RESERVE_SECONDS = "CHECKPOINT_RESERVE_SECONDS";
+
+  private static final String COLLECT_BY_SECTOR = "COLLECT_BY_SECTOR";
+
+  private static final String FANOUT_SHARDS = "FANOUT_SHARDS";
+
+  private static final String HTTP_CONNECT_TIMEOUT_SECONDS = "HTTP_CONNECT_TIMEOUT_SECONDS";
+
+  private static final String HTTP_EXECUTOR_THREADS = "HTTP_EXECUTOR_THREADS";
+
+  private static final String HTTP_VERSION = "HTTP_VERSION";
+
+  private static final String INVOKER = "INVOKER";
+
+  private static final String NASDAQ_BACKOFF_MILLIS = "NASDAQ_BACKOFF_MILLIS";
+
+  private static final String NASDAQ_BREAKER_OPEN_SECONDS = "NASDAQ_BREAKER_OPEN_SECONDS";
+
+  private static final String NASDAQ_BREAKER_THRESHOLD = "NASDAQ_BREAKER_THRESHOLD";
+
+  private static final String NASDAQ_COMPRESSION = "NASDAQ_COMPRESSION";
+
+  private static final String NASDAQ_CONCURRENCY = "NASDAQ_CONCURRENCY";
+
+  private static final String NASDAQ_MAX_ATTEMPTS = "NASDAQ_MAX_ATTEMPTS";
+
+  private static final String NASDAQ_MAX_BACKOFF_MILLIS = "NASDAQ_MAX_BACKOFF_MILLIS";
+
+  private static final String NASDAQ_RATE = "NASDAQ_RATE";
+
+  private static final String NASDAQ_TIMEOUT_SECONDS = "NASDAQ_TIMEOUT_SECONDS";
+
+  private static final String NASDAQ_URL = "NASDAQ_URL";
+
+  private static final String PIPELINE_DEPTH = "PIPELINE_DEPTH";
+
+  private static final String RECONCILE_DAYS = "RECONCILE_DAYS";
+
+  private static final String REPLAY_DIRECTORY = "REPLAY_DIRECTORY";
+
+  private static final int DEFAULT_AV_REQUESTS_PER_DAY = 25;
+
+  private static final int DEFAULT_AV_REQUESTS_PER_MINUTE = 5;
+
+  private static final int DEFAULT_BACKFILL_MIN_DAYS = 30;
+
+  private static final int DEFAULT_BACKFILL_WRITE_CONCURRENCY = 16;
+
+  private static final int DEFAULT_BULK_WINDOW_DAYS = 730;
+
+  private static final int DEFAULT_CACHE_MEMORY_ENTRIES = 1024;
+
+  private static final int DEFAULT_CACHE_TTL_HOURS = 12;
+
+  private static final int DEFAULT_CHECKPOINT_CHUNK_SIZE = 128;
+
+  private static final int DEFAULT_CHECKPOINT_RESERVE_SECONDS = 60;
+
+  private static final int DEFAULT_FANOUT_SHARDS = 4;
+
+  private static final int DEFAULT_HTTP_CONNECT_TIMEOUT_SECONDS = 10;
+
+  private static final int DEFAULT_HTTP_EXECUTOR_THREADS = 0;
+
+  private static final int DEFAULT_NASDAQ_BACKOFF_MILLIS = 500;
+
+  private static final int DEFAULT_NASDAQ_BREAKER_OPEN_SECONDS = 30;
+
+  private static final int DEFAULT_NASDAQ_BREAKER_THRESHOLD = 10;
+
+  private static final int DEFAULT_NASDAQ_CONCURRENCY = 8;
+
+  private static final int DEFAULT_NASDAQ_MAX_ATTEMPTS = 4;
+
+  private static final int DEFAULT_NASDAQ_MAX_BACKOFF_MILLIS = 30000;
+
+  private static final double DEFAULT_NASDAQ_RATE = 90.0;
+
+  private static final int DEFAULT_NASDAQ_TIMEOUT_SECONDS = 30;
+
+  private static final String DEFAULT_NASDAQ_URL = "https://api.nasdaq.com";
+
+  private static final int DEFAULT_PIPELINE_DEPTH = 4;
+
+  private static final int DEFAULT_RECONCILE_DAYS = 30;
+
+  private static double getEnv(final String name, final double defaultValue) {
+    String value = getValue(name);
+    if (value == null || value.isBlank()) {
+      return defaultValue;
+    }
+    try {
+      return Double.parseDouble(value.strip());
+    } catch (NumberFormatException e) {
+      return defaultValue;
+    }
+  }
+
+  private static int getEnv(final String name, final int defaultValue) {
+    return (int) getEnv(name, (double) defaultValue);
+  }
+
+  private static String getEnv(final String name, final String defaultValue) {
+    String value = getValue(name);
+    return value == null || value.isBlank() ? defaultValue : value.strip();
+  }
+
+  private static HttpClient.Version getHttpVersion() {
+    try {
+      return HttpClient.Version.valueOf(getEnv(HTTP_VERSION, HttpClient.Version.HTTP_2.name()).toUpperCase(Locale.ROOT));
+    } catch (IllegalArgumentException e) {
+      return HttpClient.Version.HTTP_2;
+    }
+  }
+
+  private static String getValue(final String name) {
+    String value = System.getenv(name);
+    return value == null ? System.getProperty(name) : value;
+  }
+
+  private HistoryCache alphaVantageCache;
 
   private HttpClient httpClient;
 
+  private ExecutorService httpExecutor;
+
+  private LambdaClient lambdaClient;
+
+  private HistoryCache nasdaqCache;
+
+  private HttpTransport nasdaqTransport;
+
+  private ObjectStore objectStore;
+
   private S3Client s3Client;
 
   private S3Parquet s3Parquet;
 
+  public Handler() {
+    Core.getGlobalContext().register(this);
+  }
+
+  @Override
+  public void afterRestore(org.crac.Context<? extends Resource> context) throws Exception {
+    httpClient = newHttpClient();
+  }
+
+  @Override
+  public void beforeCheckpoint(org.crac.Context<? extends Resource> context) throws Exception {
+    getS3Parquet();
+    getObjectStore();
+    getAlphaVantageCache();
+    getNasdaqCache();
+    if (httpClient != null) {
+      httpClient.close();
+      httpClient = null;
+    }
+    if (httpExecutor != null) {
+      httpExecutor.close();
+      httpExecutor = null;
+    }
+    nasdaqTransport = null;
+    new Primer().prime();
+  }
+
+  String getAlphaVantageApiKey() {
+    return getEnv(ALPHAVANTAGE_API_KEY, null);
+  }
+
+  HistoryCache getAlphaVantageCache() {
+    if (alphaVantageCache == null) {
+      alphaVantageCache = getHistoryCache(ALPHAVANTAGE);
+    }
+    return alphaVantageCache;
+  }
+
+  int getAvRequestsPerDay() {
+    return getEnv(AV_REQUESTS_PER_DAY, DEFAULT_AV_REQUESTS_PER_DAY);
+  }
+
+  int getAvRequestsPerMinute() {
+    return Math.max(1, getEnv(AV_REQUESTS_PER_MINUTE, DEFAULT_AV_REQUESTS_PER_MINUTE));
+  }
+
+  int getBackfillMinDays() {
+    return getEnv(BACKFILL_MIN_DAYS, DEFAULT_BACKFILL_MIN_DAYS);
+  }
+
+  int getBackfillWriteConcurrency() {
+    return Math.max(1, getEnv(BACKFILL_WRITE_CONCURRENCY, DEFAULT_BACKFILL_WRITE_CONCURRENCY));
+  }
+
+  int getBulkWindowDays() {
+    return Math.max(1, getEnv(BULK_WINDOW_DAYS, DEFAULT_BULK_WINDOW_DAYS));
+  }
+
+  Duration getCacheTtl() {
+    return Duration.ofHours(getEnv(CACHE_TTL_HOURS, DEFAULT_CACHE_TTL_HOURS));
+  }
+
+  int getCheckpointChunkSize() {
+    return Math.max(1, getEnv(CHECKPOINT_CHUNK_SIZE, DEFAULT_CHECKPOINT_CHUNK_SIZE));
+  }
+
+  Duration getCheckpointReserve() {
+    return Duration.ofSeconds(getEnv(CHECKPOINT_RESERVE_SECONDS, DEFAULT_CHECKPOINT_RESERVE_SECONDS));
+  }
+
+  int getFanOutShards() {
+    return Math.max(1, getEnv(FANOUT_SHARDS, DEFAULT_FANOUT_SHARDS));
+  }
+
+  private HistoryCache getHistoryCache(final String namespace) {
+    List<HistoryCache> tiers = new ArrayList<>();
+    tiers.add(new MemoryHistoryCache(Math.max(1, getEnv(CACHE_MEMORY_ENTRIES, DEFAULT_CACHE_MEMORY_ENTRIES))));
+    String directory = getEnv(CACHE_DIRECTORY, null);
+    if (directory != null) {
+      tiers.add(new FileHistoryCache(Path.of(directory, namespace)));
+    }
+    String prefix = getEnv(CACHE_S3_PREFIX, null);
+    if (prefix != null) {
+      tiers.add(new S3HistoryCache(getS3Client(), BUCKET_NAME, prefix + "/" + namespace));
+    }
+    return new TieredHistoryCache(tiers);
+  }
+
   HttpClient getHttpClient() {
     if (httpClient == null) {
-      httpClient = HttpClient.newHttpClient();
+      httpClient = newHttpClient();
     }
     return httpClient;
   }
 
+  Invoker getInvoker(final LambdaLogger logger, final Deadline deadline) {
+    if (LOCAL.equalsIgnoreCase(getEnv(INVOKER, null))) {
+      return new LocalInvoker((request) -> new StockCollector(logger, this, deadline).collect(request));
+    }
+    return new LambdaInvoker(getLambdaClient(), System.getenv("AWS_LAMBDA_FUNCTION_NAME"));
+  }
+
+  LambdaClient getLambdaClient() {
+    if (lambdaClient == null) {
+      lambdaClient = LambdaClient.builder().region(Region.of(System.getenv("AWS_REGION"))).httpClientBuilder(UrlConnectionHttpClient.builder()).build();
+    }
+    return lambdaClient;
+  }
+
+  HistoryCache getNasdaqCache() {
+    if (nasdaqCache == null) {
+      nasdaqCache = getHistoryCache(NASDAQ);
+    }
+    return nasdaqCache;
+  }
+
+  int getNasdaqConcurrency() {
+    return Math.max(1, getEnv(NASDAQ_CONCURRENCY, DEFAULT_NASDAQ_CONCURRENCY));
+  }
+
+  double getNasdaqRate() {
+    return getEnv(NASDAQ_RATE, DEFAULT_NASDAQ_RATE);
+  }
+
+  synchronized HttpTransport getNasdaqTransport() {
+    if (nasdaqTransport == null) {
+      nasdaqTransport = newNasdaqTransport();
+    }
+    return nasdaqTransport;
+  }
+
+  URI getNasdaqUrl() {
+    return URI.create(getEnv(NASDAQ_URL, DEFAULT_NASDAQ_URL));
+  }
+
+  int getPipelineDepth() {
+    return Math.max(1, getEnv(PIPELINE_DEPTH, DEFAULT_PIPELINE_DEPTH));
+  }
+
+  ObjectStore getObjectStore() {
+    if (objectStore == null) {
+      objectStore = new S3ObjectStore(getS3Client(), BUCKET_NAME);
+    }
+    return objectStore;
+  }
+
+  int getReconcileDays() {
+    return Math.max(1, getEnv(RECONCILE_DAYS, DEFAULT_RECONCILE_DAYS));
+  }
+
   S3Client getS3Client() {
     if (s3Client == null) {
-      s3Client = S3Client.builder().region(Region.of(System.getenv("AWS_REGION"))).httpClientBuilder(UrlConnectionHttpClient.builder()).build();
+      String directory = getEnv(REPLAY_DIRECTORY, null);
+      if (directory != null) {
+        s3Client = new FileS3Client(Path.of(directory));
+      } else {
+        s3Client = S3Client.builder().region(Region.of(System.getenv("AWS_REGION"))).httpClientBuilder(UrlConnectionHttpClient.builder()).build();
+      }
     }
     return s3Client;
   }
@@ -38,9 +376,32 @@ public class Handler implements RequestHandler<Void, Void> {
   }
 
   @Override
-  public Void handleRequest(Void input, Context context) {
-    new StockCollector(context.getLogger(), this).collect();
+  public Void handleRequest(CollectRequest input, Context context) {
+    new StockCollector(context.getLogger(), this, Deadline.of(context, getCheckpointReserve())).collect(input == null ? new CollectRequest() : input);
     return null;
   }
 
+  boolean isCollectBySector() {
+    return Boolean.parseBoolean(getEnv(COLLECT_BY_SECTOR, Boolean.FALSE.toString()));
+  }
+
+  private HttpClient newHttpClient() {
+    int threads = getEnv(HTTP_EXECUTOR_THREADS, DEFAULT_HTTP_EXECUTOR_THREADS);
+    httpExecutor = threads > 0 ? Executors.newFixedThreadPool(threads) : Executors.newVirtualThreadPerTaskExecutor();
+    return HttpClient.newBuilder().version(getHttpVersion())
+        .connectTimeout(Duration.ofSeconds(getEnv(HTTP_CONNECT_TIMEOUT_SECONDS, DEFAULT_HTTP_CONNECT_TIMEOUT_SECONDS))).followRedirects(Redirect.NORMAL)
+        .executor(httpExecutor).build();
+  }
+
+  private HttpTransport newNasdaqTransport() {
+    int concurrency = getNasdaqConcurrency();
+    CircuitBreaker circuitBreaker = new CircuitBreaker(getEnv(NASDAQ_BREAKER_THRESHOLD, DEFAULT_NASDAQ_BREAKER_THRESHOLD),
+        Duration.ofSeconds(getEnv(NASDAQ_BREAKER_OPEN_SECONDS, DEFAULT_NASDAQ_BREAKER_OPEN_SECONDS)));
+    return new HttpTransport(Metrics.NASDAQ, getHttpClient(), new RateLimiter(getNasdaqRate(), concurrency), concurrency,
+        Duration.ofSeconds(getEnv(NASDAQ_TIMEOUT_SECONDS, DEFAULT_NASDAQ_TIMEOUT_SECONDS)), getEnv(NASDAQ_MAX_ATTEMPTS, DEFAULT_NASDAQ_MAX_ATTEMPTS),
+        Duration.ofMillis(getEnv(NASDAQ_BACKOFF_MILLIS, DEFAULT_NASDAQ_BACKOFF_MILLIS)),
+        Duration.ofMillis(getEnv(NASDAQ_MAX_BACKOFF_MILLIS, DEFAULT_NASDAQ_MAX_BACKOFF_MILLIS)), circuitBreaker,
+        Boolean.parseBoolean(getEnv(NASDAQ_COMPRESSION, Boolean.TRUE.toString())));
+  }
+
 }
@@ -0,0 +1,78 @@
+package dev.rkoch.aws.stock.collector;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.Properties;
+import java.util.TreeMap;
+import dev.rkoch.aws.stock.collector.store.ObjectStore;
+
+public class LayoutManifest {
+
+  private static final String KEY = "state/layout/manifest.properties";
+
+  private static final String MONTHLY_KEY = "compacted/stock/month=%s/data.parquet";
+
+  private static final String PARQUET_KEY = "raw/stock/localDate=%s/data.parquet";
+
+  public static String getKey(final YearMonth month) {
+    return MONTHLY_KEY.formatted(month);
+  }
+
+  public static LayoutManifest none() {
+    return new LayoutManifest(null);
+  }
+
+  private final ObjectStore objectStore;
+
+  private final TreeMap<YearMonth, String> months = new TreeMap<>();
+
+  public LayoutManifest(ObjectStore objectStore) {
+    this.objectStore = objectStore;
+    byte[] bytes = objectStore == null ? null : objectStore.get(KEY);
+    if (bytes != null) {
+      Properties properties = new Properties();
+      try {
+        properties.load(new ByteArrayInputStream(bytes));
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+      properties.forEach((month, key) -> months.put(YearMonth.parse((String) month), (String) key));
+    }
+  }
+
+  public synchronized void add(final YearMonth month) {
+    months.put(month, getKey(month));
+    Properties properties = new Properties();
+    months.forEach((compacted, key) -> properties.setProperty(compacted.toString(), key));
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try {
+      properties.store(bytes, null);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    objectStore.put(KEY, bytes.toByteArray());
+  }
+
+  public synchronized String get(final YearMonth month) {
+    return months.get(month);
+  }
+
+  public synchronized String getPartitionKey(final Shard shard, final LocalDate date) {
+    String key = shard.getKey(date);
+    YearMonth month = YearMonth.from(date);
+    return months.containsKey(month) && key.equals(PARQUET_KEY.formatted(date)) ? months.get(month) : key;
+  }
+
+  public synchronized YearMonth getLastMonth() {
+    return months.isEmpty() ? null : months.lastKey();
+  }
+
+  public synchronized boolean isCompacted(final YearMonth month) {
+    return months.containsKey(month);
+  }
+
+}
@@ -0,0 +1,78 @@
+package dev.rkoch.aws.stock.collector;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Properties;
+import java.util.UUID;
+import dev.rkoch.aws.stock.collector.store.ObjectStore;
+
+public class Lease implements AutoCloseable {
+
+  private static final String KEY = "state/lease/%s.properties";
+
+  private static final String EXPIRES_AT = "expiresAt";
+
+  private static final String OWNER = "owner";
+
+  private static Properties load(final byte[] bytes) {
+    Properties properties = new Properties();
+    if (bytes != null) {
+      try {
+        properties.load(new ByteArrayInputStream(bytes));
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    }
+    return properties;
+  }
+
+  private final ObjectStore objectStore;
+
+  private final String key;
+
+  private final Duration duration;
+
+  private final String owner = UUID.randomUUID().toString();
+
+  private boolean held;
+
+  public Lease(ObjectStore objectStore, String name, Duration duration) {
+    this.objectStore = objectStore;
+    this.key = KEY.formatted(name);
+    this.duration = duration;
+  }
+
+  public synchronized boolean acquire() {
+    String eTag = objectStore.getETag(key);
+    if (eTag != null) {
+      String expiresAt = load(objectStore.get(key)).getProperty(EXPIRES_AT);
+      if (expiresAt != null && Instant.parse(expiresAt).isAfter(Instant.now())) {
+        return false;
+      }
+    }
+    Properties properties = new Properties();
+    properties.setProperty(EXPIRES_AT, Instant.now().plus(duration).toString());
+    properties.setProperty(OWNER, owner);
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try {
+      properties.store(bytes, null);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    held = objectStore.compareAndPut(key, bytes.toByteArray(), eTag);
+    return held;
+  }
+
+  @Override
+  public synchronized void close() {
+    if (held && owner.equals(load(objectStore.get(key)).getProperty(OWNER))) {
+      objectStore.delete(key);
+    }
+    held = false;
+  }
+
+}
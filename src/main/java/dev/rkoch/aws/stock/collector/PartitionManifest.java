@@ -0,0 +1,67 @@
+package dev.rkoch.aws.stock.collector;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.LocalDate;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+import dev.rkoch.aws.stock.collector.store.ObjectStore;
+
+public class PartitionManifest {
+
+  private static final String KEY = "state/manifest/%s.properties";
+
+  private final ObjectStore objectStore;
+
+  private final String key;
+
+  private final Map<LocalDate, Long> hashes = new TreeMap<>();
+
+  private boolean changed;
+
+  public PartitionManifest(ObjectStore objectStore, String name) {
+    this.objectStore = objectStore;
+    this.key = KEY.formatted(name);
+    byte[] bytes = objectStore.get(key);
+    if (bytes != null) {
+      Properties properties = new Properties();
+      try {
+        properties.load(new ByteArrayInputStream(bytes));
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+      properties.forEach((date, hash) -> hashes.put(LocalDate.parse((String) date), Long.parseUnsignedLong((String) hash, 16)));
+    }
+  }
+
+  public synchronized Long get(final LocalDate date) {
+    return hashes.get(date);
+  }
+
+  public synchronized void put(final LocalDate date, final long hash) {
+    Long current = hashes.put(date, hash);
+    if (current == null || current != hash) {
+      changed = true;
+    }
+  }
+
+  public synchronized void save() {
+    if (!changed) {
+      return;
+    }
+    Properties properties = new Properties();
+    hashes.forEach((date, hash) -> properties.setProperty(date.toString(), Long.toHexString(hash)));
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try {
+      properties.store(bytes, null);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    objectStore.put(key, bytes.toByteArray());
+    changed = false;
+  }
+
+}
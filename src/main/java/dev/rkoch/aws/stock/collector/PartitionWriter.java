@@ -0,0 +1,132 @@
+package dev.rkoch.aws.stock.collector;
+
+import java.time.LocalDate;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.function.BiConsumer;
+import java.util.function.Supplier;
+import com.amazonaws.services.lambda.runtime.LambdaLogger;
+import com.amazonaws.services.lambda.runtime.logging.LogLevel;
+
+public class PartitionWriter implements AutoCloseable {
+
+  @FunctionalInterface
+  public interface Upload {
+
+    void write(LocalDate date, StockBatch batch) throws Exception;
+
+  }
+
+  private static class Pending {
+
+    private final LocalDate date;
+
+    private final Future<StockBatch> future;
+
+    private Pending(LocalDate date, Future<StockBatch> future) {
+      this.date = date;
+      this.future = future;
+    }
+
+  }
+
+  private final LambdaLogger logger;
+
+  private final Upload upload;
+
+  private final BiConsumer<LocalDate, StockBatch> committer;
+
+  private final Semaphore slots;
+
+  private final Deque<Pending> pending = new ArrayDeque<>();
+
+  private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+  private boolean failed;
+
+  public PartitionWriter(LambdaLogger logger, int maxPending, Upload upload, BiConsumer<LocalDate, StockBatch> committer) {
+    this.logger = logger;
+    this.slots = new Semaphore(Math.max(1, maxPending));
+    this.upload = upload;
+    this.committer = committer;
+  }
+
+  @Override
+  public void close() {
+    RuntimeException failure = null;
+    try {
+      flush();
+    } catch (RuntimeException e) {
+      failure = e;
+    }
+    try {
+      executor.close();
+    } catch (RuntimeException e) {
+      if (failure == null) {
+        failure = e;
+      } else {
+        failure.addSuppressed(e);
+      }
+    }
+    if (failure != null) {
+      throw failure;
+    }
+  }
+
+  private void commit(final boolean wait) {
+    while (!failed && !pending.isEmpty() && (wait || pending.peek().future.isDone())) {
+      Pending head = pending.poll();
+      try {
+        committer.accept(head.date, head.future.get());
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        failed = true;
+      } catch (ExecutionException e) {
+        logger.log("%s %s".formatted(head.date, e.getCause().getMessage()), LogLevel.ERROR);
+        failed = true;
+      } catch (RuntimeException e) {
+        failed = true;
+        throw e;
+      }
+    }
+  }
+
+  public boolean flush() {
+    commit(true);
+    return !failed;
+  }
+
+  public boolean isFailed() {
+    return failed;
+  }
+
+  public boolean submit(final LocalDate date, final Supplier<StockBatch> batch) {
+    if (failed) {
+      return false;
+    }
+    try {
+      slots.acquire();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      failed = true;
+      return false;
+    }
+    pending.add(new Pending(date, executor.submit(() -> {
+      try {
+        StockBatch stockBatch = batch.get();
+        upload.write(date, stockBatch);
+        return stockBatch;
+      } finally {
+        slots.release();
+      }
+    })));
+    commit(false);
+    return !failed;
+  }
+
+}
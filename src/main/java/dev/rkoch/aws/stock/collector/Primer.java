@@ -0,0 +1,89 @@
+package dev.rkoch.aws.stock.collector;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import dev.rkoch.aws.stock.collector.api.NasdaqResponseParser;
+import dev.rkoch.aws.stock.collector.metrics.Metrics;
+
+public class Primer {
+
+  private static final String[] CLASS_NAMES = {"blue.strategic.parquet.ParquetReader", "blue.strategic.parquet.ParquetWriter",
+      "com.crazzyghost.alphavantage.AlphaVantage", "com.crazzyghost.alphavantage.Config", "com.crazzyghost.alphavantage.timeseries.response.TimeSeriesResponse",
+      "dev.rkoch.aws.stock.collector.api.AlphaVantageApi", "dev.rkoch.aws.stock.collector.api.AlphaVantageScheduler",
+      "org.apache.hadoop.conf.Configuration", "org.apache.parquet.column.ParquetProperties", "org.apache.parquet.hadoop.ParquetFileReader",
+      "org.apache.parquet.hadoop.ColumnChunkPageWriteStore", "org.apache.parquet.hadoop.ParquetFileWriter", "org.apache.parquet.hadoop.ParquetWriter",
+      "org.apache.parquet.hadoop.metadata.CompressionCodecName", "software.amazon.awssdk.core.sync.RequestBody",
+      "software.amazon.awssdk.services.s3.model.GetObjectRequest", "software.amazon.awssdk.services.s3.model.PutObjectRequest"};
+
+  private static final int ITERATIONS = 500;
+
+  private static final String NASDAQ_RESPONSE =
+      "{\"data\":{\"symbol\":\"PRIME\",\"totalRecords\":2,\"tradesTable\":{\"asOf\":null,\"headers\":{\"date\":\"Date\",\"close\":\"Close/Last\"},\"rows\":["
+          + "{\"date\":\"01/03/2025\",\"close\":\"$1.25\",\"volume\":\"1,000\",\"open\":\"$1.00\",\"high\":\"$1.50\",\"low\":\"$0.75\"},"
+          + "{\"date\":\"01/02/2025\",\"close\":\"$1,001.25\",\"volume\":\"N/A\",\"open\":\"$1.00\",\"high\":\"$1,002.50\",\"low\":\"$0.75\"}]}},"
+          + "\"message\":null,\"status\":{\"rCode\":200,\"bCodeMessage\":null,\"developerMessage\":null}}";
+
+  private static final String SYMBOL = "PRIME";
+
+  public void prime() {
+    loadClasses();
+    SymbolDictionary symbols = SymbolDictionary.symbols();
+    int size = symbols.size();
+    try {
+      primeJson();
+      primeParquet();
+    } finally {
+      symbols.truncate(size);
+    }
+    primeMetrics();
+  }
+
+  private void loadClasses() {
+    ClassLoader classLoader = Primer.class.getClassLoader();
+    for (String className : CLASS_NAMES) {
+      try {
+        Class.forName(className, true, classLoader);
+      } catch (ClassNotFoundException | LinkageError e) {
+        continue;
+      }
+    }
+  }
+
+  private void primeJson() {
+    NasdaqResponseParser parser = new NasdaqResponseParser();
+    byte[] bytes = NASDAQ_RESPONSE.getBytes(StandardCharsets.UTF_8);
+    try {
+      for (int i = 0; i < ITERATIONS; i++) {
+        parser.parse(new ByteArrayInputStream(bytes), SYMBOL).getHistory();
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  private void primeMetrics() {
+    Metrics metrics = new Metrics();
+    metrics.stop(Metrics.COLLECT_INSERT, metrics.start());
+    metrics.toEmf();
+  }
+
+  private void primeParquet() {
+    StockBatch batch = new StockBatch(ITERATIONS);
+    for (int i = 0; i < ITERATIONS; i++) {
+      batch.add(i, SYMBOL + i % 16, i, i, i, i, i);
+    }
+    try {
+      StockReader.read(StockWriter.write(batch));
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    StockRecord record = batch.getRecord(0);
+    record.getDehydrator().dehydrate(record, (name, value) -> {
+    });
+    StockBatch.of(List.of(record));
+  }
+
+}
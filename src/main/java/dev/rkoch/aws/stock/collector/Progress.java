@@ -0,0 +1,28 @@
+package dev.rkoch.aws.stock.collector;
+
+import java.time.LocalDate;
+import dev.rkoch.aws.collector.utils.State;
+
+public interface Progress {
+
+  static Progress of(final State state) {
+    return new Progress() {
+
+      @Override
+      public LocalDate getLastAddedStockDate() {
+        return state.getLastAddedStockDate();
+      }
+
+      @Override
+      public void setLastAddedStockDate(final LocalDate date) {
+        state.setLastAddedStockDate(date);
+      }
+
+    };
+  }
+
+  LocalDate getLastAddedStockDate();
+
+  void setLastAddedStockDate(LocalDate date);
+
+}
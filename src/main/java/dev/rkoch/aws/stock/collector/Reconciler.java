@@ -0,0 +1,219 @@
+package dev.rkoch.aws.stock.collector;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import com.amazonaws.services.lambda.runtime.LambdaLogger;
+import com.amazonaws.services.lambda.runtime.logging.LogLevel;
+import dev.rkoch.aws.stock.collector.metrics.Metrics;
+import dev.rkoch.aws.stock.collector.store.ObjectStore;
+
+public class Reconciler {
+
+  private static class CompactedMonth {
+
+    private final String key;
+
+    private final Map<LocalDate, Long> hashes = new TreeMap<>();
+
+    private StockBatch batch;
+
+    private boolean changed;
+
+    private CompactedMonth(String key, StockBatch batch) {
+      this.key = key;
+      this.batch = batch;
+    }
+
+  }
+
+  private static StockBatch filter(final StockBatch batch, final int epochDay, final boolean matching) {
+    StockBatch rows = new StockBatch(batch.size());
+    for (int i = 0; i < batch.size(); i++) {
+      if ((batch.getEpochDay(i) == epochDay) == matching) {
+        rows.add(batch, i);
+      }
+    }
+    return rows;
+  }
+
+  private final LambdaLogger logger;
+
+  private final ObjectStore objectStore;
+
+  private final LayoutManifest layout;
+
+  private final BulkLoader loader;
+
+  private final Deadline deadline;
+
+  private final Metrics metrics;
+
+  private LocalDate reconciledFrom;
+
+  public Reconciler(LambdaLogger logger, ObjectStore objectStore, LayoutManifest layout, BulkLoader loader, Deadline deadline, Metrics metrics) {
+    this.logger = logger;
+    this.objectStore = objectStore;
+    this.layout = layout;
+    this.loader = loader;
+    this.deadline = deadline;
+    this.metrics = metrics;
+  }
+
+  private void flush(final CompactedMonth month, final PartitionManifest manifest) throws IOException {
+    if (month == null) {
+      return;
+    }
+    if (month.changed) {
+      StockWriter.write(objectStore, month.key, month.batch.sortBySymbol());
+      metrics.count(Metrics.RECORDS_WRITTEN, month.batch.size());
+    }
+    month.hashes.forEach(manifest::put);
+  }
+
+  public LocalDate getReconciledFrom() {
+    return reconciledFrom;
+  }
+
+  private boolean isComplete(final int epochDay, final StockHistory[] histories) {
+    for (StockHistory history : histories) {
+      if (history.indexOf(epochDay) < 0) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private StockBatch merge(final int epochDay, final List<String> symbols, final StockHistory[] histories, final StockBatch written) {
+    SymbolDictionary dictionary = SymbolDictionary.symbols();
+    int[] symbolCodes = new int[symbols.size()];
+    for (int i = 0; i < symbols.size(); i++) {
+      symbolCodes[i] = dictionary.code(symbols.get(i));
+    }
+    int[] writtenIndexes = new int[dictionary.size()];
+    Arrays.fill(writtenIndexes, -1);
+    for (int i = 0; i < written.size(); i++) {
+      writtenIndexes[written.getSymbolCode(i)] = i;
+    }
+    boolean[] merged = new boolean[writtenIndexes.length];
+    StockBatch batch = new StockBatch(Math.max(symbols.size(), written.size()));
+    for (int i = 0; i < symbols.size(); i++) {
+      int symbolCode = symbolCodes[i];
+      int index = histories[i].indexOf(epochDay);
+      if (index >= 0) {
+        batch.add(histories[i], index);
+      } else if (writtenIndexes[symbolCode] >= 0) {
+        batch.add(written, writtenIndexes[symbolCode]);
+      } else {
+        batch.add(epochDay, symbolCode, 0, 0, 0, 0, 0);
+      }
+      merged[symbolCode] = true;
+    }
+    for (int i = 0; i < written.size(); i++) {
+      if (!merged[written.getSymbolCode(i)]) {
+        batch.add(written, i);
+      }
+    }
+    return batch;
+  }
+
+  public boolean reconcile(final Shard shard, final List<LocalDate> dates) {
+    if (dates.isEmpty() || shard.getSymbols().isEmpty()) {
+      return true;
+    }
+    List<String> symbols = shard.getSymbols();
+    PartitionManifest manifest = new PartitionManifest(objectStore, shard.getName());
+    try {
+      long start = metrics.start();
+      StockHistory[] histories = loader.getHistories(symbols, dates.getFirst(), dates.getLast().plusDays(1));
+      metrics.stop(Metrics.COLLECT_GET_HISTORIES, start);
+      CompactedMonth month = null;
+      for (LocalDate date : dates) {
+        if (deadline.isNear()) {
+          logger.log("%s %s reconcile stopped before deadline".formatted(date, shard.getName()), LogLevel.WARN);
+          flush(month, manifest);
+          return false;
+        }
+        String key = layout.getPartitionKey(shard, date);
+        if (month != null && !month.key.equals(key)) {
+          flush(month, manifest);
+          month = null;
+        }
+        if (key.equals(shard.getKey(date))) {
+          reconcile(shard, date, symbols, histories, manifest);
+        } else {
+          if (month == null) {
+            month = new CompactedMonth(key, objectStore.getETag(key) == null ? null : StockReader.read(objectStore, key));
+          }
+          reconcile(shard, date, symbols, histories, manifest, month);
+        }
+      }
+      flush(month, manifest);
+      return true;
+    } catch (Exception e) {
+      logger.log("%s %s".formatted(shard.getName(), e.getMessage()), LogLevel.ERROR);
+      return false;
+    } finally {
+      manifest.save();
+    }
+  }
+
+  private void reconcile(final Shard shard, final LocalDate date, final List<String> symbols, final StockHistory[] histories, final PartitionManifest manifest)
+      throws Exception {
+    int epochDay = (int) date.toEpochDay();
+    Long hash = manifest.get(date);
+    if (hash != null && isComplete(epochDay, histories) && loader.getBatch(epochDay, symbols, histories).getContentHash() == hash) {
+      metrics.hit(Metrics.RECONCILE_UNCHANGED, true);
+      return;
+    }
+    String key = shard.getKey(date);
+    if (objectStore.getETag(key) == null) {
+      return;
+    }
+    StockBatch written = StockReader.read(objectStore, key);
+    long writtenHash = written.getContentHash();
+    StockBatch batch = merge(epochDay, symbols, histories, written);
+    long batchHash = batch.getContentHash();
+    metrics.hit(Metrics.RECONCILE_UNCHANGED, batchHash == writtenHash);
+    if (batchHash != writtenHash) {
+      StockWriter.write(objectStore, key, batch);
+      metrics.count(Metrics.RECORDS_WRITTEN, batch.size());
+      if (reconciledFrom == null || date.isBefore(reconciledFrom)) {
+        reconciledFrom = date;
+      }
+      logger.log("%s %s reconciled".formatted(date, shard.getName()), LogLevel.INFO);
+    }
+    manifest.put(date, batchHash);
+  }
+
+  private void reconcile(final Shard shard, final LocalDate date, final List<String> symbols, final StockHistory[] histories, final PartitionManifest manifest,
+      final CompactedMonth month) {
+    int epochDay = (int) date.toEpochDay();
+    Long hash = manifest.get(date);
+    if (hash != null && isComplete(epochDay, histories) && loader.getBatch(epochDay, symbols, histories).getContentHash() == hash) {
+      metrics.hit(Metrics.RECONCILE_UNCHANGED, true);
+      return;
+    }
+    if (month.batch == null) {
+      logger.log("%s %s compacted without data, not reconciled".formatted(date, shard.getName()), LogLevel.WARN);
+      return;
+    }
+    StockBatch written = filter(month.batch, epochDay, true);
+    StockBatch batch = merge(epochDay, symbols, histories, written);
+    boolean unchanged = batch.sortBySymbol().getContentHash() == written.getContentHash();
+    metrics.hit(Metrics.RECONCILE_UNCHANGED, unchanged);
+    if (!unchanged) {
+      month.batch = filter(month.batch, epochDay, false).addAll(batch);
+      month.changed = true;
+      if (reconciledFrom == null || date.isBefore(reconciledFrom)) {
+        reconciledFrom = date;
+      }
+      logger.log("%s %s reconciled in %s".formatted(date, shard.getName(), month.key), LogLevel.INFO);
+    }
+    month.hashes.put(date, batch.getContentHash());
+  }
+
+}
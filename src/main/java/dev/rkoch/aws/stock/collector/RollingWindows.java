@@ -0,0 +1,220 @@
+package dev.rkoch.aws.stock.collector;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+public class RollingWindows {
+
+  static final int SHORT_WINDOW = 20;
+
+  static final int LONG_WINDOW = 50;
+
+  private static final int MAGIC = 0x52574e31;
+
+  private static final double ANNUALIZATION = Math.sqrt(252);
+
+  public static RollingWindows decode(final byte[] bytes) throws IOException {
+    try (DataInputStream in = new DataInputStream(new GZIPInputStream(new ByteArrayInputStream(bytes)))) {
+      if (in.readInt() != MAGIC) {
+        throw new IOException("unexpected rolling windows format");
+      }
+      int lastEpochDay = in.readInt();
+      int count = in.readInt();
+      RollingWindows windows = new RollingWindows(SymbolDictionary.symbols().size());
+      windows.lastEpochDay = lastEpochDay;
+      for (int i = 0; i < count; i++) {
+        int s = windows.slotOf(SymbolDictionary.symbols().code(in.readUTF()));
+        windows.observations[s] = in.readLong();
+        for (int j = 0; j < LONG_WINDOW; j++) {
+          windows.closes[s * LONG_WINDOW + j] = in.readDouble();
+        }
+        for (int j = 0; j < SHORT_WINDOW; j++) {
+          windows.returns[s * SHORT_WINDOW + j] = in.readDouble();
+          windows.typicalVolumes[s * SHORT_WINDOW + j] = in.readDouble();
+          windows.volumes[s * SHORT_WINDOW + j] = in.readDouble();
+        }
+        windows.recompute(s);
+      }
+      return windows;
+    }
+  }
+
+  private long[] observations;
+  private double[] closes;
+  private double[] returns;
+  private double[] typicalVolumes;
+  private double[] volumes;
+  private double[] shortCloseSum;
+  private double[] longCloseSum;
+  private double[] returnSum;
+  private double[] returnSquareSum;
+  private double[] typicalVolumeSum;
+  private double[] volumeSum;
+  private int lastEpochDay = Integer.MIN_VALUE;
+
+  public RollingWindows(int capacity) {
+    int initialCapacity = Math.max(16, capacity);
+    observations = new long[initialCapacity];
+    closes = new double[initialCapacity * LONG_WINDOW];
+    returns = new double[initialCapacity * SHORT_WINDOW];
+    typicalVolumes = new double[initialCapacity * SHORT_WINDOW];
+    volumes = new double[initialCapacity * SHORT_WINDOW];
+    shortCloseSum = new double[initialCapacity];
+    longCloseSum = new double[initialCapacity];
+    returnSum = new double[initialCapacity];
+    returnSquareSum = new double[initialCapacity];
+    typicalVolumeSum = new double[initialCapacity];
+    volumeSum = new double[initialCapacity];
+  }
+
+  public byte[] encode() throws IOException {
+    int count = 0;
+    for (long observation : observations) {
+      count += observation > 0 ? 1 : 0;
+    }
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream(64 + count * (LONG_WINDOW + 3 * SHORT_WINDOW + 2) * 8);
+    try (DataOutputStream out = new DataOutputStream(new GZIPOutputStream(bytes))) {
+      out.writeInt(MAGIC);
+      out.writeInt(lastEpochDay);
+      out.writeInt(count);
+      for (int s = 0; s < observations.length; s++) {
+        if (observations[s] == 0) {
+          continue;
+        }
+        out.writeUTF(SymbolDictionary.symbols().get(s));
+        out.writeLong(observations[s]);
+        for (int j = 0; j < LONG_WINDOW; j++) {
+          out.writeDouble(closes[s * LONG_WINDOW + j]);
+        }
+        for (int j = 0; j < SHORT_WINDOW; j++) {
+          out.writeDouble(returns[s * SHORT_WINDOW + j]);
+          out.writeDouble(typicalVolumes[s * SHORT_WINDOW + j]);
+          out.writeDouble(volumes[s * SHORT_WINDOW + j]);
+        }
+      }
+    }
+    return bytes.toByteArray();
+  }
+
+  public int getLastEpochDay() {
+    return lastEpochDay;
+  }
+
+  private void grow(final int minCapacity) {
+    int capacity = Math.max(minCapacity, observations.length * 2);
+    observations = Arrays.copyOf(observations, capacity);
+    closes = Arrays.copyOf(closes, capacity * LONG_WINDOW);
+    returns = Arrays.copyOf(returns, capacity * SHORT_WINDOW);
+    typicalVolumes = Arrays.copyOf(typicalVolumes, capacity * SHORT_WINDOW);
+    volumes = Arrays.copyOf(volumes, capacity * SHORT_WINDOW);
+    shortCloseSum = Arrays.copyOf(shortCloseSum, capacity);
+    longCloseSum = Arrays.copyOf(longCloseSum, capacity);
+    returnSum = Arrays.copyOf(returnSum, capacity);
+    returnSquareSum = Arrays.copyOf(returnSquareSum, capacity);
+    typicalVolumeSum = Arrays.copyOf(typicalVolumeSum, capacity);
+    volumeSum = Arrays.copyOf(volumeSum, capacity);
+  }
+
+  public boolean isEmpty() {
+    return lastEpochDay == Integer.MIN_VALUE;
+  }
+
+  private void recompute(final int s) {
+    long n = observations[s];
+    shortCloseSum[s] = 0;
+    longCloseSum[s] = 0;
+    for (long k = Math.max(0, n - LONG_WINDOW); k < n; k++) {
+      double close = closes[s * LONG_WINDOW + (int) (k % LONG_WINDOW)];
+      longCloseSum[s] += close;
+      if (k >= n - SHORT_WINDOW) {
+        shortCloseSum[s] += close;
+      }
+    }
+    returnSum[s] = 0;
+    returnSquareSum[s] = 0;
+    for (long k = Math.max(0, n - 1 - SHORT_WINDOW); k < n - 1; k++) {
+      double value = returns[s * SHORT_WINDOW + (int) (k % SHORT_WINDOW)];
+      returnSum[s] += value;
+      returnSquareSum[s] += value * value;
+    }
+    typicalVolumeSum[s] = 0;
+    volumeSum[s] = 0;
+    for (long k = Math.max(0, n - SHORT_WINDOW); k < n; k++) {
+      typicalVolumeSum[s] += typicalVolumes[s * SHORT_WINDOW + (int) (k % SHORT_WINDOW)];
+      volumeSum[s] += volumes[s * SHORT_WINDOW + (int) (k % SHORT_WINDOW)];
+    }
+  }
+
+  private int slotOf(final int symbolCode) {
+    if (symbolCode >= observations.length) {
+      grow(symbolCode + 1);
+    }
+    return symbolCode;
+  }
+
+  public void update(final StockBatch batch, final int index, final DerivedBatch derived) {
+    double close = batch.getClose(index);
+    long volume = batch.getVolume(index);
+    if (close == 0 && volume == 0) {
+      return;
+    }
+    int s = slotOf(batch.getSymbolCode(index));
+    long n = observations[s];
+    double dailyReturn = Double.NaN;
+    if (n > 0) {
+      double previous = closes[s * LONG_WINDOW + (int) ((n - 1) % LONG_WINDOW)];
+      if (previous != 0) {
+        dailyReturn = close / previous - 1;
+      }
+      long k = n - 1;
+      int slot = s * SHORT_WINDOW + (int) (k % SHORT_WINDOW);
+      if (k >= SHORT_WINDOW) {
+        returnSum[s] -= returns[slot];
+        returnSquareSum[s] -= returns[slot] * returns[slot];
+      }
+      returns[slot] = Double.isNaN(dailyReturn) ? 0 : dailyReturn;
+      returnSum[s] += returns[slot];
+      returnSquareSum[s] += returns[slot] * returns[slot];
+    }
+    int closeSlot = s * LONG_WINDOW + (int) (n % LONG_WINDOW);
+    if (n >= LONG_WINDOW) {
+      longCloseSum[s] -= closes[closeSlot];
+    }
+    if (n >= SHORT_WINDOW) {
+      shortCloseSum[s] -= closes[s * LONG_WINDOW + (int) ((n - SHORT_WINDOW) % LONG_WINDOW)];
+    }
+    closes[closeSlot] = close;
+    longCloseSum[s] += close;
+    shortCloseSum[s] += close;
+    int volumeSlot = s * SHORT_WINDOW + (int) (n % SHORT_WINDOW);
+    if (n >= SHORT_WINDOW) {
+      typicalVolumeSum[s] -= typicalVolumes[volumeSlot];
+      volumeSum[s] -= volumes[volumeSlot];
+    }
+    typicalVolumes[volumeSlot] = (batch.getHigh(index) + batch.getLow(index) + close) / 3 * volume;
+    volumes[volumeSlot] = volume;
+    typicalVolumeSum[s] += typicalVolumes[volumeSlot];
+    volumeSum[s] += volume;
+    observations[s] = ++n;
+    if (n % LONG_WINDOW == 0) {
+      recompute(s);
+    }
+    double smaShort = n >= SHORT_WINDOW ? shortCloseSum[s] / SHORT_WINDOW : Double.NaN;
+    double smaLong = n >= LONG_WINDOW ? longCloseSum[s] / LONG_WINDOW : Double.NaN;
+    double volatility = Double.NaN;
+    if (n > SHORT_WINDOW) {
+      double variance = (returnSquareSum[s] - returnSum[s] * returnSum[s] / SHORT_WINDOW) / (SHORT_WINDOW - 1);
+      volatility = Math.sqrt(Math.max(0, variance)) * ANNUALIZATION;
+    }
+    double vwap = n >= SHORT_WINDOW && volumeSum[s] > 0 ? typicalVolumeSum[s] / volumeSum[s] : Double.NaN;
+    derived.add(batch.getEpochDay(index), batch.getSymbolCode(index), close, dailyReturn, smaShort, smaLong, volatility, vwap);
+    lastEpochDay = Math.max(lastEpochDay, batch.getEpochDay(index));
+  }
+
+}
@@ -0,0 +1,61 @@
+package dev.rkoch.aws.stock.collector;
+
+import java.time.LocalDate;
+import java.util.List;
+
+public class Shard {
+
+  public static String toPartitionValue(final String value) {
+    return value == null || value.isBlank() ? "unknown" : value.strip().replaceAll("[^A-Za-z0-9_-]+", "_");
+  }
+
+  private final String name;
+
+  private final List<String> symbols;
+
+  private final String keyFormat;
+
+  private final Progress progress;
+
+  private final LocalDate fromDate;
+
+  private final LocalDate toDate;
+
+  public Shard(String name, List<String> symbols, String keyFormat, Progress progress) {
+    this(name, symbols, keyFormat, progress, null, null);
+  }
+
+  public Shard(String name, List<String> symbols, String keyFormat, Progress progress, LocalDate fromDate, LocalDate toDate) {
+    this.name = name;
+    this.symbols = List.copyOf(symbols);
+    this.keyFormat = keyFormat;
+    this.progress = progress;
+    this.fromDate = fromDate;
+    this.toDate = toDate;
+  }
+
+  public LocalDate getFromDate() {
+    return fromDate;
+  }
+
+  public String getKey(final LocalDate date) {
+    return keyFormat.formatted(date);
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  public Progress getProgress() {
+    return progress;
+  }
+
+  public List<String> getSymbols() {
+    return symbols;
+  }
+
+  public LocalDate getToDate() {
+    return toDate;
+  }
+
+}
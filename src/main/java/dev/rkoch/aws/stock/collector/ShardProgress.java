@@ -0,0 +1,63 @@
+package dev.rkoch.aws.stock.collector;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.LocalDate;
+import java.util.Properties;
+import dev.rkoch.aws.stock.collector.store.ObjectStore;
+
+public class ShardProgress implements Progress {
+
+  private static final String KEY = "state/progress/%s.properties";
+
+  private static final String LAST_ADDED_STOCK_DATE = "lastAddedStockDate";
+
+  private final ObjectStore objectStore;
+
+  private final String key;
+
+  private final Properties properties = new Properties();
+
+  public ShardProgress(ObjectStore objectStore, String name) {
+    this.objectStore = objectStore;
+    this.key = KEY.formatted(name);
+    byte[] bytes = objectStore.get(key);
+    if (bytes != null) {
+      try {
+        properties.load(new ByteArrayInputStream(bytes));
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    }
+  }
+
+  public synchronized void delete() {
+    properties.clear();
+    objectStore.delete(key);
+  }
+
+  @Override
+  public synchronized LocalDate getLastAddedStockDate() {
+    String value = properties.getProperty(LAST_ADDED_STOCK_DATE);
+    return value == null ? null : LocalDate.parse(value);
+  }
+
+  private void save() {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try {
+      properties.store(bytes, null);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    objectStore.put(key, bytes.toByteArray());
+  }
+
+  @Override
+  public synchronized void setLastAddedStockDate(final LocalDate date) {
+    properties.setProperty(LAST_ADDED_STOCK_DATE, date.toString());
+    save();
+  }
+
+}
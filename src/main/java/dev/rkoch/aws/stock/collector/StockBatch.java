@@ -0,0 +1,456 @@
+package dev.rkoch.aws.stock.collector;
+
+import java.time.LocalDate;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.IntStream;
+import org.apache.parquet.column.ColumnDescriptor;
+import org.apache.parquet.column.ColumnReadStore;
+import org.apache.parquet.column.ColumnReader;
+import org.apache.parquet.column.Dictionary;
+import org.apache.parquet.column.impl.ColumnReadStoreImpl;
+import org.apache.parquet.column.page.PageReadStore;
+import org.apache.parquet.io.api.Binary;
+import org.apache.parquet.io.api.Converter;
+import org.apache.parquet.io.api.GroupConverter;
+import org.apache.parquet.io.api.PrimitiveConverter;
+import org.apache.parquet.schema.MessageType;
+import blue.strategic.parquet.Dehydrator;
+import blue.strategic.parquet.Hydrator;
+import dev.rkoch.aws.s3.parquet.ParquetRecord;
+
+public class StockBatch {
+
+  public static class Row implements ParquetRecord<Row> {
+
+    private static final MessageType SCHEMA = new StockRecord().getSchema();
+
+    private final StockBatch batch;
+
+    private final int index;
+
+    public Row() {
+      this(null, -1);
+    }
+
+    private Row(StockBatch batch, int index) {
+      this.batch = batch;
+      this.index = index;
+    }
+
+    public StockBatch getBatch() {
+      return batch;
+    }
+
+    @Override
+    public Dehydrator<Row> getDehydrator() {
+      return (row, valueWriter) -> {
+        StockBatch batch = row.batch;
+        int i = row.index;
+        valueWriter.write(StockRecord.LOCAL_DATE, batch.epochDays[i]);
+        valueWriter.write(StockRecord.ID, batch.getSymbol(i));
+        valueWriter.write(StockRecord.CLOSE, batch.close[i]);
+        valueWriter.write(StockRecord.HIGH, batch.high[i]);
+        valueWriter.write(StockRecord.LOW, batch.low[i]);
+        valueWriter.write(StockRecord.OPEN, batch.open[i]);
+        valueWriter.write(StockRecord.VOLUME, batch.volume[i]);
+      };
+    }
+
+    @Override
+    public Hydrator<Row, Row> getHydrator() {
+      StockBatch target = new StockBatch(INITIAL_CAPACITY);
+      return new Hydrator<>() {
+
+        @Override
+        public Row add(Row row, String heading, Object value) {
+          int i = row.index;
+          switch (heading) {
+            case StockRecord.LOCAL_DATE:
+              target.epochDays[i] = (int) value;
+              return row;
+            case StockRecord.ID:
+              target.symbolCodes[i] = SymbolDictionary.symbols().code((String) value);
+              return row;
+            case StockRecord.CLOSE:
+              target.close[i] = (double) value;
+              return row;
+            case StockRecord.HIGH:
+              target.high[i] = (double) value;
+              return row;
+            case StockRecord.LOW:
+              target.low[i] = (double) value;
+              return row;
+            case StockRecord.OPEN:
+              target.open[i] = (double) value;
+              return row;
+            case StockRecord.VOLUME:
+              target.volume[i] = (long) value;
+              return row;
+            default:
+              throw new IllegalArgumentException("Unexpected value: " + heading);
+          }
+        }
+
+        @Override
+        public Row finish(Row row) {
+          return row;
+        }
+
+        @Override
+        public Row start() {
+          return new Row(target, target.addEmpty());
+        }
+
+      };
+    }
+
+    public int getIndex() {
+      return index;
+    }
+
+    @Override
+    public MessageType getSchema() {
+      return SCHEMA;
+    }
+
+  }
+
+  private class ColumnConverter extends GroupConverter {
+
+    private final PrimitiveConverter[] converters;
+
+    private final int[] rowEpochDays;
+
+    private final int[] rowSymbolCodes;
+
+    private int[] dictionaryCodes = new int[0];
+
+    private int index;
+
+    private ColumnConverter(MessageType schema, int rows) {
+      this.converters = new PrimitiveConverter[schema.getFieldCount()];
+      this.rowEpochDays = new int[rows];
+      this.rowSymbolCodes = new int[rows];
+      for (int i = 0; i < converters.length; i++) {
+        converters[i] = getConverter(schema.getFieldName(i));
+      }
+    }
+
+    @Override
+    public void end() {
+
+    }
+
+    @Override
+    public Converter getConverter(final int fieldIndex) {
+      return converters[fieldIndex];
+    }
+
+    private PrimitiveConverter getConverter(final String name) {
+      return switch (name) {
+        case StockRecord.LOCAL_DATE -> new PrimitiveConverter() {
+
+          @Override
+          public void addInt(final int value) {
+            rowEpochDays[index] = value;
+          }
+
+        };
+        case StockRecord.ID -> new PrimitiveConverter() {
+
+          @Override
+          public void addBinary(final Binary value) {
+            rowSymbolCodes[index] = SymbolDictionary.symbols().code(value.toStringUsingUTF8());
+          }
+
+          @Override
+          public void addValueFromDictionary(final int dictionaryId) {
+            rowSymbolCodes[index] = dictionaryCodes[dictionaryId];
+          }
+
+          @Override
+          public boolean hasDictionarySupport() {
+            return true;
+          }
+
+          @Override
+          public void setDictionary(final Dictionary dictionary) {
+            dictionaryCodes = new int[dictionary.getMaxId() + 1];
+            for (int i = 0; i < dictionaryCodes.length; i++) {
+              dictionaryCodes[i] = SymbolDictionary.symbols().code(dictionary.decodeToBinary(i).toStringUsingUTF8());
+            }
+          }
+
+        };
+        case StockRecord.CLOSE -> new PrimitiveConverter() {
+
+          @Override
+          public void addDouble(final double value) {
+            close[index] = value;
+          }
+
+        };
+        case StockRecord.HIGH -> new PrimitiveConverter() {
+
+          @Override
+          public void addDouble(final double value) {
+            high[index] = value;
+          }
+
+        };
+        case StockRecord.LOW -> new PrimitiveConverter() {
+
+          @Override
+          public void addDouble(final double value) {
+            low[index] = value;
+          }
+
+        };
+        case StockRecord.OPEN -> new PrimitiveConverter() {
+
+          @Override
+          public void addDouble(final double value) {
+            open[index] = value;
+          }
+
+        };
+        case StockRecord.VOLUME -> new PrimitiveConverter() {
+
+          @Override
+          public void addLong(final long value) {
+            volume[index] = value;
+          }
+
+        };
+        default -> throw new IllegalArgumentException("Unexpected column: " + name);
+      };
+    }
+
+    @Override
+    public void start() {
+
+    }
+
+  }
+
+  private static final int INITIAL_CAPACITY = 512;
+
+  private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+
+  private static final long FNV_PRIME = 0x100000001b3L;
+
+  public static StockBatch from(final List<Row> rows) {
+    return rows.isEmpty() ? new StockBatch(0) : rows.getFirst().getBatch();
+  }
+
+  private static long hash(final long hash, final long value) {
+    long result = hash;
+    for (int shift = 0; shift < Long.SIZE; shift += Byte.SIZE) {
+      result = (result ^ ((value >>> shift) & 0xff)) * FNV_PRIME;
+    }
+    return result;
+  }
+
+  public static StockBatch of(final List<StockRecord> records) {
+    StockBatch batch = new StockBatch(records.size());
+    for (StockRecord record : records) {
+      batch.add((int) record.getLocalDate().toEpochDay(), record.getId(), record.getClose(), record.getHigh(), record.getLow(), record.getOpen(),
+          record.getVolume());
+    }
+    return batch;
+  }
+
+  private int[] epochDays;
+  private int[] symbolCodes;
+  private double[] close;
+  private double[] high;
+  private double[] low;
+  private double[] open;
+  private long[] volume;
+  private int size;
+
+  public StockBatch(int capacity) {
+    int initialCapacity = Math.max(16, capacity);
+    epochDays = new int[initialCapacity];
+    symbolCodes = new int[initialCapacity];
+    close = new double[initialCapacity];
+    high = new double[initialCapacity];
+    low = new double[initialCapacity];
+    open = new double[initialCapacity];
+    volume = new long[initialCapacity];
+  }
+
+  public StockBatch add(final int epochDay, final String symbol, final double close, final double high, final double low, final double open, final long volume) {
+    return add(epochDay, SymbolDictionary.symbols().code(symbol), close, high, low, open, volume);
+  }
+
+  public StockBatch add(final int epochDay, final int symbolCode, final double close, final double high, final double low, final double open,
+      final long volume) {
+    int i = addEmpty();
+    this.epochDays[i] = epochDay;
+    this.symbolCodes[i] = symbolCode;
+    this.close[i] = close;
+    this.high[i] = high;
+    this.low[i] = low;
+    this.open[i] = open;
+    this.volume[i] = volume;
+    return this;
+  }
+
+  public StockBatch add(final StockBatch batch, final int index) {
+    return add(batch.epochDays[index], batch.symbolCodes[index], batch.close[index], batch.high[index], batch.low[index], batch.open[index], batch.volume[index]);
+  }
+
+  public StockBatch add(final StockHistory history, final int index) {
+    return add(history.getEpochDay(index), history.getSymbolCode(), history.getClose(index), history.getHigh(index), history.getLow(index), history.getOpen(index),
+        history.getVolume(index));
+  }
+
+  public StockBatch addAll(final StockBatch batch) {
+    for (int i = 0; i < batch.size; i++) {
+      add(batch.epochDays[i], batch.symbolCodes[i], batch.close[i], batch.high[i], batch.low[i], batch.open[i], batch.volume[i]);
+    }
+    return this;
+  }
+
+  private int addEmpty() {
+    if (size == epochDays.length) {
+      int capacity = size * 2;
+      epochDays = Arrays.copyOf(epochDays, capacity);
+      symbolCodes = Arrays.copyOf(symbolCodes, capacity);
+      close = Arrays.copyOf(close, capacity);
+      high = Arrays.copyOf(high, capacity);
+      low = Arrays.copyOf(low, capacity);
+      open = Arrays.copyOf(open, capacity);
+      volume = Arrays.copyOf(volume, capacity);
+    }
+    return size++;
+  }
+
+  public double getClose(final int index) {
+    return close[index];
+  }
+
+  public long getContentHash() {
+    long hash = FNV_OFFSET_BASIS;
+    for (int i = 0; i < size; i++) {
+      hash = hash(hash, epochDays[i]);
+      hash = hash(hash, getSymbol(i).hashCode());
+      hash = hash(hash, Double.doubleToLongBits(close[i]));
+      hash = hash(hash, Double.doubleToLongBits(high[i]));
+      hash = hash(hash, Double.doubleToLongBits(low[i]));
+      hash = hash(hash, Double.doubleToLongBits(open[i]));
+      hash = hash(hash, volume[i]);
+    }
+    return hash;
+  }
+
+  public int getEpochDay(final int index) {
+    return epochDays[index];
+  }
+
+  public double getHigh(final int index) {
+    return high[index];
+  }
+
+  public double getLow(final int index) {
+    return low[index];
+  }
+
+  public double getOpen(final int index) {
+    return open[index];
+  }
+
+  public StockRecord getRecord(final int index) {
+    return StockRecord.of(LocalDate.ofEpochDay(epochDays[index]), getSymbol(index), close[index], high[index], low[index], open[index], volume[index]);
+  }
+
+  public String getSymbol(final int index) {
+    return SymbolDictionary.symbols().get(symbolCodes[index]);
+  }
+
+  public int getSymbolCode(final int index) {
+    return symbolCodes[index];
+  }
+
+  public long getVolume(final int index) {
+    return volume[index];
+  }
+
+  public int read(final PageReadStore rowGroup, final MessageType schema, final String createdBy, final StockQuery query) {
+    int rows = Math.toIntExact(rowGroup.getRowCount());
+    ColumnConverter converter = new ColumnConverter(schema, rows);
+    ColumnReadStore store = new ColumnReadStoreImpl(rowGroup, converter, schema, createdBy);
+    ColumnReader dates = store.getColumnReader(schema.getColumnDescription(new String[] {StockRecord.LOCAL_DATE}));
+    ColumnReader ids = store.getColumnReader(schema.getColumnDescription(new String[] {StockRecord.ID}));
+    for (int row = 0; row < rows; row++) {
+      converter.index = row;
+      dates.writeCurrentValueToConverter();
+      dates.consume();
+      ids.writeCurrentValueToConverter();
+      ids.consume();
+    }
+    int start = size;
+    boolean[] selected = new boolean[rows];
+    for (int row = 0; row < rows; row++) {
+      if (query == null || query.matches(converter.rowEpochDays[row], converter.rowSymbolCodes[row])) {
+        int i = addEmpty();
+        epochDays[i] = converter.rowEpochDays[row];
+        symbolCodes[i] = converter.rowSymbolCodes[row];
+        selected[row] = true;
+      }
+    }
+    for (ColumnDescriptor column : schema.getColumns()) {
+      String name = column.getPath()[0];
+      if (name.equals(StockRecord.LOCAL_DATE) || name.equals(StockRecord.ID)) {
+        continue;
+      }
+      ColumnReader reader = store.getColumnReader(column);
+      converter.index = start;
+      for (int row = 0; row < rows; row++) {
+        if (selected[row]) {
+          reader.writeCurrentValueToConverter();
+          converter.index++;
+        } else {
+          reader.skip();
+        }
+        reader.consume();
+      }
+    }
+    return size - start;
+  }
+
+  public List<Row> rows() {
+    return new AbstractList<>() {
+
+      @Override
+      public Row get(int index) {
+        return new Row(StockBatch.this, index);
+      }
+
+      @Override
+      public int size() {
+        return size;
+      }
+
+    };
+  }
+
+  public int size() {
+    return size;
+  }
+
+  public StockBatch sortBySymbol() {
+    int[] order = IntStream.range(0, size).boxed().sorted(Comparator.comparing((Integer i) -> getSymbol(i)).thenComparingInt(i -> epochDays[i]))
+        .mapToInt(Integer::intValue).toArray();
+    StockBatch batch = new StockBatch(size);
+    for (int index : order) {
+      batch.add(this, index);
+    }
+    return batch;
+  }
+
+}
@@ -1,16 +1,34 @@
 package dev.rkoch.aws.stock.collector;
 
 import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
 import javax.naming.LimitExceededException;
 import com.amazonaws.services.lambda.runtime.LambdaLogger;
 import com.amazonaws.services.lambda.runtime.logging.LogLevel;
 import dev.rkoch.aws.collector.utils.State;
 import dev.rkoch.aws.stock.collector.api.AlphaVantageApi;
+import dev.rkoch.aws.stock.collector.api.AlphaVantageScheduler;
 import dev.rkoch.aws.stock.collector.api.NasdaqApi;
+import dev.rkoch.aws.stock.collector.exception.DeadlineExceededException;
 import dev.rkoch.aws.stock.collector.exception.NoDataForDateException;
+import dev.rkoch.aws.stock.collector.exception.SourceUnavailableException;
+import dev.rkoch.aws.stock.collector.exception.SymbolDeferredException;
 import dev.rkoch.aws.stock.collector.exception.SymbolNotExistsException;
+import dev.rkoch.aws.stock.collector.invoke.Invoker;
+import dev.rkoch.aws.stock.collector.invoke.LocalInvoker;
+import dev.rkoch.aws.stock.collector.metrics.Metrics;
 
 public class StockCollector {
 
@@ -18,109 +36,594 @@ public class StockCollector {
 
   private static final String PARQUET_KEY = "raw/stock/localDate=%s/data.parquet";
 
+  private static final String SECTOR_PARQUET_KEY = "raw/stock/localDate=%s/sector=%s/data.parquet";
+
+  private static final String ALL = "all";
+
+  private static final String SECTOR = "sector";
+
+  static final int CLOSURE_PROBES = 4;
+
+  static final int CLOSURE_SETTLE_DAYS = 5;
+
   private final LambdaLogger logger;
 
   private final Handler handler;
 
+  private final Deadline deadline;
+
+  private final Metrics metrics = new Metrics();
+
   private AlphaVantageApi alphaVantageApi;
 
+  private AlphaVantageScheduler alphaVantageScheduler;
+
+  private boolean alphaVantageExhausted;
+
+  private DeferredSymbols deferredSymbols;
+
+  private DerivedStage derivedStage;
+
   private NasdaqApi nasdaqApi;
 
-  public StockCollector(LambdaLogger logger, Handler handler) {
+  private TradingCalendar tradingCalendar;
+
+  public StockCollector(LambdaLogger logger, Handler handler, Deadline deadline) {
     this.logger = logger;
     this.handler = handler;
+    this.deadline = deadline;
+  }
+
+  private boolean backfill(final Shard shard, final LocalDate startDate, final LocalDate endDate) {
+    BulkLoader loader = getBulkLoader();
+    PartitionManifest manifest = getPartitionManifest(shard);
+    try (PartitionWriter writer = getPartitionWriter(shard, handler.getBackfillWriteConcurrency(), null, manifest)) {
+      return loader.load(shard.getSymbols(), startDate, endDate, writer);
+    } finally {
+      if (manifest != null) {
+        manifest.save();
+      }
+    }
   }
 
-  public void collect() {
+  public void collect(final CollectRequest request) {
     try {
-      collect(new Symbols(handler.getS3Parquet()).get());
+      collect(new Symbols(handler.getS3Parquet(), handler.getObjectStore()), request);
     } catch (Exception e) {
       logger.log(e.getMessage(), LogLevel.ERROR);
+    } finally {
+      logger.log(metrics.toEmf());
+    }
+  }
+
+  private void collect(final State state, final List<Shard> shards, final LocalDate now) {
+    shards.stream().map(this::getStartDate).min(LocalDate::compareTo).ifPresent(this::getNasdaqApi);
+    if (shards.size() == 1) {
+      collect(state, shards.getFirst(), now);
+      return;
+    }
+    List<Future<?>> futures = new ArrayList<>(shards.size());
+    try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+      for (Shard shard : shards) {
+        futures.add(executor.submit(() -> collect(state, shard, now)));
+      }
+      for (Future<?> future : futures) {
+        future.get();
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new RuntimeException(e);
+    } catch (ExecutionException e) {
+      throw new RuntimeException(e.getCause());
+    }
+  }
+
+  private void collect(final State state, final Shard shard, final LocalDate now) {
+    try {
+      LocalDate date = getStartDate(shard);
+      LocalDate endDate = shard.getToDate() == null ? now : shard.getToDate();
+      boolean completed;
+      if (ChronoUnit.DAYS.between(date, endDate) >= handler.getBackfillMinDays()) {
+        completed = backfill(shard, date, endDate);
+      } else {
+        completed = collectDaily(state, shard, date, endDate);
+      }
+      if (completed && shard.getToDate() != null && date.isBefore(endDate)) {
+        shard.getProgress().setLastAddedStockDate(endDate.minusDays(1));
+      }
+    } catch (Exception e) {
+      logger.log("%s %s".formatted(shard.getName(), e.getMessage()), LogLevel.ERROR);
     }
   }
 
-  private void collect(final List<String> symbols) {
+  private void collect(final Symbols symbols, final CollectRequest request) {
     try (State state = new State(handler.getS3Client(), BUCKET_NAME)) {
       LocalDate limitExceeded = state.getAvLimitExceededDate();
       LocalDate now = LocalDate.now();
-      if (limitExceeded == null || now.isAfter(limitExceeded)) {
-        LocalDate date = getStartDate(state);
-        for (; date.isBefore(now); date = date.plusDays(1)) {
-          try {
-            List<StockRecord> records = getData(date, symbols);
-            insert(date, records);
-            state.setLastAddedStockDate(date);
-            logger.log("%s inserted".formatted(date), LogLevel.INFO);
-          } catch (NoDataForDateException e) {
-            continue;
-          } catch (LimitExceededException e) {
-            logger.log(e.getMessage(), LogLevel.ERROR);
+      alphaVantageExhausted = limitExceeded != null && !now.isAfter(limitExceeded);
+      deferredSymbols = new DeferredSymbols(handler.getObjectStore());
+      tradingCalendar = new TradingCalendar(handler.getObjectStore());
+      try {
+        if (request.isCompact()) {
+          compact(state, request);
+        } else if (request.isCoordinator()) {
+          coordinate(state, symbols, request);
+          derive(state, false);
+        } else if (request.isDerive()) {
+          derive(state, true);
+        } else if (request.isReconcile()) {
+          reconcile(state, getShards(state, symbols, request), request);
+        } else if (request.isShard()) {
+          collect(state, List.of(FanOutCoordinator.getShard(handler.getObjectStore(), symbols, request)), now);
+        } else {
+          List<Shard> shards = getShards(state, symbols, request);
+          repairDeferred(shards);
+          collect(state, shards, now);
+          derive(state, false);
+        }
+      } catch (Exception e) {
+        logger.log(e.getMessage(), LogLevel.ERROR);
+      } finally {
+        if (alphaVantageScheduler != null) {
+          if (alphaVantageScheduler.isExhausted() && !alphaVantageExhausted) {
             state.setAvLimitExceededDate(now);
-            return;
-          } catch (Exception e) {
-            logger.log(e.getMessage(), LogLevel.ERROR);
-            return;
           }
+          alphaVantageScheduler.close();
+        }
+        deferredSymbols.save();
+        tradingCalendar.save();
+        if (derivedStage != null) {
+          derivedStage.save();
+        }
+      }
+    }
+  }
+
+  private boolean collectDaily(final State state, final Shard shard, final LocalDate startDate, final LocalDate endDate) {
+    List<String> symbols = shard.getSymbols();
+    Checkpoint checkpoint = new Checkpoint(handler.getObjectStore(), shard.getName());
+    PartitionManifest manifest = getPartitionManifest(shard);
+    try (PartitionWriter writer = getPartitionWriter(shard, handler.getPipelineDepth(), checkpoint, manifest)) {
+      for (LocalDate date : tradingCalendar.getTradingDays(startDate, endDate)) {
+        long start = metrics.start();
+        try {
+          List<StockRecord> records = getData(date, symbols, checkpoint);
+          metrics.stop(Metrics.COLLECT_GET_DATA, start);
+          if (!writer.submit(date, () -> StockBatch.of(records))) {
+            return false;
+          }
+        } catch (NoDataForDateException e) {
+          if (tradingCalendar.getTradingDays(date.plusDays(1), endDate).size() >= CLOSURE_SETTLE_DAYS) {
+            tradingCalendar.learn(date, false);
+            continue;
+          }
+          logger.log("%s no data yet".formatted(date), LogLevel.INFO);
+          writer.flush();
+          return false;
+        } catch (DeadlineExceededException e) {
+          logger.log(e.getMessage(), LogLevel.WARN);
+          return false;
+        } catch (LimitExceededException e) {
+          logger.log(e.getMessage(), LogLevel.ERROR);
+          synchronized (state) {
+            state.setAvLimitExceededDate(LocalDate.now());
+          }
+          return false;
+        } catch (Exception e) {
+          logger.log(e.getMessage(), LogLevel.ERROR);
+          return false;
         }
       }
+      return writer.flush();
+    } finally {
+      if (manifest != null) {
+        manifest.save();
+      }
+    }
+  }
+
+  private void compact(final State state, final CollectRequest request) {
+    LocalDate lastAddedStockDate = state.getLastAddedStockDate();
+    if (lastAddedStockDate == null) {
+      return;
+    }
+    LocalDate fromDate = request.getFromDate() == null ? getDefaultStartDate() : LocalDate.parse(request.getFromDate());
+    Compactor compactor = new Compactor(logger, handler.getObjectStore(), tradingCalendar, deadline, handler.getBackfillWriteConcurrency(), metrics);
+    if (compactor.compact(fromDate, lastAddedStockDate.minusDays(handler.getReconcileDays()))) {
+      logger.log("compacted through %s".formatted(lastAddedStockDate.minusDays(handler.getReconcileDays())), LogLevel.INFO);
+    }
+  }
+
+  private void coordinate(final State state, final Symbols symbols, final CollectRequest request) {
+    LocalDate lastAddedStockDate = state.getLastAddedStockDate();
+    LocalDate fromDate = lastAddedStockDate == null ? getDefaultStartDate() : lastAddedStockDate.plusDays(1);
+    Invoker invoker = handler.getInvoker(logger, deadline);
+    FanOutCoordinator coordinator = getFanOutCoordinator();
+    coordinator.coordinate(state, symbols, request, invoker, fromDate, handler.getFanOutShards());
+    if (invoker instanceof LocalInvoker localInvoker) {
+      localInvoker.close();
+      coordinator.merge(state);
+    }
+  }
+
+  private void derive(final State state, final boolean reset) {
+    LocalDate lastAddedStockDate = state.getLastAddedStockDate();
+    if (lastAddedStockDate == null) {
+      return;
+    }
+    DerivedStage stage = getDerivedStage();
+    if (reset) {
+      stage.reset();
+    }
+    if (stage.catchUp(getDefaultStartDate(), lastAddedStockDate.plusDays(1), deadline)) {
+      logger.log("derived through %s".formatted(lastAddedStockDate), LogLevel.INFO);
     }
   }
 
-  private AlphaVantageApi getAlphaVantageApi() {
+  private synchronized AlphaVantageApi getAlphaVantageApi() {
     if (alphaVantageApi == null) {
-      alphaVantageApi = new AlphaVantageApi();
+      alphaVantageApi = new AlphaVantageApi(handler.getAlphaVantageCache(), handler.getCacheTtl(), handler.getAlphaVantageApiKey(), metrics);
     }
     return alphaVantageApi;
   }
 
-  private List<StockRecord> getData(final LocalDate date, final List<String> symbols) throws LimitExceededException, NoDataForDateException {
-    List<StockRecord> records = new ArrayList<>();
-    boolean isTradingDay = false;
-    for (String symbol : symbols) {
-      try {
+  private synchronized AlphaVantageScheduler getAlphaVantageScheduler() {
+    if (alphaVantageScheduler == null) {
+      alphaVantageScheduler = new AlphaVantageScheduler(getAlphaVantageApi(), handler.getAvRequestsPerMinute(), handler.getAvRequestsPerDay(), alphaVantageExhausted,
+          new AlphaVantageUsage(handler.getObjectStore()));
+    }
+    return alphaVantageScheduler;
+  }
+
+  private BulkLoader getBulkLoader() {
+    return new BulkLoader(logger, (symbol, fromDate, toDate) -> getHistory(symbol, fromDate, toDate), tradingCalendar, deadline, handler.getBulkWindowDays(), metrics);
+  }
+
+  private List<StockRecord> getChunk(final LocalDate date, final List<String> symbols) {
+    List<StockRecord> records = new ArrayList<>(symbols.size());
+    List<Future<StockRecord>> futures = new ArrayList<>(symbols.size());
+    try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+      for (String symbol : symbols) {
+        futures.add(executor.submit(() -> getData(date, symbol)));
+      }
+      for (Future<StockRecord> future : futures) {
+        records.add(future.get());
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new RuntimeException(e);
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof RuntimeException runtimeException) {
+        throw runtimeException;
+      } else {
+        throw new RuntimeException(e.getCause());
+      }
+    }
+    return records;
+  }
+
+  private List<StockRecord> getData(final LocalDate date, final List<String> symbols, final Checkpoint checkpoint)
+      throws DeadlineExceededException, LimitExceededException, NoDataForDateException, SourceUnavailableException {
+    List<StockRecord> records = new ArrayList<>(symbols.size());
+    if (symbols.isEmpty()) {
+      return records;
+    }
+    int next = 0;
+    if (checkpoint.isFor(date)) {
+      next = symbols.indexOf(checkpoint.getCursor()) + 1;
+      if (next > 0) {
         try {
-          records.add(getNasdaqApi(date).getData(date, symbol));
-          isTradingDay = true;
-          try {
-            Thread.sleep(11L);
-          } catch (InterruptedException e) {
-            logger.log(e.getMessage(), LogLevel.ERROR);
-          }
-        } catch (SymbolNotExistsException e) {
-          records.add(getAlphaVantageApi().getData(date, symbol));
-          isTradingDay = true;
+          records.addAll(checkpoint.getRecords());
+          logger.log("%s resumed after %s".formatted(date, checkpoint.getCursor()), LogLevel.INFO);
+        } catch (Exception e) {
+          logger.log(e.getMessage(), LogLevel.ERROR);
+          records.clear();
+          next = 0;
         }
+      }
+      if (next == 0) {
+        checkpoint.clear(date);
+      }
+    }
+    if (next == 0) {
+      try {
+        records.add(getNasdaqOrAlphaVantageData(date, symbols.getFirst()));
       } catch (NoDataForDateException e) {
-        records.add(StockRecord.of(date, symbol, 0, 0, 0, 0, 0));
+        if (!hasData(date, symbols)) {
+          throw new NoDataForDateException();
+        }
+        records.add(StockRecord.of(date, symbols.getFirst(), 0, 0, 0, 0, 0));
+      } catch (SymbolDeferredException e) {
+        throw new LimitExceededException(e.getMessage());
       }
-      if (!isTradingDay) {
-        throw new NoDataForDateException();
+      logger.log("%s collected %s".formatted(date, symbols.getFirst()), LogLevel.TRACE);
+      next = 1;
+    }
+    int checkpointed = checkpoint.isFor(date) ? records.size() : 0;
+    int chunkSize = handler.getCheckpointChunkSize();
+    try {
+      for (int from = next; from < symbols.size(); from += chunkSize) {
+        if (deadline.isNear()) {
+          saveCheckpoint(checkpoint, date, records.subList(checkpointed, records.size()));
+          throw new DeadlineExceededException("%s checkpointed after %s".formatted(date, records.getLast().getId()));
+        }
+        records.addAll(getChunk(date, symbols.subList(from, Math.min(from + chunkSize, symbols.size()))));
       }
-      logger.log("%s collected %s".formatted(date, symbol), LogLevel.TRACE);
+    } catch (RuntimeException e) {
+      saveCheckpoint(checkpoint, date, records.subList(checkpointed, records.size()));
+      throw e;
     }
     return records;
   }
 
-  private NasdaqApi getNasdaqApi(final LocalDate date) {
+  private StockRecord getData(final LocalDate date, final String symbol) {
+    StockRecord record;
+    try {
+      record = getNasdaqOrAlphaVantageData(date, symbol);
+    } catch (NoDataForDateException e) {
+      record = StockRecord.of(date, symbol, 0, 0, 0, 0, 0);
+    } catch (SymbolDeferredException e) {
+      metrics.count(Metrics.ALPHAVANTAGE_DEFERRED);
+      deferredSymbols.add(symbol, date, DeferredSymbols.Reason.ALPHAVANTAGE);
+      record = StockRecord.of(date, symbol, 0, 0, 0, 0, 0);
+    } catch (SourceUnavailableException e) {
+      logger.log(e.getMessage(), LogLevel.WARN);
+      metrics.count(Metrics.NASDAQ_UNAVAILABLE);
+      deferredSymbols.add(symbol, date, DeferredSymbols.Reason.NASDAQ);
+      record = StockRecord.of(date, symbol, 0, 0, 0, 0, 0);
+    }
+    logger.log("%s collected %s".formatted(date, symbol), LogLevel.TRACE);
+    return record;
+  }
+
+  private LocalDate getDefaultStartDate() {
+    return LocalDate.now().minusYears(10).minusDays(1);
+  }
+
+  private synchronized DerivedStage getDerivedStage() {
+    if (derivedStage == null) {
+      derivedStage = new DerivedStage(logger, handler.getObjectStore(), handler.getS3Parquet(), tradingCalendar, handler.getBackfillWriteConcurrency(), metrics);
+    }
+    return derivedStage;
+  }
+
+  private FanOutCoordinator getFanOutCoordinator() {
+    return new FanOutCoordinator(logger, handler.getObjectStore());
+  }
+
+  private StockHistory getHistory(final String symbol, final LocalDate fromDate, final LocalDate toDate) {
+    StockHistory history;
+    try {
+      history = getNasdaqApi(fromDate).getHistory(symbol, fromDate, toDate);
+    } catch (SymbolNotExistsException e) {
+      metrics.count(Metrics.ALPHAVANTAGE_FALLBACK);
+      try {
+        history = getAlphaVantageScheduler().get(symbol).slice(fromDate, toDate);
+      } catch (SymbolDeferredException deferred) {
+        metrics.count(Metrics.ALPHAVANTAGE_DEFERRED);
+        deferredSymbols.add(symbol, fromDate, DeferredSymbols.Reason.ALPHAVANTAGE);
+        history = StockHistory.builder(symbol).build();
+      }
+    } catch (SourceUnavailableException e) {
+      logger.log(e.getMessage(), LogLevel.WARN);
+      metrics.count(Metrics.NASDAQ_UNAVAILABLE);
+      deferredSymbols.add(symbol, fromDate, DeferredSymbols.Reason.NASDAQ);
+      history = StockHistory.builder(symbol).build();
+    }
+    logger.log("%s collected history from %s to %s".formatted(symbol, fromDate, toDate), LogLevel.TRACE);
+    return history;
+  }
+
+  private synchronized NasdaqApi getNasdaqApi(final LocalDate date) {
     if (nasdaqApi == null) {
-      nasdaqApi = new NasdaqApi(date, handler.getHttpClient());
+      nasdaqApi = new NasdaqApi(date, LocalDate.now(), handler.getNasdaqUrl(), handler.getNasdaqTransport(), handler.getNasdaqCache(), handler.getCacheTtl(), metrics,
+          deadline);
     }
     return nasdaqApi;
   }
 
-  private LocalDate getStartDate(final State state) {
-    LocalDate lastAddedStockDate = state.getLastAddedStockDate();
-    if (lastAddedStockDate == null) {
-      LocalDate startDate = LocalDate.now().minusYears(10).minusDays(1);
-      state.setNasdaqStartDate(startDate);
-      return startDate;
-    } else {
+  private StockRecord getNasdaqOrAlphaVantageData(final LocalDate date, final String symbol)
+      throws NoDataForDateException, SourceUnavailableException, SymbolDeferredException {
+    try {
+      return getNasdaqApi(date).getData(date, symbol);
+    } catch (SymbolNotExistsException e) {
+      metrics.count(Metrics.ALPHAVANTAGE_FALLBACK);
+      StockRecord record = getAlphaVantageScheduler().get(symbol).get(date);
+      if (record == null) {
+        throw new NoDataForDateException("no data found for %s on %s".formatted(symbol, date));
+      }
+      return record;
+    }
+  }
+
+  private PartitionManifest getPartitionManifest(final Shard shard) {
+    return shard.getToDate() == null ? new PartitionManifest(handler.getObjectStore(), shard.getName()) : null;
+  }
+
+  private PartitionWriter getPartitionWriter(final Shard shard, final int maxPending, final Checkpoint checkpoint, final PartitionManifest manifest) {
+    return new PartitionWriter(logger, maxPending, (date, batch) -> insert(shard.getKey(date), batch), (date, batch) -> {
+      shard.getProgress().setLastAddedStockDate(date);
+      if (manifest != null && manifest.get(date) == null) {
+        manifest.put(date, batch.getContentHash());
+      }
+      if (ALL.equals(shard.getName())) {
+        getDerivedStage().accept(date, batch);
+      }
+      if (checkpoint != null) {
+        checkpoint.clear(date);
+      }
+      logger.log("%s %s inserted".formatted(date, shard.getName()), LogLevel.INFO);
+    });
+  }
+
+  private List<Shard> getShards(final State state, final Symbols symbols, final CollectRequest request) {
+    boolean bySector = request.getBySector() == null ? handler.isCollectBySector() : request.getBySector();
+    if (!bySector) {
+      if (state.getLastAddedStockDate() == null) {
+        state.setNasdaqStartDate(getDefaultStartDate());
+      }
+      return List.of(new Shard(ALL, symbols.get(), PARQUET_KEY, Progress.of(state)));
+    }
+    Set<String> sectors = request.getSectors() == null ? Set.of() : request.getSectors().stream().map(Shard::toPartitionValue).collect(Collectors.toSet());
+    Map<String, List<String>> symbolsBySector = new TreeMap<>();
+    for (SymbolRecord record : symbols.getRecords()) {
+      String sector = Shard.toPartitionValue(record.getSector());
+      if (sectors.isEmpty() || sectors.contains(sector)) {
+        symbolsBySector.computeIfAbsent(sector, (key) -> new ArrayList<>()).add(record.getId());
+      }
+    }
+    List<Shard> shards = new ArrayList<>(symbolsBySector.size());
+    symbolsBySector.forEach((sector, sectorSymbols) -> shards.add(new Shard(SECTOR + "=" + sector, sectorSymbols, SECTOR_PARQUET_KEY.formatted("%s", sector),
+        new ShardProgress(handler.getObjectStore(), SECTOR + "/" + sector))));
+    return shards;
+  }
+
+  private LocalDate getStartDate(final Shard shard) {
+    LocalDate lastAddedStockDate = shard.getProgress().getLastAddedStockDate();
+    if (lastAddedStockDate != null) {
       return lastAddedStockDate.plusDays(1);
     }
+    return shard.getFromDate() == null ? getDefaultStartDate() : shard.getFromDate();
+  }
+
+  private boolean hasData(final LocalDate date, final List<String> symbols) {
+    for (String symbol : symbols.subList(1, Math.min(CLOSURE_PROBES, symbols.size()))) {
+      try {
+        getNasdaqApi(date).getData(date, symbol);
+        return true;
+      } catch (NoDataForDateException | SourceUnavailableException | SymbolNotExistsException e) {
+        continue;
+      }
+    }
+    return false;
+  }
+
+  private void insert(final String key, final StockBatch batch) throws Exception {
+    long start = metrics.start();
+    StockWriter.write(handler.getObjectStore(), key, batch);
+    metrics.stop(Metrics.COLLECT_INSERT, start);
+    metrics.count(Metrics.RECORDS_WRITTEN, batch.size());
+  }
+
+  private void saveCheckpoint(final Checkpoint checkpoint, final LocalDate date, final List<StockRecord> records) {
+    try {
+      checkpoint.save(date, records);
+    } catch (Exception e) {
+      logger.log(e.getMessage(), LogLevel.ERROR);
+    }
+  }
+
+  private void reconcile(final State state, final List<Shard> shards, final CollectRequest request) {
+    Reconciler reconciler = new Reconciler(logger, handler.getObjectStore(), new LayoutManifest(handler.getObjectStore()), getBulkLoader(), deadline, metrics);
+    for (Shard shard : shards) {
+      LocalDate lastAddedStockDate = shard.getProgress().getLastAddedStockDate();
+      if (lastAddedStockDate == null) {
+        continue;
+      }
+      LocalDate endDate = request.getToDate() == null ? lastAddedStockDate.plusDays(1) : LocalDate.parse(request.getToDate());
+      LocalDate startDate = request.getFromDate() == null ? endDate.minusDays(handler.getReconcileDays()) : LocalDate.parse(request.getFromDate());
+      getNasdaqApi(startDate);
+      if (!reconciler.reconcile(shard, tradingCalendar.getTradingDays(startDate, endDate))) {
+        break;
+      }
+      logger.log("%s reconciled %s to %s".formatted(shard.getName(), startDate, endDate), LogLevel.INFO);
+    }
+    LocalDate reconciledFrom = reconciler.getReconciledFrom();
+    LocalDate lastAddedStockDate = state.getLastAddedStockDate();
+    if (reconciledFrom != null && lastAddedStockDate != null
+        && getDerivedStage().recompute(getDefaultStartDate(), reconciledFrom, lastAddedStockDate.plusDays(1), deadline)) {
+      logger.log("derived recomputed from %s".formatted(reconciledFrom), LogLevel.INFO);
+    }
+  }
+
+  private void repairDeferred(final List<Shard> shards) {
+    Map<String, LocalDate> nasdaqDeferred = deferredSymbols.get(DeferredSymbols.Reason.NASDAQ);
+    Map<String, LocalDate> alphaVantageDeferred = alphaVantageExhausted ? Map.of() : deferredSymbols.get(DeferredSymbols.Reason.ALPHAVANTAGE);
+    if (nasdaqDeferred.isEmpty() && alphaVantageDeferred.isEmpty()) {
+      return;
+    }
+    Map<String, Shard> shardsBySymbol = new HashMap<>();
+    for (Shard shard : shards) {
+      shard.getSymbols().stream().filter((symbol) -> nasdaqDeferred.containsKey(symbol) || alphaVantageDeferred.containsKey(symbol))
+          .forEach((symbol) -> shardsBySymbol.put(symbol, shard));
+    }
+    shardsBySymbol.keySet().stream().filter(alphaVantageDeferred::containsKey).forEach(getAlphaVantageScheduler()::submit);
+    LayoutManifest layout = new LayoutManifest(handler.getObjectStore());
+    Map<String, List<StockRecord>> repairs = new TreeMap<>();
+    Map<String, Set<String>> keysBySymbol = new HashMap<>();
+    for (Map.Entry<String, Shard> entry : shardsBySymbol.entrySet()) {
+      String symbol = entry.getKey();
+      Shard shard = entry.getValue();
+      LocalDate lastAddedDate = shard.getProgress().getLastAddedStockDate();
+      if (lastAddedDate == null) {
+        continue;
+      }
+      boolean nasdaq = nasdaqDeferred.containsKey(symbol);
+      LocalDate fromDate = nasdaq ? nasdaqDeferred.get(symbol) : alphaVantageDeferred.get(symbol);
+      StockHistory history;
+      try {
+        history = nasdaq ? getNasdaqApi(fromDate).getHistory(symbol, fromDate, lastAddedDate.plusDays(1)) : getAlphaVantageScheduler().get(symbol);
+      } catch (SymbolNotExistsException e) {
+        deferredSymbols.add(symbol, fromDate, DeferredSymbols.Reason.ALPHAVANTAGE);
+        continue;
+      } catch (SourceUnavailableException | SymbolDeferredException e) {
+        continue;
+      } catch (Exception e) {
+        logger.log(e.getMessage(), LogLevel.ERROR);
+        continue;
+      }
+      Set<String> keys = new HashSet<>();
+      int from = (int) fromDate.toEpochDay();
+      int to = (int) lastAddedDate.toEpochDay();
+      for (int i = 0; i < history.size(); i++) {
+        int epochDay = history.getEpochDay(i);
+        if (epochDay >= from && epochDay <= to) {
+          LocalDate date = LocalDate.ofEpochDay(epochDay);
+          String key = layout.getPartitionKey(shard, date);
+          repairs.computeIfAbsent(key, (k) -> new ArrayList<>()).add(history.getRecord(i));
+          keys.add(key);
+        }
+      }
+      keysBySymbol.put(symbol, keys);
+    }
+    Set<String> failed = new HashSet<>();
+    for (Map.Entry<String, List<StockRecord>> repair : repairs.entrySet()) {
+      try {
+        repairPartition(repair.getKey(), repair.getValue());
+      } catch (Exception e) {
+        logger.log("%s %s".formatted(repair.getKey(), e.getMessage()), LogLevel.ERROR);
+        failed.add(repair.getKey());
+      }
+    }
+    keysBySymbol.forEach((symbol, keys) -> {
+      if (keys.stream().noneMatch(failed::contains)) {
+        deferredSymbols.remove(symbol);
+        logger.log("%s repaired since %s".formatted(symbol, nasdaqDeferred.getOrDefault(symbol, alphaVantageDeferred.get(symbol))), LogLevel.INFO);
+      }
+    });
   }
 
-  private void insert(final LocalDate date, final List<StockRecord> records) throws Exception {
-    handler.getS3Parquet().write(BUCKET_NAME, PARQUET_KEY.formatted(date), records);
+  private void repairPartition(final String key, final List<StockRecord> repairs) throws Exception {
+    if (handler.getObjectStore().getETag(key) == null) {
+      logger.log("%s not written, dropped %s repairs".formatted(key, repairs.size()), LogLevel.WARN);
+      return;
+    }
+    Map<String, StockRecord> repairsById = new HashMap<>();
+    for (StockRecord repair : repairs) {
+      repairsById.put(repair.getId() + "@" + repair.getLocalDate(), repair);
+    }
+    List<StockRecord> records = new ArrayList<>(handler.getS3Parquet().read(BUCKET_NAME, key, StockRecord.class));
+    boolean changed = false;
+    for (int i = 0; i < records.size(); i++) {
+      StockRecord repair = repairsById.get(records.get(i).getId() + "@" + records.get(i).getLocalDate());
+      if (repair != null) {
+        records.set(i, repair);
+        changed = true;
+      }
+    }
+    if (changed) {
+      handler.getS3Parquet().write(BUCKET_NAME, key, records);
+    }
   }
 
 }
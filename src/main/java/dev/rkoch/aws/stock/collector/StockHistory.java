@@ -0,0 +1,244 @@
+package dev.rkoch.aws.stock.collector;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.IntStream;
+
+public class StockHistory {
+
+  public static class Builder {
+
+    private final String symbol;
+
+    private int[] epochDays;
+    private double[] close;
+    private double[] high;
+    private double[] low;
+    private double[] open;
+    private long[] volume;
+    private int size;
+
+    private Builder(String symbol, int capacity) {
+      this.symbol = SymbolDictionary.symbols().intern(symbol);
+      int initialCapacity = Math.max(16, capacity);
+      epochDays = new int[initialCapacity];
+      close = new double[initialCapacity];
+      high = new double[initialCapacity];
+      low = new double[initialCapacity];
+      open = new double[initialCapacity];
+      volume = new long[initialCapacity];
+    }
+
+    public Builder add(final int epochDay, final double close, final double high, final double low, final double open, final long volume) {
+      if (size == epochDays.length) {
+        grow();
+      }
+      this.epochDays[size] = epochDay;
+      this.close[size] = close;
+      this.high[size] = high;
+      this.low[size] = low;
+      this.open[size] = open;
+      this.volume[size] = volume;
+      size++;
+      return this;
+    }
+
+    public Builder add(final StockRecord record) {
+      return add((int) record.getLocalDate().toEpochDay(), record.getClose(), record.getHigh(), record.getLow(), record.getOpen(), record.getVolume());
+    }
+
+    public Builder addAll(final StockHistory history) {
+      for (int i = 0; i < history.size; i++) {
+        add(history.epochDays[i], history.close[i], history.high[i], history.low[i], history.open[i], history.volume[i]);
+      }
+      return this;
+    }
+
+    public StockHistory build() {
+      int[] order = getOrder();
+      int count = 0;
+      int[] sortedEpochDays = new int[size];
+      double[] sortedClose = new double[size];
+      double[] sortedHigh = new double[size];
+      double[] sortedLow = new double[size];
+      double[] sortedOpen = new double[size];
+      long[] sortedVolume = new long[size];
+      for (int i = 0; i < size; i++) {
+        int index = order[i];
+        if (count > 0 && sortedEpochDays[count - 1] == epochDays[index]) {
+          count--;
+        }
+        sortedEpochDays[count] = epochDays[index];
+        sortedClose[count] = close[index];
+        sortedHigh[count] = high[index];
+        sortedLow[count] = low[index];
+        sortedOpen[count] = open[index];
+        sortedVolume[count] = volume[index];
+        count++;
+      }
+      return new StockHistory(symbol, Arrays.copyOf(sortedEpochDays, count), Arrays.copyOf(sortedClose, count), Arrays.copyOf(sortedHigh, count),
+          Arrays.copyOf(sortedLow, count), Arrays.copyOf(sortedOpen, count), Arrays.copyOf(sortedVolume, count));
+    }
+
+    private void grow() {
+      int capacity = epochDays.length * 2;
+      epochDays = Arrays.copyOf(epochDays, capacity);
+      close = Arrays.copyOf(close, capacity);
+      high = Arrays.copyOf(high, capacity);
+      low = Arrays.copyOf(low, capacity);
+      open = Arrays.copyOf(open, capacity);
+      volume = Arrays.copyOf(volume, capacity);
+    }
+
+    private int[] getOrder() {
+      boolean ascending = true;
+      boolean descending = true;
+      for (int i = 1; i < size; i++) {
+        ascending &= epochDays[i - 1] <= epochDays[i];
+        descending &= epochDays[i - 1] > epochDays[i];
+      }
+      int[] order = new int[size];
+      if (descending) {
+        for (int i = 0; i < size; i++) {
+          order[i] = size - 1 - i;
+        }
+      } else if (ascending) {
+        for (int i = 0; i < size; i++) {
+          order[i] = i;
+        }
+      } else {
+        order = IntStream.range(0, size).boxed().sorted(Comparator.comparingInt((Integer i) -> epochDays[i]).thenComparingInt(i -> i)).mapToInt(Integer::intValue)
+            .toArray();
+      }
+      return order;
+    }
+
+  }
+
+  public static Builder builder(final String symbol) {
+    return new Builder(symbol, 16);
+  }
+
+  public static Builder builder(final String symbol, final int capacity) {
+    return new Builder(symbol, capacity);
+  }
+
+  public static StockHistory of(final String symbol, final List<StockRecord> records) {
+    Builder builder = builder(symbol, records.size());
+    for (StockRecord record : records) {
+      builder.add(record);
+    }
+    return builder.build();
+  }
+
+  private final String symbol;
+  private final int symbolCode;
+  private final int[] epochDays;
+  private final double[] close;
+  private final double[] high;
+  private final double[] low;
+  private final double[] open;
+  private final long[] volume;
+  private final int size;
+
+  private StockHistory(String symbol, int[] epochDays, double[] close, double[] high, double[] low, double[] open, long[] volume) {
+    this.symbol = symbol;
+    this.symbolCode = SymbolDictionary.symbols().code(symbol);
+    this.epochDays = epochDays;
+    this.close = close;
+    this.high = high;
+    this.low = low;
+    this.open = open;
+    this.volume = volume;
+    this.size = epochDays.length;
+  }
+
+  public StockRecord get(final LocalDate date) {
+    int index = indexOf((int) date.toEpochDay());
+    return index < 0 ? null : getRecord(index);
+  }
+
+  public double getClose(final int index) {
+    return close[index];
+  }
+
+  public int getEpochDay(final int index) {
+    return epochDays[index];
+  }
+
+  public LocalDate getFirstDate() {
+    return size == 0 ? null : LocalDate.ofEpochDay(epochDays[0]);
+  }
+
+  public double getHigh(final int index) {
+    return high[index];
+  }
+
+  public LocalDate getLastDate() {
+    return size == 0 ? null : LocalDate.ofEpochDay(epochDays[size - 1]);
+  }
+
+  public double getLow(final int index) {
+    return low[index];
+  }
+
+  public double getOpen(final int index) {
+    return open[index];
+  }
+
+  public StockRecord getRecord(final int index) {
+    return StockRecord.of(LocalDate.ofEpochDay(epochDays[index]), symbol, close[index], high[index], low[index], open[index], volume[index]);
+  }
+
+  public List<StockRecord> getRecords() {
+    List<StockRecord> records = new ArrayList<>(size);
+    for (int i = 0; i < size; i++) {
+      records.add(getRecord(i));
+    }
+    return records;
+  }
+
+  public String getSymbol() {
+    return symbol;
+  }
+
+  public int getSymbolCode() {
+    return symbolCode;
+  }
+
+  public long getVolume(final int index) {
+    return volume[index];
+  }
+
+  public int indexOf(final int epochDay) {
+    int index = Arrays.binarySearch(epochDays, 0, size, epochDay);
+    return index < 0 ? -1 : index;
+  }
+
+  public boolean isEmpty() {
+    return size == 0;
+  }
+
+  private int lowerBound(final int epochDay) {
+    int index = Arrays.binarySearch(epochDays, 0, size, epochDay);
+    return index < 0 ? -index - 1 : index;
+  }
+
+  public int size() {
+    return size;
+  }
+
+  public StockHistory slice(final LocalDate fromDate, final LocalDate toDate) {
+    int from = lowerBound((int) fromDate.toEpochDay());
+    int to = lowerBound((int) toDate.toEpochDay());
+    if (from == 0 && to == size) {
+      return this;
+    }
+    return new StockHistory(symbol, Arrays.copyOfRange(epochDays, from, to), Arrays.copyOfRange(close, from, to), Arrays.copyOfRange(high, from, to),
+        Arrays.copyOfRange(low, from, to), Arrays.copyOfRange(open, from, to), Arrays.copyOfRange(volume, from, to));
+  }
+
+}
@@ -0,0 +1,62 @@
+package dev.rkoch.aws.stock.collector;
+
+import java.time.LocalDate;
+import java.util.BitSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+public class StockQuery {
+
+  private static final List<String> COLUMNS =
+      List.of(StockRecord.LOCAL_DATE, StockRecord.ID, StockRecord.CLOSE, StockRecord.HIGH, StockRecord.LOW, StockRecord.OPEN, StockRecord.VOLUME);
+
+  private final LocalDate fromDate;
+
+  private final LocalDate toDate;
+
+  private final Set<String> symbols;
+
+  private final BitSet symbolCodes = new BitSet();
+
+  private final List<String> columns;
+
+  public StockQuery(LocalDate fromDate, LocalDate toDate, Set<String> symbols, List<String> columns) {
+    if (!fromDate.isBefore(toDate)) {
+      throw new IllegalArgumentException("empty date range %s to %s".formatted(fromDate, toDate));
+    }
+    Set<String> projection = new LinkedHashSet<>(List.of(StockRecord.LOCAL_DATE, StockRecord.ID));
+    for (String column : columns == null || columns.isEmpty() ? COLUMNS : columns) {
+      if (!COLUMNS.contains(column)) {
+        throw new IllegalArgumentException("unknown column " + column);
+      }
+      projection.add(column);
+    }
+    this.fromDate = fromDate;
+    this.toDate = toDate;
+    this.symbols = symbols == null ? Set.of() : Set.copyOf(symbols);
+    this.symbols.forEach((symbol) -> symbolCodes.set(SymbolDictionary.symbols().code(symbol)));
+    this.columns = List.copyOf(projection);
+  }
+
+  public List<String> getColumns() {
+    return columns;
+  }
+
+  public LocalDate getFromDate() {
+    return fromDate;
+  }
+
+  public Set<String> getSymbols() {
+    return symbols;
+  }
+
+  public LocalDate getToDate() {
+    return toDate;
+  }
+
+  public boolean matches(final int epochDay, final int symbolCode) {
+    return epochDay >= fromDate.toEpochDay() && epochDay < toDate.toEpochDay() && (symbols.isEmpty() || symbolCodes.get(symbolCode));
+  }
+
+}
@@ -0,0 +1,292 @@
+package dev.rkoch.aws.stock.collector;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.stream.Collectors;
+import org.apache.parquet.ParquetReadOptions;
+import org.apache.parquet.column.page.PageReadStore;
+import org.apache.parquet.filter2.compat.FilterCompat;
+import org.apache.parquet.filter2.predicate.FilterApi;
+import org.apache.parquet.filter2.predicate.FilterPredicate;
+import org.apache.parquet.filter2.predicate.Operators.IntColumn;
+import org.apache.parquet.hadoop.ParquetFileReader;
+import org.apache.parquet.hadoop.metadata.BlockMetaData;
+import org.apache.parquet.io.InputFile;
+import org.apache.parquet.io.SeekableInputStream;
+import org.apache.parquet.io.api.Binary;
+import org.apache.parquet.schema.MessageType;
+import dev.rkoch.aws.stock.collector.metrics.Metrics;
+import dev.rkoch.aws.stock.collector.store.ObjectRange;
+import dev.rkoch.aws.stock.collector.store.ObjectStore;
+
+public class StockReader {
+
+  private static class ObjectInputFile implements InputFile {
+
+    private final ObjectStore objectStore;
+
+    private final String key;
+
+    private final ObjectRange tail;
+
+    private long fetched;
+
+    private ObjectInputFile(ObjectStore objectStore, String key, ObjectRange tail) {
+      this.objectStore = objectStore;
+      this.key = key;
+      this.tail = tail;
+      this.fetched = tail.getBytes().length;
+    }
+
+    private synchronized void fetch(final long position, final byte[] bytes, final int start, final int length) {
+      int head = (int) Math.max(0, Math.min(length, tail.getOffset() - position));
+      if (head > 0) {
+        System.arraycopy(objectStore.getRange(key, position, head), 0, bytes, start, head);
+        fetched += head;
+      }
+      if (head < length) {
+        System.arraycopy(tail.getBytes(), (int) (position + head - tail.getOffset()), bytes, start + head, length - head);
+      }
+    }
+
+    private long getFetched() {
+      return fetched;
+    }
+
+    @Override
+    public long getLength() {
+      return tail.getLength();
+    }
+
+    @Override
+    public SeekableInputStream newStream() {
+      return new SeekableInputStream() {
+
+        private long pos;
+
+        @Override
+        public long getPos() {
+          return pos;
+        }
+
+        @Override
+        public int read() throws IOException {
+          if (pos >= getLength()) {
+            return -1;
+          }
+          byte[] bytes = new byte[1];
+          readFully(bytes);
+          return bytes[0] & 0xff;
+        }
+
+        @Override
+        public int read(final byte[] bytes, final int start, final int length) throws IOException {
+          if (length == 0) {
+            return 0;
+          }
+          int count = (int) Math.min(length, getLength() - pos);
+          if (count <= 0) {
+            return -1;
+          }
+          readFully(bytes, start, count);
+          return count;
+        }
+
+        @Override
+        public int read(final ByteBuffer buffer) throws IOException {
+          int count = (int) Math.min(buffer.remaining(), getLength() - pos);
+          if (count <= 0) {
+            return buffer.hasRemaining() ? -1 : 0;
+          }
+          byte[] bytes = new byte[count];
+          readFully(bytes);
+          buffer.put(bytes);
+          return count;
+        }
+
+        @Override
+        public void readFully(final byte[] bytes) throws IOException {
+          readFully(bytes, 0, bytes.length);
+        }
+
+        @Override
+        public void readFully(final byte[] bytes, final int start, final int length) throws IOException {
+          if (pos + length > getLength()) {
+            throw new EOFException("read of %s bytes at %s past end of %s".formatted(length, pos, key));
+          }
+          fetch(pos, bytes, start, length);
+          pos += length;
+        }
+
+        @Override
+        public void readFully(final ByteBuffer buffer) throws IOException {
+          byte[] bytes = new byte[buffer.remaining()];
+          readFully(bytes);
+          buffer.put(bytes);
+        }
+
+        @Override
+        public void seek(final long newPos) throws IOException {
+          if (newPos < 0 || newPos > getLength()) {
+            throw new IOException("seek to %s outside of %s bytes".formatted(newPos, getLength()));
+          }
+          pos = newPos;
+        }
+
+      };
+    }
+
+  }
+
+  private static final String PARQUET_KEY = "raw/stock/localDate=%s/data.parquet";
+
+  private static final int INITIAL_CAPACITY = 512;
+
+  private static final int TAIL_BYTES = 64 * 1024;
+
+  private static FilterPredicate getFilter(final StockQuery query) {
+    IntColumn localDate = FilterApi.intColumn(StockRecord.LOCAL_DATE);
+    FilterPredicate filter = FilterApi.and(FilterApi.gtEq(localDate, (int) query.getFromDate().toEpochDay()),
+        FilterApi.lt(localDate, (int) query.getToDate().toEpochDay()));
+    if (!query.getSymbols().isEmpty()) {
+      Set<Binary> ids = query.getSymbols().stream().map(Binary::fromString).collect(Collectors.toSet());
+      filter = FilterApi.and(filter, FilterApi.in(FilterApi.binaryColumn(StockRecord.ID), ids));
+    }
+    return filter;
+  }
+
+  private static MessageType getProjection(final MessageType schema, final List<String> columns) {
+    return new MessageType(schema.getName(), columns.stream().filter(schema::containsField).map(schema::getType).toList());
+  }
+
+  public static StockBatch read(final byte[] bytes) throws IOException {
+    return read(new ObjectInputFile(null, null, new ObjectRange(bytes, 0, bytes.length)));
+  }
+
+  private static StockBatch read(final InputFile file) throws IOException {
+    StockBatch batch = new StockBatch(INITIAL_CAPACITY);
+    try (ParquetFileReader reader = new ParquetFileReader(file, ParquetReadOptions.builder().build())) {
+      MessageType schema = reader.getFileMetaData().getSchema();
+      PageReadStore rowGroup;
+      while ((rowGroup = reader.readNextRowGroup()) != null) {
+        batch.read(rowGroup, schema, reader.getFileMetaData().getCreatedBy(), null);
+      }
+    }
+    return batch;
+  }
+
+  public static StockBatch read(final ObjectStore objectStore, final String key) throws IOException {
+    byte[] bytes = objectStore.get(key);
+    return bytes == null ? new StockBatch(0) : read(bytes);
+  }
+
+  private final ObjectStore objectStore;
+
+  private final TradingCalendar tradingCalendar;
+
+  private final LayoutManifest layout;
+
+  private final String keyFormat;
+
+  private final int concurrency;
+
+  private final Metrics metrics;
+
+  public StockReader(ObjectStore objectStore, TradingCalendar tradingCalendar, int concurrency, Metrics metrics) {
+    this(objectStore, tradingCalendar, new LayoutManifest(objectStore), PARQUET_KEY, concurrency, metrics);
+  }
+
+  public StockReader(ObjectStore objectStore, TradingCalendar tradingCalendar, String keyFormat, int concurrency, Metrics metrics) {
+    this(objectStore, tradingCalendar, LayoutManifest.none(), keyFormat, concurrency, metrics);
+  }
+
+  public StockReader(ObjectStore objectStore, TradingCalendar tradingCalendar, LayoutManifest layout, String keyFormat, int concurrency, Metrics metrics) {
+    this.objectStore = objectStore;
+    this.tradingCalendar = tradingCalendar;
+    this.layout = layout;
+    this.keyFormat = keyFormat;
+    this.concurrency = Math.max(1, concurrency);
+    this.metrics = metrics;
+  }
+
+  public StockBatch read(final Collection<String> keys, final StockQuery query) {
+    List<Future<StockBatch>> futures = new ArrayList<>(keys.size());
+    Semaphore permits = new Semaphore(concurrency);
+    try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+      for (String key : keys) {
+        futures.add(executor.submit(() -> {
+          permits.acquire();
+          try {
+            return read(key, query);
+          } finally {
+            permits.release();
+          }
+        }));
+      }
+      StockBatch batch = new StockBatch(keys.size() * Math.max(1, query.getSymbols().size()));
+      for (Future<StockBatch> future : futures) {
+        batch.addAll(future.get());
+      }
+      return batch;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new RuntimeException(e);
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof RuntimeException runtimeException) {
+        throw runtimeException;
+      } else {
+        throw new RuntimeException(e.getCause());
+      }
+    }
+  }
+
+  public StockBatch read(final StockQuery query) {
+    Set<String> keys = new LinkedHashSet<>();
+    for (LocalDate date : tradingCalendar.getTradingDays(query.getFromDate(), query.getToDate())) {
+      YearMonth month = YearMonth.from(date);
+      keys.add(layout.isCompacted(month) ? layout.get(month) : keyFormat.formatted(date));
+    }
+    return read(keys, query);
+  }
+
+  private StockBatch read(final String key, final StockQuery query) throws IOException {
+    ObjectRange tail = objectStore.getTail(key, TAIL_BYTES);
+    if (tail == null) {
+      return new StockBatch(0);
+    }
+    ObjectInputFile file = new ObjectInputFile(objectStore, key, tail);
+    ParquetReadOptions options = ParquetReadOptions.builder().useStatsFilter().useDictionaryFilter().useColumnIndexFilter()
+        .withRecordFilter(FilterCompat.get(getFilter(query))).build();
+    long start = metrics.start();
+    StockBatch batch = new StockBatch(query.getSymbols().isEmpty() ? INITIAL_CAPACITY : query.getSymbols().size());
+    try (ParquetFileReader reader = new ParquetFileReader(file, options)) {
+      List<BlockMetaData> rowGroups = reader.getFooter().getBlocks();
+      metrics.hit(Metrics.QUERY_PRUNED, reader.getRowGroups().isEmpty());
+      metrics.count(Metrics.QUERY_ROW_GROUPS_SKIPPED, rowGroups.size() - reader.getRowGroups().size());
+      MessageType projection = getProjection(reader.getFileMetaData().getSchema(), query.getColumns());
+      reader.setRequestedSchema(projection);
+      PageReadStore rowGroup;
+      while ((rowGroup = reader.readNextFilteredRowGroup()) != null) {
+        batch.read(rowGroup, projection, reader.getFileMetaData().getCreatedBy(), query);
+      }
+      metrics.count(Metrics.QUERY_ROWS_SKIPPED, rowGroups.stream().mapToLong(BlockMetaData::getRowCount).sum() - batch.size());
+    }
+    metrics.stop(Metrics.QUERY_SCAN, start);
+    metrics.count(Metrics.QUERY_BYTES, file.getFetched());
+    return batch;
+  }
+
+}
@@ -12,13 +12,13 @@ import dev.rkoch.aws.s3.parquet.ParquetRecord;
 
 public class StockRecord implements ParquetRecord<StockRecord> {
 
-  private static final String LOCAL_DATE = "localDate";
-  private static final String ID = "id";
-  private static final String CLOSE = "close";
-  private static final String HIGH = "high";
-  private static final String LOW = "low";
-  private static final String OPEN = "open";
-  private static final String VOLUME = "volume";
+  static final String LOCAL_DATE = "localDate";
+  static final String ID = "id";
+  static final String CLOSE = "close";
+  static final String HIGH = "high";
+  static final String LOW = "low";
+  static final String OPEN = "open";
+  static final String VOLUME = "volume";
 
   public static StockRecord of(final LocalDate localDate, final String id, final double close, final double high, final double low, final double open,
       final long volume) {
@@ -62,7 +62,7 @@ public class StockRecord implements ParquetRecord<StockRecord> {
 
   public StockRecord(LocalDate localDate, String id, double close, double high, double low, double open, long volume) {
     this.localDate = localDate;
-    this.id = id;
+    this.id = SymbolDictionary.symbols().intern(id);
     this.close = close;
     this.high = high;
     this.low = low;
@@ -179,7 +179,7 @@ public class StockRecord implements ParquetRecord<StockRecord> {
   }
 
   public void setId(String id) {
-    this.id = id;
+    this.id = SymbolDictionary.symbols().intern(id);
   }
 
   public void setLocalDate(LocalDate localDate) {
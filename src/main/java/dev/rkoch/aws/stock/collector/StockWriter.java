@@ -0,0 +1,171 @@
+package dev.rkoch.aws.stock.collector;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Map;
+import org.apache.parquet.column.ColumnDescriptor;
+import org.apache.parquet.column.ColumnWriteStore;
+import org.apache.parquet.column.ColumnWriter;
+import org.apache.parquet.column.ParquetProperties;
+import org.apache.parquet.column.ParquetProperties.WriterVersion;
+import org.apache.parquet.conf.PlainParquetConfiguration;
+import org.apache.parquet.hadoop.CodecFactory;
+import org.apache.parquet.hadoop.ColumnChunkPageWriteStore;
+import org.apache.parquet.hadoop.ParquetFileWriter;
+import org.apache.parquet.hadoop.ParquetFileWriter.Mode;
+import org.apache.parquet.hadoop.metadata.CompressionCodecName;
+import org.apache.parquet.io.OutputFile;
+import org.apache.parquet.io.PositionOutputStream;
+import org.apache.parquet.io.api.Binary;
+import org.apache.parquet.schema.MessageType;
+import dev.rkoch.aws.stock.collector.store.ObjectStore;
+
+public class StockWriter {
+
+  private static class ByteArrayOutputFile implements OutputFile {
+
+    private final ByteArrayOutputStream bytes;
+
+    private ByteArrayOutputFile(int capacity) {
+      this.bytes = new ByteArrayOutputStream(capacity);
+    }
+
+    @Override
+    public PositionOutputStream create(final long blockSizeHint) {
+      return createOrOverwrite(blockSizeHint);
+    }
+
+    @Override
+    public PositionOutputStream createOrOverwrite(final long blockSizeHint) {
+      bytes.reset();
+      return new PositionOutputStream() {
+
+        @Override
+        public long getPos() {
+          return bytes.size();
+        }
+
+        @Override
+        public void write(final int b) {
+          bytes.write(b);
+        }
+
+        @Override
+        public void write(final byte[] b, final int off, final int len) {
+          bytes.write(b, off, len);
+        }
+
+      };
+    }
+
+    @Override
+    public long defaultBlockSize() {
+      return 0;
+    }
+
+    @Override
+    public String getPath() {
+      return null;
+    }
+
+    private byte[] toByteArray() {
+      return bytes.toByteArray();
+    }
+
+    @Override
+    public boolean supportsBlockSize() {
+      return false;
+    }
+
+  }
+
+  private static final MessageType SCHEMA = new StockRecord().getSchema();
+
+  private static final CompressionCodecName CODEC = CompressionCodecName.SNAPPY;
+
+  private static final int PAGE_ROWS = 1_000;
+
+  private static final int BYTES_PER_ROW = 48;
+
+  private static final ParquetProperties PROPERTIES =
+      ParquetProperties.builder().withWriterVersion(WriterVersion.PARQUET_2_0).withPageRowCountLimit(PAGE_ROWS).build();
+
+  private static final CodecFactory CODEC_FACTORY = new CodecFactory(new PlainParquetConfiguration(), PROPERTIES.getPageSizeThreshold());
+
+  public static byte[] write(final StockBatch batch) throws IOException {
+    ByteArrayOutputFile file = new ByteArrayOutputFile(batch.size() * BYTES_PER_ROW);
+    ParquetFileWriter fileWriter = new ParquetFileWriter(file, SCHEMA, Mode.OVERWRITE, Long.MAX_VALUE, 0, null, PROPERTIES);
+    fileWriter.start();
+    if (batch.size() == 0) {
+      fileWriter.end(Map.of());
+      return file.toByteArray();
+    }
+    fileWriter.startBlock(batch.size());
+    ColumnChunkPageWriteStore pageStore = new ColumnChunkPageWriteStore(CODEC_FACTORY.getCompressor(CODEC), SCHEMA, PROPERTIES.getAllocator(),
+        PROPERTIES.getColumnIndexTruncateLength(), PROPERTIES.getPageWriteChecksumEnabled());
+    ColumnWriteStore columnStore = PROPERTIES.newColumnWriteStore(SCHEMA, pageStore, pageStore);
+    for (int from = 0; from < batch.size(); from += PAGE_ROWS) {
+      int to = Math.min(batch.size(), from + PAGE_ROWS);
+      for (ColumnDescriptor column : SCHEMA.getColumns()) {
+        write(columnStore.getColumnWriter(column), column.getPath()[0], batch, from, to);
+      }
+      for (int i = from; i < to; i++) {
+        columnStore.endRecord();
+      }
+    }
+    columnStore.flush();
+    pageStore.flushToFileWriter(fileWriter);
+    fileWriter.endBlock();
+    fileWriter.end(Map.of());
+    columnStore.close();
+    pageStore.close();
+    return file.toByteArray();
+  }
+
+  private static void write(final ColumnWriter writer, final String name, final StockBatch batch, final int from, final int to) {
+    switch (name) {
+      case StockRecord.LOCAL_DATE:
+        for (int i = from; i < to; i++) {
+          writer.write(batch.getEpochDay(i), 0, 0);
+        }
+        break;
+      case StockRecord.ID:
+        for (int i = from; i < to; i++) {
+          writer.write(Binary.fromString(batch.getSymbol(i)), 0, 0);
+        }
+        break;
+      case StockRecord.CLOSE:
+        for (int i = from; i < to; i++) {
+          writer.write(batch.getClose(i), 0, 0);
+        }
+        break;
+      case StockRecord.HIGH:
+        for (int i = from; i < to; i++) {
+          writer.write(batch.getHigh(i), 0, 0);
+        }
+        break;
+      case StockRecord.LOW:
+        for (int i = from; i < to; i++) {
+          writer.write(batch.getLow(i), 0, 0);
+        }
+        break;
+      case StockRecord.OPEN:
+        for (int i = from; i < to; i++) {
+          writer.write(batch.getOpen(i), 0, 0);
+        }
+        break;
+      case StockRecord.VOLUME:
+        for (int i = from; i < to; i++) {
+          writer.write(batch.getVolume(i), 0, 0);
+        }
+        break;
+      default:
+        throw new IllegalArgumentException("Unexpected column: " + name);
+    }
+  }
+
+  public static void write(final ObjectStore objectStore, final String key, final StockBatch batch) throws IOException {
+    objectStore.put(key, write(batch));
+  }
+
+}
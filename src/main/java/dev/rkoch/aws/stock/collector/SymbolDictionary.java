@@ -0,0 +1,76 @@
+package dev.rkoch.aws.stock.collector;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+public class SymbolDictionary {
+
+  private static final int INITIAL_CAPACITY = 1024;
+
+  private static final SymbolDictionary SECTORS = new SymbolDictionary();
+
+  private static final SymbolDictionary SYMBOLS = new SymbolDictionary();
+
+  public static SymbolDictionary sectors() {
+    return SECTORS;
+  }
+
+  public static SymbolDictionary symbols() {
+    return SYMBOLS;
+  }
+
+  private final Map<String, Integer> codes = new ConcurrentHashMap<>();
+
+  private volatile String[] values = new String[INITIAL_CAPACITY];
+
+  private int size;
+
+  private SymbolDictionary() {
+
+  }
+
+  private synchronized int add(final String value) {
+    Integer code = codes.get(value);
+    if (code != null) {
+      return code;
+    }
+    if (size == values.length) {
+      values = Arrays.copyOf(values, size * 2);
+    }
+    values[size] = value;
+    codes.put(value, size);
+    return size++;
+  }
+
+  public int code(final String value) {
+    Integer code = codes.get(value);
+    return code == null ? add(value) : code;
+  }
+
+  public int find(final String value) {
+    Integer code = value == null ? null : codes.get(value);
+    return code == null ? -1 : code;
+  }
+
+  public String get(final int code) {
+    return values[code];
+  }
+
+  public String intern(final String value) {
+    return value == null ? null : get(code(value));
+  }
+
+  public synchronized int size() {
+    return size;
+  }
+
+  synchronized void truncate(final int size) {
+    for (int i = size; i < this.size; i++) {
+      codes.remove(values[i]);
+      values[i] = null;
+    }
+    this.size = Math.min(this.size, size);
+  }
+
+}
@@ -21,8 +21,8 @@ public class SymbolRecord implements ParquetRecord<SymbolRecord> {
   }
 
   public SymbolRecord(String id, String sector) {
-    this.id = id;
-    this.sector = sector;
+    this.id = SymbolDictionary.symbols().intern(id);
+    this.sector = SymbolDictionary.sectors().intern(sector);
   }
 
   @Override
@@ -80,11 +80,11 @@ public class SymbolRecord implements ParquetRecord<SymbolRecord> {
   }
 
   public void setId(String id) {
-    this.id = id;
+    this.id = SymbolDictionary.symbols().intern(id);
   }
 
   public void setSector(String sector) {
-    this.sector = sector;
+    this.sector = SymbolDictionary.sectors().intern(sector);
   }
 
 }
@@ -1,49 +1,70 @@
 package dev.rkoch.aws.stock.collector;
 
-import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Objects;
 import dev.rkoch.aws.s3.parquet.S3Parquet;
+import dev.rkoch.aws.stock.collector.store.ObjectStore;
 
 public class Symbols {
 
+  private static class Snapshot {
+
+    private final String eTag;
+
+    private final List<SymbolRecord> records;
+
+    private final List<String> symbols;
+
+    private final int[] indexes;
+
+    private Snapshot(String eTag, List<SymbolRecord> records) {
+      this.eTag = eTag;
+      this.records = List.copyOf(records);
+      this.symbols = this.records.stream().map((record) -> record.getId()).toList();
+      SymbolDictionary dictionary = SymbolDictionary.symbols();
+      for (String symbol : symbols) {
+        dictionary.code(symbol);
+      }
+      this.indexes = new int[dictionary.size()];
+      Arrays.fill(indexes, -1);
+      for (int i = 0; i < symbols.size(); i++) {
+        int code = dictionary.find(symbols.get(i));
+        if (indexes[code] < 0) {
+          indexes[code] = i;
+        }
+      }
+    }
+
+  }
+
   private static final String BUCKET_NAME = "dev-rkoch-spre";
 
   private static final String PARQUET_KEY = "symbols/spx.parquet";
 
-  private static final int INITIAL_CAPACITY = 503;
-
-  private static final List<String> SYMBOLS = new ArrayList<>(INITIAL_CAPACITY);
+  private static final Object LOCK = new Object();
 
-  private static final List<SymbolRecord> RECORDS = new ArrayList<>(INITIAL_CAPACITY);
+  private static volatile Snapshot current;
 
   private final S3Parquet s3Parquet;
 
-  public Symbols(S3Parquet s3Parquet) {
+  private final ObjectStore objectStore;
+
+  private Snapshot snapshot;
+
+  public Symbols(S3Parquet s3Parquet, ObjectStore objectStore) {
     this.s3Parquet = s3Parquet;
+    this.objectStore = objectStore;
   }
 
   public List<String> get() {
-    if (SYMBOLS.isEmpty()) {
-      SYMBOLS.addAll(getRecords().stream().map((record) -> record.getId()).toList());
-    }
-    return SYMBOLS;
-  }
-
-  public List<SymbolRecord> getRecords() {
-    if (RECORDS.isEmpty()) {
-      try {
-        RECORDS.addAll(s3Parquet.read(BUCKET_NAME, PARQUET_KEY, SymbolRecord.class));
-      } catch (Exception e) {
-        throw new RuntimeException(e.getMessage(), e);
-      }
-    }
-    return RECORDS;
+    return getSnapshot().symbols;
   }
 
   public List<String> getAfter(final String fromSymbolAfter) {
     List<String> symbols = get();
     if (fromSymbolAfter != null && !fromSymbolAfter.isBlank()) {
-      int indexOf = symbols.indexOf(fromSymbolAfter);
+      int indexOf = indexOf(fromSymbolAfter);
       if (indexOf != -1) {
         return symbols.subList(indexOf + 1, symbols.size());
       }
@@ -55,8 +76,60 @@ public class Symbols {
     return get().getLast();
   }
 
+  public SymbolRecord getRecord(final String symbol) {
+    int index = indexOf(symbol);
+    return index < 0 ? null : getRecords().get(index);
+  }
+
+  public List<SymbolRecord> getRecords() {
+    return getSnapshot().records;
+  }
+
+  private synchronized Snapshot getSnapshot() {
+    if (snapshot == null) {
+      snapshot = revalidate();
+    }
+    return snapshot;
+  }
+
+  public int indexOf(final String symbol) {
+    int[] indexes = getSnapshot().indexes;
+    int code = SymbolDictionary.symbols().find(symbol);
+    return code < 0 || code >= indexes.length ? -1 : indexes[code];
+  }
+
+  private Snapshot load(final String eTag) {
+    try {
+      return new Snapshot(eTag, s3Parquet.read(BUCKET_NAME, PARQUET_KEY, SymbolRecord.class));
+    } catch (Exception e) {
+      throw new RuntimeException(e.getMessage(), e);
+    }
+  }
+
+  private Snapshot revalidate() {
+    String eTag = objectStore.getETag(PARQUET_KEY);
+    Snapshot cached = current;
+    if (cached != null && eTag != null && Objects.equals(cached.eTag, eTag)) {
+      return cached;
+    }
+    synchronized (LOCK) {
+      cached = current;
+      if (cached == null || eTag == null || !Objects.equals(cached.eTag, eTag)) {
+        cached = load(eTag);
+        current = cached;
+      }
+      return cached;
+    }
+  }
+
   public void setRecords(List<SymbolRecord> records) throws Exception {
     s3Parquet.write(BUCKET_NAME, PARQUET_KEY, records);
+    synchronized (LOCK) {
+      current = null;
+    }
+    synchronized (this) {
+      snapshot = null;
+    }
   }
 
 }
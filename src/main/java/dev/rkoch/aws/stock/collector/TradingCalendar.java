@@ -0,0 +1,172 @@
+package dev.rkoch.aws.stock.collector;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.Month;
+import java.time.temporal.TemporalAdjusters;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import dev.rkoch.aws.stock.collector.store.ObjectStore;
+import dev.rkoch.aws.stock.collector.store.PropertiesStore;
+
+public class TradingCalendar {
+
+  private static final String KEY = "state/calendar/overrides.properties";
+
+  private static final String CLOSED = "closed";
+
+  private static final String OPEN = "open";
+
+  private static final Set<LocalDate> SPECIAL_CLOSURES = Set.of( //
+      LocalDate.of(1994, 4, 27), //
+      LocalDate.of(2001, 9, 11), //
+      LocalDate.of(2001, 9, 12), //
+      LocalDate.of(2001, 9, 13), //
+      LocalDate.of(2001, 9, 14), //
+      LocalDate.of(2004, 6, 11), //
+      LocalDate.of(2007, 1, 2), //
+      LocalDate.of(2012, 10, 29), //
+      LocalDate.of(2012, 10, 30), //
+      LocalDate.of(2018, 12, 5), //
+      LocalDate.of(2025, 1, 9) //
+  );
+
+  private static final Map<Integer, BitSet> YEARS = new ConcurrentHashMap<>();
+
+  private static BitSet computeYear(final int year) {
+    LocalDate first = LocalDate.of(year, 1, 1);
+    BitSet tradingDays = new BitSet(first.lengthOfYear());
+    for (LocalDate date = first; date.getYear() == year; date = date.plusDays(1)) {
+      if (!isWeekend(date)) {
+        tradingDays.set(date.getDayOfYear() - 1);
+      }
+    }
+    for (LocalDate holiday : getHolidays(year)) {
+      if (holiday.getYear() == year) {
+        tradingDays.clear(holiday.getDayOfYear() - 1);
+      }
+    }
+    return tradingDays;
+  }
+
+  static LocalDate getEasterSunday(final int year) {
+    int a = year % 19;
+    int b = year / 100;
+    int c = year % 100;
+    int d = b / 4;
+    int e = b % 4;
+    int f = (b + 8) / 25;
+    int g = (b - f + 1) / 3;
+    int h = (19 * a + b - d - g + 15) % 30;
+    int i = c / 4;
+    int k = c % 4;
+    int l = (32 + 2 * e + 2 * i - h - k) % 7;
+    int m = (a + 11 * h + 22 * l) / 451;
+    int month = (h + l - 7 * m + 114) / 31;
+    int day = (h + l - 7 * m + 114) % 31 + 1;
+    return LocalDate.of(year, month, day);
+  }
+
+  static List<LocalDate> getHolidays(final int year) {
+    List<LocalDate> holidays = new ArrayList<>();
+    LocalDate newYear = LocalDate.of(year, Month.JANUARY, 1);
+    if (newYear.getDayOfWeek() != DayOfWeek.SATURDAY) {
+      holidays.add(observed(newYear));
+    }
+    if (year >= 1998) {
+      holidays.add(nth(year, Month.JANUARY, DayOfWeek.MONDAY, 3));
+    }
+    holidays.add(nth(year, Month.FEBRUARY, DayOfWeek.MONDAY, 3));
+    holidays.add(getEasterSunday(year).minusDays(2));
+    holidays.add(LocalDate.of(year, Month.MAY, 1).with(TemporalAdjusters.lastInMonth(DayOfWeek.MONDAY)));
+    if (year >= 2022) {
+      holidays.add(observed(LocalDate.of(year, Month.JUNE, 19)));
+    }
+    holidays.add(observed(LocalDate.of(year, Month.JULY, 4)));
+    holidays.add(nth(year, Month.SEPTEMBER, DayOfWeek.MONDAY, 1));
+    holidays.add(nth(year, Month.NOVEMBER, DayOfWeek.THURSDAY, 4));
+    holidays.add(observed(LocalDate.of(year, Month.DECEMBER, 25)));
+    SPECIAL_CLOSURES.stream().filter((date) -> date.getYear() == year).forEach(holidays::add);
+    return holidays;
+  }
+
+  private static boolean isWeekend(final LocalDate date) {
+    DayOfWeek dayOfWeek = date.getDayOfWeek();
+    return dayOfWeek == DayOfWeek.SATURDAY || dayOfWeek == DayOfWeek.SUNDAY;
+  }
+
+  private static LocalDate nth(final int year, final Month month, final DayOfWeek dayOfWeek, final int n) {
+    return LocalDate.of(year, month, 1).with(TemporalAdjusters.dayOfWeekInMonth(n, dayOfWeek));
+  }
+
+  private static LocalDate observed(final LocalDate holiday) {
+    return switch (holiday.getDayOfWeek()) {
+      case SATURDAY -> holiday.minusDays(1);
+      case SUNDAY -> holiday.plusDays(1);
+      default -> holiday;
+    };
+  }
+
+  private final ObjectStore objectStore;
+
+  private final Map<LocalDate, Boolean> overrides = new TreeMap<>();
+
+  private final Map<LocalDate, Boolean> learned = new TreeMap<>();
+
+  public TradingCalendar(ObjectStore objectStore) {
+    this.objectStore = objectStore;
+    load(PropertiesStore.load(objectStore.get(KEY)));
+  }
+
+  public List<LocalDate> getTradingDays(final LocalDate startDate, final LocalDate endDate) {
+    List<LocalDate> dates = new ArrayList<>();
+    for (LocalDate date = next(startDate); date.isBefore(endDate); date = next(date.plusDays(1))) {
+      dates.add(date);
+    }
+    return dates;
+  }
+
+  public synchronized boolean isTradingDay(final LocalDate date) {
+    Boolean override = overrides.get(date);
+    if (override != null) {
+      return override;
+    }
+    return YEARS.computeIfAbsent(date.getYear(), TradingCalendar::computeYear).get(date.getDayOfYear() - 1);
+  }
+
+  public synchronized void learn(final LocalDate date, final boolean tradingDay) {
+    if (isTradingDay(date) != tradingDay) {
+      overrides.put(date, tradingDay);
+      learned.put(date, tradingDay);
+    }
+  }
+
+  private void load(final Properties properties) {
+    overrides.clear();
+    properties.forEach((date, value) -> overrides.put(LocalDate.parse((String) date), OPEN.equals(value)));
+    overrides.putAll(learned);
+  }
+
+  public LocalDate next(final LocalDate date) {
+    LocalDate next = date;
+    while (!isTradingDay(next)) {
+      next = next.plusDays(1);
+    }
+    return next;
+  }
+
+  public synchronized void save() {
+    if (learned.isEmpty()) {
+      return;
+    }
+    load(PropertiesStore.update(objectStore, KEY, (properties) -> learned.forEach((date, tradingDay) -> properties.setProperty(date.toString(), tradingDay ? OPEN : CLOSED))));
+    learned.clear();
+  }
+
+}
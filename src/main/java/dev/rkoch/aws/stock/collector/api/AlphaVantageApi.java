@@ -1,57 +1,127 @@
 package dev.rkoch.aws.stock.collector.api;
 
+import java.time.Duration;
+import java.time.Instant;
 import java.time.LocalDate;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
 import javax.naming.LimitExceededException;
 import com.crazzyghost.alphavantage.AlphaVantage;
 import com.crazzyghost.alphavantage.Config;
 import com.crazzyghost.alphavantage.parameters.OutputSize;
-import com.crazzyghost.alphavantage.timeseries.response.StockUnit;
 import com.crazzyghost.alphavantage.timeseries.response.TimeSeriesResponse;
+import dev.rkoch.aws.stock.collector.StockHistory;
 import dev.rkoch.aws.stock.collector.StockRecord;
+import dev.rkoch.aws.stock.collector.cache.CacheEntry;
+import dev.rkoch.aws.stock.collector.cache.HistoryCache;
+import dev.rkoch.aws.stock.collector.cache.MemoryHistoryCache;
 import dev.rkoch.aws.stock.collector.exception.NoDataForDateException;
+import dev.rkoch.aws.stock.collector.metrics.Metrics;
 
 public class AlphaVantageApi {
 
   private static final String ALPHAVANTAGE_API_KEY = "ALPHAVANTAGE_API_KEY";
 
+  private static final Duration DEFAULT_TTL = Duration.ofHours(12);
+
+  private static final int COMPACT_DAYS = 140;
+
   private final AlphaVantage alphaVantage;
 
-  private final Map<String, List<StockUnit>> cache = new HashMap<>();
+  private final Map<String, StockHistory> histories = new ConcurrentHashMap<>();
+
+  private final HistoryCache cache;
+
+  private final Duration ttl;
+
+  private final ReentrantLock lock = new ReentrantLock();
+
+  private final Metrics metrics;
 
   public AlphaVantageApi() {
+    this(new MemoryHistoryCache(Integer.MAX_VALUE), DEFAULT_TTL, System.getenv(ALPHAVANTAGE_API_KEY), new Metrics());
+  }
+
+  public AlphaVantageApi(HistoryCache cache, Duration ttl, String apiKey, Metrics metrics) {
+    this.cache = cache;
+    this.ttl = ttl;
+    this.metrics = metrics;
     alphaVantage = AlphaVantage.api();
-    alphaVantage.init(Config.builder().key(System.getenv(ALPHAVANTAGE_API_KEY)).build());
+    alphaVantage.init(Config.builder().key(apiKey).build());
   }
 
-  public StockRecord getData(final LocalDate date, final String symbol) throws LimitExceededException, NoDataForDateException {
-    for (StockUnit stockUnit : getStockUnits(symbol)) {
-      if (LocalDate.parse(stockUnit.getDate()).isEqual(date)) {
-        return StockRecord.of(symbol, stockUnit);
+  private StockHistory fetch(final String symbol, final OutputSize outputSize) throws LimitExceededException {
+    String apiSymbol = symbol.replace(".", "-");
+    long start = metrics.start();
+    TimeSeriesResponse response = alphaVantage.timeSeries().daily().forSymbol(apiSymbol).outputSize(outputSize).fetchSync();
+    metrics.stop(Metrics.ALPHAVANTAGE_REQUEST, start);
+    String errorMessage = response.getErrorMessage();
+    if (errorMessage != null && !errorMessage.isBlank()) {
+      throw new LimitExceededException("alphavantage limit exceeded for %s".formatted(LocalDate.now()));
+    }
+    return StockHistory.of(symbol, response.getStockUnits().stream().map((stockUnit) -> StockRecord.of(symbol, stockUnit)).toList());
+  }
+
+  public StockHistory getCachedHistory(final String symbol) {
+    StockHistory history = histories.get(symbol);
+    if (history == null) {
+      CacheEntry entry = cache.get(symbol);
+      if (entry != null && entry.isFresh(ttl)) {
+        history = entry.getHistory();
+        histories.put(symbol, history);
       }
+      metrics.hit(Metrics.ALPHAVANTAGE_CACHE, history != null);
+    }
+    return history;
+  }
+
+  public StockRecord getData(final LocalDate date, final String symbol) throws LimitExceededException, NoDataForDateException {
+    StockRecord stockRecord = getHistory(symbol).get(date);
+    if (stockRecord == null) {
+      throw new NoDataForDateException("no data found for %s on %s".formatted(symbol, date));
     }
-    throw new NoDataForDateException("no data found for %s on %s".formatted(symbol, date));
+    return stockRecord;
   }
 
   public List<StockRecord> getData(final String symbol) throws LimitExceededException {
-    return getStockUnits(symbol).stream().map((stockUnit) -> StockRecord.of(symbol, stockUnit)).toList();
+    return getHistory(symbol).getRecords();
   }
 
-  private List<StockUnit> getStockUnits(final String symbol) throws LimitExceededException {
-    List<StockUnit> stockUnits = cache.get(symbol);
-    if (stockUnits == null) {
-      String apiSymbol = symbol.replace(".", "-");
-      TimeSeriesResponse response = alphaVantage.timeSeries().daily().forSymbol(apiSymbol).outputSize(OutputSize.FULL).fetchSync();
-      String errorMessage = response.getErrorMessage();
-      if (errorMessage != null && !errorMessage.isBlank()) {
-        throw new LimitExceededException("alphavantage limit exceeded for %s".formatted(LocalDate.now()));
+  public StockHistory getHistory(final String symbol) throws LimitExceededException {
+    StockHistory history = getCachedHistory(symbol);
+    if (history != null) {
+      return history;
+    }
+    lock.lock();
+    try {
+      history = getCachedHistory(symbol);
+      if (history != null) {
+        return history;
+      }
+      Instant fetchedAt = Instant.now();
+      CacheEntry entry = cache.get(symbol);
+      if (isCompactSufficient(entry)) {
+        entry = entry.merge(fetch(symbol, OutputSize.COMPACT), entry.getFromDate(), fetchedAt);
+      } else {
+        history = fetch(symbol, OutputSize.FULL);
+        entry = new CacheEntry(history, history.isEmpty() ? LocalDate.EPOCH : history.getFirstDate(), fetchedAt);
       }
-      stockUnits = response.getStockUnits();
-      cache.put(symbol, stockUnits);
+      cache.put(symbol, entry);
+      history = entry.getHistory();
+      histories.put(symbol, history);
+      return history;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private boolean isCompactSufficient(final CacheEntry entry) {
+    if (entry == null || entry.getHistory().isEmpty()) {
+      return false;
     }
-    return stockUnits;
+    return entry.getHistory().getLastDate().isAfter(LocalDate.now().minusDays(COMPACT_DAYS));
   }
 
 }
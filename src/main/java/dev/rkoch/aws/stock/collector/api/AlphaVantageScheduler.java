@@ -0,0 +1,89 @@
+package dev.rkoch.aws.stock.collector.api;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import javax.naming.LimitExceededException;
+import dev.rkoch.aws.stock.collector.AlphaVantageUsage;
+import dev.rkoch.aws.stock.collector.StockHistory;
+import dev.rkoch.aws.stock.collector.exception.SymbolDeferredException;
+
+public class AlphaVantageScheduler implements AutoCloseable {
+
+  private static final double SECONDS_PER_MINUTE = 60.0;
+
+  private final AlphaVantageApi alphaVantageApi;
+
+  private final RateLimiter rateLimiter;
+
+  private final int dailyBudget;
+
+  private final AlphaVantageUsage usage;
+
+  private final Map<String, CompletableFuture<StockHistory>> requests = new ConcurrentHashMap<>();
+
+  private final ExecutorService executor = Executors.newSingleThreadExecutor(Thread.ofVirtual().factory());
+
+  private volatile boolean exhausted;
+
+  public AlphaVantageScheduler(AlphaVantageApi alphaVantageApi, int requestsPerMinute, int requestsPerDay, boolean exhausted, AlphaVantageUsage usage) {
+    this.alphaVantageApi = alphaVantageApi;
+    this.rateLimiter = new RateLimiter(requestsPerMinute / SECONDS_PER_MINUTE, 1);
+    this.dailyBudget = requestsPerDay;
+    this.exhausted = exhausted;
+    this.usage = usage;
+  }
+
+  @Override
+  public void close() {
+    executor.shutdownNow();
+  }
+
+  private StockHistory fetch(final String symbol) {
+    StockHistory history = alphaVantageApi.getCachedHistory(symbol);
+    if (history != null) {
+      return history;
+    }
+    if (exhausted || usage.get() >= dailyBudget) {
+      throw new CompletionException(new SymbolDeferredException(symbol));
+    }
+    try {
+      rateLimiter.acquire();
+      usage.increment();
+      return alphaVantageApi.getHistory(symbol);
+    } catch (LimitExceededException e) {
+      exhausted = true;
+      throw new CompletionException(new SymbolDeferredException(symbol));
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new CompletionException(new SymbolDeferredException(symbol));
+    }
+  }
+
+  public StockHistory get(final String symbol) throws SymbolDeferredException {
+    try {
+      return submit(symbol).join();
+    } catch (CompletionException e) {
+      if (e.getCause() instanceof SymbolDeferredException symbolDeferredException) {
+        throw symbolDeferredException;
+      }
+      throw e;
+    }
+  }
+
+  public int getUsed() {
+    return usage.get();
+  }
+
+  public boolean isExhausted() {
+    return exhausted;
+  }
+
+  public CompletableFuture<StockHistory> submit(final String symbol) {
+    return requests.computeIfAbsent(symbol, (key) -> CompletableFuture.supplyAsync(() -> fetch(key), executor));
+  }
+
+}
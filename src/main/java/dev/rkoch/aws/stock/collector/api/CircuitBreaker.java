@@ -0,0 +1,126 @@
+package dev.rkoch.aws.stock.collector.api;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import dev.rkoch.aws.stock.collector.Deadline;
+import dev.rkoch.aws.stock.collector.exception.SourceUnavailableException;
+
+public class CircuitBreaker {
+
+  private enum State {
+    CLOSED, HALF_OPEN, OPEN
+  }
+
+  private static final int MAX_OPEN_FACTOR = 16;
+
+  public static CircuitBreaker disabled() {
+    return new CircuitBreaker(Integer.MAX_VALUE, Duration.ZERO);
+  }
+
+  private final ReentrantLock lock = new ReentrantLock();
+
+  private final int failureThreshold;
+
+  private final long openNanos;
+
+  private State state = State.CLOSED;
+
+  private int failures;
+
+  private int openFactor = 1;
+
+  private long openUntil;
+
+  private boolean probing;
+
+  public CircuitBreaker(int failureThreshold, Duration openDuration) {
+    this.failureThreshold = Math.max(1, failureThreshold);
+    this.openNanos = openDuration.toNanos();
+  }
+
+  public void acquire(final Deadline deadline) throws InterruptedException, SourceUnavailableException {
+    while (true) {
+      long waitNanos;
+      lock.lock();
+      try {
+        long now = System.nanoTime();
+        if (state == State.OPEN && now - openUntil >= 0) {
+          state = State.HALF_OPEN;
+          probing = false;
+        }
+        if (state == State.CLOSED) {
+          return;
+        }
+        if (state == State.HALF_OPEN && !probing) {
+          probing = true;
+          return;
+        }
+        if (state == State.HALF_OPEN) {
+          throw new SourceUnavailableException("circuit open, probe in flight", null);
+        }
+        waitNanos = openUntil - now;
+        if (!deadline.hasTime(Duration.ofNanos(waitNanos))) {
+          throw new SourceUnavailableException("circuit open for %s ms".formatted(TimeUnit.NANOSECONDS.toMillis(waitNanos)), null);
+        }
+      } finally {
+        lock.unlock();
+      }
+      TimeUnit.NANOSECONDS.sleep(Math.max(TimeUnit.MILLISECONDS.toNanos(10), waitNanos));
+    }
+  }
+
+  public boolean isOpen() {
+    lock.lock();
+    try {
+      return state != State.CLOSED;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  public void onFailure() {
+    lock.lock();
+    try {
+      failures++;
+      if (state == State.HALF_OPEN) {
+        openFactor = Math.min(MAX_OPEN_FACTOR, openFactor * 2);
+        open();
+      } else if (state == State.CLOSED && failures >= failureThreshold) {
+        open();
+      }
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  public void onSuccess() {
+    lock.lock();
+    try {
+      state = State.CLOSED;
+      failures = 0;
+      openFactor = 1;
+      probing = false;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private void open() {
+    state = State.OPEN;
+    probing = false;
+    openUntil = System.nanoTime() + openNanos * openFactor;
+  }
+
+  public void release() {
+    lock.lock();
+    try {
+      if (state == State.HALF_OPEN) {
+        probing = false;
+      }
+    } finally {
+      lock.unlock();
+    }
+  }
+
+}
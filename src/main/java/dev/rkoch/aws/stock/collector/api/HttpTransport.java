@@ -0,0 +1,193 @@
+package dev.rkoch.aws.stock.collector.api;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.HttpResponse.BodyHandlers;
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Locale;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+import dev.rkoch.aws.stock.collector.Deadline;
+import dev.rkoch.aws.stock.collector.exception.SourceUnavailableException;
+import dev.rkoch.aws.stock.collector.metrics.CountingInputStream;
+import dev.rkoch.aws.stock.collector.metrics.Metrics;
+
+public class HttpTransport {
+
+  @FunctionalInterface
+  public interface BodyReader<T> {
+
+    T read(InputStream body) throws IOException;
+
+  }
+
+  private static final String ACCEPT_ENCODING = "Accept-Encoding";
+
+  private static final int BUFFER_SIZE = 16 * 1024;
+
+  private static final String CONTENT_ENCODING = "Content-Encoding";
+
+  private static final String DEFLATE = "deflate";
+
+  private static final String GZIP = "gzip";
+
+  private static final String RETRY_AFTER = "Retry-After";
+
+  private static final Duration DEFAULT_TIMEOUT = Duration.ofSeconds(30);
+
+  private static final Duration MAX_RETRY_AFTER = Duration.ofSeconds(60);
+
+  public static HttpTransport of(final HttpClient httpClient) {
+    return new HttpTransport(Metrics.NASDAQ, httpClient, RateLimiter.unlimited(), Integer.MAX_VALUE, DEFAULT_TIMEOUT, 1, Duration.ZERO, Duration.ZERO,
+        CircuitBreaker.disabled(), true);
+  }
+
+  static Duration parseRetryAfter(final String value) {
+    if (value == null || value.isBlank()) {
+      return Duration.ZERO;
+    }
+    try {
+      return Duration.ofSeconds(Math.max(0L, Long.parseLong(value.strip())));
+    } catch (NumberFormatException e) {
+      try {
+        Duration duration = Duration.between(ZonedDateTime.now(), ZonedDateTime.parse(value.strip(), DateTimeFormatter.RFC_1123_DATE_TIME));
+        return duration.isNegative() ? Duration.ZERO : duration;
+      } catch (DateTimeParseException dateTimeParseException) {
+        return Duration.ZERO;
+      }
+    }
+  }
+
+  private final String name;
+
+  private final HttpClient httpClient;
+
+  private final RateLimiter rateLimiter;
+
+  private final Semaphore permits;
+
+  private final Duration timeout;
+
+  private final int maxAttempts;
+
+  private final long backoffNanos;
+
+  private final long maxBackoffNanos;
+
+  private final CircuitBreaker circuitBreaker;
+
+  private final boolean compression;
+
+  public HttpTransport(String name, HttpClient httpClient, RateLimiter rateLimiter, int concurrency, Duration timeout, int maxAttempts, Duration backoff,
+      Duration maxBackoff, CircuitBreaker circuitBreaker, boolean compression) {
+    this.name = name;
+    this.httpClient = httpClient;
+    this.rateLimiter = rateLimiter;
+    this.permits = new Semaphore(concurrency);
+    this.timeout = timeout;
+    this.maxAttempts = Math.max(1, maxAttempts);
+    this.backoffNanos = backoff.toNanos();
+    this.maxBackoffNanos = Math.max(backoffNanos, maxBackoff.toNanos());
+    this.circuitBreaker = circuitBreaker;
+    this.compression = compression;
+  }
+
+  private boolean backoff(final int attempt, final Duration retryAfter, final Deadline deadline) throws InterruptedException {
+    long ceiling = Math.min(maxBackoffNanos, backoffNanos << Math.min(attempt, 30));
+    long jitter = ceiling <= 0 ? 0L : ThreadLocalRandom.current().nextLong(ceiling + 1);
+    long waitNanos = Math.max(jitter, Math.min(retryAfter.toNanos(), MAX_RETRY_AFTER.toNanos()));
+    if (!deadline.hasTime(timeout.plusNanos(waitNanos))) {
+      return false;
+    }
+    TimeUnit.NANOSECONDS.sleep(waitNanos);
+    return true;
+  }
+
+  private InputStream decode(final InputStream body, final String contentEncoding) throws IOException {
+    String encoding = contentEncoding.strip().toLowerCase(Locale.ROOT);
+    if (encoding.equals(GZIP) || encoding.equals("x-gzip")) {
+      return new GZIPInputStream(body, BUFFER_SIZE);
+    } else if (encoding.equals(DEFLATE)) {
+      return new InflaterInputStream(body, new Inflater(), BUFFER_SIZE);
+    } else {
+      return body;
+    }
+  }
+
+  public <T> T get(final URI uri, final BodyReader<T> reader, final Metrics metrics, final Deadline deadline)
+      throws IOException, InterruptedException, SourceUnavailableException {
+    HttpRequest.Builder builder = HttpRequest.newBuilder(uri).timeout(timeout).GET();
+    if (compression) {
+      builder.header(ACCEPT_ENCODING, GZIP + ", " + DEFLATE);
+    }
+    HttpRequest httpRequest = builder.build();
+    IOException failure = null;
+    for (int attempt = 0; attempt < maxAttempts; attempt++) {
+      if (attempt > 0) {
+        metrics.count(name + ".retry");
+      }
+      Duration retryAfter = Duration.ZERO;
+      circuitBreaker.acquire(deadline);
+      boolean settled = false;
+      try {
+        permits.acquire();
+        try {
+          rateLimiter.acquire();
+          long start = metrics.start();
+          try {
+            HttpResponse<InputStream> httpResponse = httpClient.send(httpRequest, BodyHandlers.ofInputStream());
+            try (CountingInputStream wire = new CountingInputStream(httpResponse.body())) {
+              if (!isRetryable(httpResponse.statusCode())) {
+                try (CountingInputStream body = new CountingInputStream(decode(wire, httpResponse.headers().firstValue(CONTENT_ENCODING).orElse("")))) {
+                  T result = reader.read(body);
+                  circuitBreaker.onSuccess();
+                  settled = true;
+                  metrics.count(name + ".bytes", wire.getCount());
+                  metrics.count(name + ".decodedBytes", body.getCount());
+                  return result;
+                }
+              }
+            }
+            retryAfter = parseRetryAfter(httpResponse.headers().firstValue(RETRY_AFTER).orElse(null));
+            failure = new IOException("%s returned %s".formatted(uri.getPath(), httpResponse.statusCode()));
+          } catch (IOException e) {
+            failure = e;
+          } finally {
+            metrics.stop(name + ".request", start);
+          }
+        } finally {
+          permits.release();
+        }
+        circuitBreaker.onFailure();
+        settled = true;
+      } finally {
+        if (!settled) {
+          circuitBreaker.release();
+        }
+      }
+      if (circuitBreaker.isOpen()) {
+        metrics.count(name + ".circuitOpen");
+      }
+      if (attempt + 1 < maxAttempts && !backoff(attempt, retryAfter, deadline)) {
+        break;
+      }
+    }
+    throw failure;
+  }
+
+  private boolean isRetryable(final int statusCode) {
+    return statusCode == 408 || statusCode == 429 || statusCode >= 500;
+  }
+
+}
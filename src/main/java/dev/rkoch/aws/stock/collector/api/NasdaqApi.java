@@ -3,105 +3,175 @@ package dev.rkoch.aws.stock.collector.api;
 import java.io.IOException;
 import java.net.URI;
 import java.net.http.HttpClient;
-import java.net.http.HttpRequest;
-import java.net.http.HttpResponse;
-import java.net.http.HttpResponse.BodyHandlers;
+import java.time.Duration;
+import java.time.Instant;
 import java.time.LocalDate;
-import java.time.format.DateTimeFormatter;
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.List;
+import java.time.temporal.ChronoUnit;
 import java.util.Map;
-import org.json.JSONArray;
-import org.json.JSONException;
-import org.json.JSONObject;
+import java.util.concurrent.ConcurrentHashMap;
+import dev.rkoch.aws.stock.collector.Deadline;
+import dev.rkoch.aws.stock.collector.StockHistory;
 import dev.rkoch.aws.stock.collector.StockRecord;
+import dev.rkoch.aws.stock.collector.cache.CacheEntry;
+import dev.rkoch.aws.stock.collector.cache.HistoryCache;
+import dev.rkoch.aws.stock.collector.cache.MemoryHistoryCache;
 import dev.rkoch.aws.stock.collector.exception.NoDataForDateException;
+import dev.rkoch.aws.stock.collector.exception.SourceUnavailableException;
 import dev.rkoch.aws.stock.collector.exception.SymbolNotExistsException;
+import dev.rkoch.aws.stock.collector.metrics.Metrics;
 
 public class NasdaqApi {
 
   // https://api.nasdaq.com/api/quote/tsla/historical?assetclass=stocks&fromdate=2025-08-07&limit=1&todate=2025-08-08
   // https://api.nasdaq.com/api/quote/tsla/historical?assetclass=stocks&limit=10000&fromdate=1999-11-01&todate=2025-09-07
-  private static final String API_URL = "https://api.nasdaq.com/api/quote/%s/historical?assetclass=stocks&limit=10000&fromdate=%s&todate=%s";
+  private static final String API_PATH = "/api/quote/%s/historical?assetclass=stocks&limit=%s&fromdate=%s&todate=%s";
 
-  private static final DateTimeFormatter MM_DD_YYYY = DateTimeFormatter.ofPattern("MM/dd/uuuu");
+  private static final URI DEFAULT_BASE_URI = URI.create("https://api.nasdaq.com");
+
+  private static final int MAX_LIMIT = 10000;
 
   private static final LocalDate DEFAULT_FROM_DATE = LocalDate.of(1999, 11, 1);
 
-  private final Map<String, List<StockRecord>> cache = new HashMap<>();
+  private static final Duration DEFAULT_TTL = Duration.ofHours(12);
+
+  private final Map<String, StockHistory> histories = new ConcurrentHashMap<>();
+
+  private final HistoryCache cache;
+
+  private final Duration ttl;
+
+  private final NasdaqResponseParser parser = new NasdaqResponseParser();
 
-  private final HttpClient httpClient;
+  private final HttpTransport transport;
 
   private final LocalDate fromDate;
 
-  private final LocalDate toDate = LocalDate.now();
+  private final LocalDate toDate;
+
+  private final URI baseUri;
+
+  private final Metrics metrics;
+
+  private final Deadline deadline;
 
   NasdaqApi() {
     this(DEFAULT_FROM_DATE, HttpClient.newHttpClient());
   }
 
   public NasdaqApi(LocalDate fromDate, HttpClient httpClient) {
+    this(fromDate, LocalDate.now().plusDays(1), HttpTransport.of(httpClient), new MemoryHistoryCache(Integer.MAX_VALUE), DEFAULT_TTL, new Metrics(), Deadline.none());
+  }
+
+  public NasdaqApi(LocalDate fromDate, LocalDate toDate, HttpTransport transport, HistoryCache cache, Duration ttl, Metrics metrics, Deadline deadline) {
+    this(fromDate, toDate, DEFAULT_BASE_URI, transport, cache, ttl, metrics, deadline);
+  }
+
+  public NasdaqApi(LocalDate fromDate, LocalDate toDate, URI baseUri, HttpTransport transport, HistoryCache cache, Duration ttl, Metrics metrics,
+      Deadline deadline) {
     this.fromDate = fromDate;
-    this.httpClient = httpClient;
+    this.toDate = toDate;
+    this.baseUri = baseUri;
+    this.transport = transport;
+    this.cache = cache;
+    this.ttl = ttl;
+    this.metrics = metrics;
+    this.deadline = deadline;
   }
 
-  private String cleanNumber(final String number) {
-    return number.replace("$", "").replace(",", "");
+  private StockHistory fetch(final String symbol, final LocalDate from, final LocalDate to)
+      throws NoDataForDateException, SourceUnavailableException, SymbolNotExistsException {
+    if (!from.isBefore(to)) {
+      throw new NoDataForDateException(from);
+    }
+    NasdaqResponseParser.Response response;
+    try {
+      response = transport.get(getUri(symbol, from, to), (body) -> parser.parse(body, symbol), metrics, deadline);
+    } catch (IOException | SourceUnavailableException e) {
+      throw new SourceUnavailableException("nasdaq unavailable for %s".formatted(symbol), e);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new RuntimeException(e);
+    }
+    if (response.getRCode() == 200) {
+      if (response.getTotalRecords() > 0) {
+        return response.getHistory();
+      } else {
+        throw new NoDataForDateException(from);
+      }
+    } else if (response.getBCode() == 1001) {
+      throw new SymbolNotExistsException();
+    } else {
+      throw new RuntimeException("unexpected nasdaq status %s for %s".formatted(response.getRCode(), symbol));
+    }
   }
 
-  public StockRecord getData(final LocalDate date, final String symbol) throws NoDataForDateException, SymbolNotExistsException {
+  private StockHistory fetchOrEmpty(final String symbol, final LocalDate from, final LocalDate to) throws SourceUnavailableException, SymbolNotExistsException {
     try {
-      List<StockRecord> records = cache.get(symbol);
-      if (records == null) {
-        HttpRequest httpRequest = HttpRequest.newBuilder(getUri(symbol)).build();
-        HttpResponse<String> httpResponse = httpClient.send(httpRequest, BodyHandlers.ofString());
-        String body = httpResponse.body();
-        JSONObject json = new JSONObject(body);
-        try {
-          JSONObject status = json.getJSONObject("status");
-          if (status.getInt("rCode") == 200) {
-            JSONObject data = json.getJSONObject("data");
-            if (data.getInt("totalRecords") > 0) {
-              JSONArray rows = data.getJSONObject("tradesTable").getJSONArray("rows");
-              records = new ArrayList<>();
-              for (int i = 0; i < rows.length(); i++) {
-                JSONObject row = rows.getJSONObject(i);
-                LocalDate rowDate = LocalDate.parse(row.getString("date"), MM_DD_YYYY);
-                String close = cleanNumber(row.getString("close"));
-                String high = cleanNumber(row.getString("high"));
-                String low = cleanNumber(row.getString("low"));
-                String open = cleanNumber(row.getString("open"));
-                String volume = cleanNumber(row.getString("volume"));
-                records.add(StockRecord.of(rowDate, symbol, close, high, low, open, volume));
-              }
-              cache.put(symbol, records);
-            } else {
-              throw new NoDataForDateException(fromDate);
-            }
-          } else {
-            if (status.getJSONArray("bCodeMessage").getJSONObject(0).getInt("code") == 1001) {
-              throw new SymbolNotExistsException();
-            }
-          }
-        } catch (JSONException e) {
-          throw new RuntimeException(json.toString(), e);
-        }
+      return fetch(symbol, from, to);
+    } catch (NoDataForDateException e) {
+      return StockHistory.builder(symbol).build();
+    }
+  }
+
+  public StockRecord getData(final LocalDate date, final String symbol) throws NoDataForDateException, SourceUnavailableException, SymbolNotExistsException {
+    StockRecord stockRecord = getHistory(symbol).get(date);
+    if (stockRecord == null) {
+      throw new NoDataForDateException(date);
+    }
+    return stockRecord;
+  }
+
+  public StockHistory getHistory(final String symbol) throws NoDataForDateException, SourceUnavailableException, SymbolNotExistsException {
+    StockHistory history = histories.get(symbol);
+    if (history == null) {
+      CacheEntry entry = cache.get(symbol);
+      metrics.hit(Metrics.NASDAQ_CACHE, entry != null && entry.covers(fromDate) && entry.isFresh(ttl));
+      if (entry == null) {
+        entry = new CacheEntry(fetch(symbol, fromDate, toDate), fromDate, Instant.now());
+        cache.put(symbol, entry);
+      } else if (!entry.covers(fromDate) || !entry.isFresh(ttl)) {
+        entry = refresh(symbol, entry);
+        cache.put(symbol, entry);
       }
-      for (StockRecord stockRecord : cache.get(symbol).reversed()) {
-        if (stockRecord.getLocalDate().isEqual(date)) {
-          return stockRecord;
-        }
+      history = entry.getHistory();
+      if (history.isEmpty()) {
+        throw new NoDataForDateException(fromDate);
       }
-      throw new NoDataForDateException(date);
-    } catch (IOException | InterruptedException e) {
-      throw new RuntimeException(e);
+      histories.put(symbol, history);
     }
+    return history;
   }
 
-  private URI getUri(final String symbol) {
+  public StockHistory getHistory(final String symbol, final LocalDate from, final LocalDate to) throws SourceUnavailableException, SymbolNotExistsException {
+    StockHistory history = histories.get(symbol);
+    if (history == null) {
+      CacheEntry entry = cache.get(symbol);
+      if (entry != null && entry.covers(from) && entry.isFresh(ttl)) {
+        history = entry.getHistory();
+      }
+    }
+    metrics.hit(Metrics.NASDAQ_CACHE, history != null);
+    return history == null ? fetchOrEmpty(symbol, from, to) : history.slice(from, to);
+  }
+
+  private URI getUri(final String symbol, final LocalDate from, final LocalDate to) {
     String apiSymbol = symbol.replace(".", "-");
-    return URI.create(API_URL.formatted(apiSymbol, fromDate, toDate));
+    long limit = Math.min(MAX_LIMIT, ChronoUnit.DAYS.between(from, to));
+    return baseUri.resolve(API_PATH.formatted(apiSymbol, limit, from, to.minusDays(1)));
+  }
+
+  private CacheEntry refresh(final String symbol, final CacheEntry entry) throws SourceUnavailableException, SymbolNotExistsException {
+    Instant fetchedAt = Instant.now();
+    CacheEntry refreshed = entry;
+    if (!entry.covers(fromDate)) {
+      refreshed = refreshed.merge(fetchOrEmpty(symbol, fromDate, entry.getFromDate()), fromDate, fetchedAt);
+    }
+    if (!entry.isFresh(ttl)) {
+      LocalDate lastDate = entry.getHistory().getLastDate();
+      LocalDate from = lastDate == null || lastDate.isBefore(entry.getFromDate()) ? entry.getFromDate() : lastDate;
+      refreshed = refreshed.merge(fetchOrEmpty(symbol, from, toDate), fromDate, fetchedAt);
+    }
+    return refreshed;
   }
 
 }
@@ -0,0 +1,253 @@
+package dev.rkoch.aws.stock.collector.api;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.LocalDate;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import dev.rkoch.aws.stock.collector.StockHistory;
+
+public class NasdaqResponseParser {
+
+  public static class Response {
+
+    private final StockHistory.Builder builder;
+
+    private int rCode;
+
+    private int bCode;
+
+    private int totalRecords;
+
+    private Response(StockHistory.Builder builder) {
+      this.builder = builder;
+    }
+
+    public int getBCode() {
+      return bCode;
+    }
+
+    public StockHistory getHistory() {
+      return builder.build();
+    }
+
+    public int getRCode() {
+      return rCode;
+    }
+
+    public int getTotalRecords() {
+      return totalRecords;
+    }
+
+  }
+
+  private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+  private static final double[] POWERS_OF_TEN = {1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11, 1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18};
+
+  private static final int MAX_DIGITS = 18;
+
+  static double parseDecimal(final char[] chars, final int offset, final int length) {
+    long mantissa = 0;
+    int digits = 0;
+    int scale = -1;
+    boolean negative = false;
+    for (int i = offset; i < offset + length; i++) {
+      char c = chars[i];
+      if (c >= '0' && c <= '9') {
+        if (digits == MAX_DIGITS) {
+          return Double.parseDouble(new String(chars, offset, length).replace("$", "").replace(",", ""));
+        }
+        mantissa = mantissa * 10 + (c - '0');
+        digits++;
+        if (scale >= 0) {
+          scale++;
+        }
+      } else if (c == '.' && scale < 0) {
+        scale = 0;
+      } else if (c == '-' && digits == 0) {
+        negative = true;
+      } else if (c != '$' && c != ',' && c != ' ') {
+        throw new NumberFormatException(new String(chars, offset, length));
+      }
+    }
+    if (digits == 0) {
+      throw new NumberFormatException(new String(chars, offset, length));
+    }
+    double value = scale > 0 ? mantissa / POWERS_OF_TEN[scale] : mantissa;
+    return negative ? -value : value;
+  }
+
+  static int parseEpochDay(final char[] chars, final int offset, final int length) {
+    if (length != 10 || chars[offset + 2] != '/' || chars[offset + 5] != '/') {
+      throw new IllegalArgumentException("unexpected date " + new String(chars, offset, length));
+    }
+    int month = parseInt(chars, offset, 2);
+    int day = parseInt(chars, offset + 3, 2);
+    int year = parseInt(chars, offset + 6, 4);
+    return (int) LocalDate.of(year, month, day).toEpochDay();
+  }
+
+  private static int parseInt(final char[] chars, final int offset, final int length) {
+    int value = 0;
+    for (int i = offset; i < offset + length; i++) {
+      char c = chars[i];
+      if (c < '0' || c > '9') {
+        throw new IllegalArgumentException("unexpected number " + new String(chars, offset, length));
+      }
+      value = value * 10 + (c - '0');
+    }
+    return value;
+  }
+
+  static long parseVolume(final char[] chars, final int offset, final int length) {
+    long value = 0;
+    boolean hasDigits = false;
+    for (int i = offset; i < offset + length; i++) {
+      char c = chars[i];
+      if (c >= '0' && c <= '9') {
+        if (value > (Long.MAX_VALUE - 9) / 10) {
+          return 0L;
+        }
+        value = value * 10 + (c - '0');
+        hasDigits = true;
+      } else if (c != ',') {
+        return 0L;
+      }
+    }
+    return hasDigits ? value : 0L;
+  }
+
+  public Response parse(final InputStream inputStream, final String symbol) throws IOException {
+    Response response = new Response(StockHistory.builder(symbol));
+    try (JsonParser parser = JSON_FACTORY.createParser(inputStream)) {
+      if (parser.nextToken() != JsonToken.START_OBJECT) {
+        throw new IOException("unexpected response for " + symbol);
+      }
+      while (parser.nextToken() == JsonToken.FIELD_NAME) {
+        String name = parser.currentName();
+        JsonToken token = parser.nextToken();
+        if ("data".equals(name) && token == JsonToken.START_OBJECT) {
+          parseData(parser, response);
+        } else if ("status".equals(name) && token == JsonToken.START_OBJECT) {
+          parseStatus(parser, response);
+        } else {
+          parser.skipChildren();
+        }
+      }
+    }
+    return response;
+  }
+
+  private void parseBCodeMessage(final JsonParser parser, final Response response) throws IOException {
+    boolean first = true;
+    while (parser.nextToken() != JsonToken.END_ARRAY) {
+      if (first && parser.currentToken() == JsonToken.START_OBJECT) {
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+          String name = parser.currentName();
+          parser.nextToken();
+          if ("code".equals(name)) {
+            response.bCode = parser.getValueAsInt();
+          } else {
+            parser.skipChildren();
+          }
+        }
+      } else {
+        parser.skipChildren();
+      }
+      first = false;
+    }
+  }
+
+  private void parseData(final JsonParser parser, final Response response) throws IOException {
+    while (parser.nextToken() == JsonToken.FIELD_NAME) {
+      String name = parser.currentName();
+      JsonToken token = parser.nextToken();
+      if ("totalRecords".equals(name)) {
+        response.totalRecords = parser.getValueAsInt();
+      } else if ("tradesTable".equals(name) && token == JsonToken.START_OBJECT) {
+        parseTradesTable(parser, response);
+      } else {
+        parser.skipChildren();
+      }
+    }
+  }
+
+  private void parseRow(final JsonParser parser, final Response response) throws IOException {
+    int epochDay = Integer.MIN_VALUE;
+    double close = 0;
+    double high = 0;
+    double low = 0;
+    double open = 0;
+    long volume = 0;
+    while (parser.nextToken() == JsonToken.FIELD_NAME) {
+      String name = parser.currentName();
+      if (parser.nextToken() != JsonToken.VALUE_STRING) {
+        parser.skipChildren();
+        continue;
+      }
+      char[] chars = parser.getTextCharacters();
+      int offset = parser.getTextOffset();
+      int length = parser.getTextLength();
+      switch (name) {
+        case "date":
+          epochDay = parseEpochDay(chars, offset, length);
+          break;
+        case "close":
+          close = parseDecimal(chars, offset, length);
+          break;
+        case "high":
+          high = parseDecimal(chars, offset, length);
+          break;
+        case "low":
+          low = parseDecimal(chars, offset, length);
+          break;
+        case "open":
+          open = parseDecimal(chars, offset, length);
+          break;
+        case "volume":
+          volume = parseVolume(chars, offset, length);
+          break;
+        default:
+          break;
+      }
+    }
+    if (epochDay != Integer.MIN_VALUE) {
+      response.builder.add(epochDay, close, high, low, open, volume);
+    }
+  }
+
+  private void parseStatus(final JsonParser parser, final Response response) throws IOException {
+    while (parser.nextToken() == JsonToken.FIELD_NAME) {
+      String name = parser.currentName();
+      JsonToken token = parser.nextToken();
+      if ("rCode".equals(name)) {
+        response.rCode = parser.getValueAsInt();
+      } else if ("bCodeMessage".equals(name) && token == JsonToken.START_ARRAY) {
+        parseBCodeMessage(parser, response);
+      } else {
+        parser.skipChildren();
+      }
+    }
+  }
+
+  private void parseTradesTable(final JsonParser parser, final Response response) throws IOException {
+    while (parser.nextToken() == JsonToken.FIELD_NAME) {
+      String name = parser.currentName();
+      JsonToken token = parser.nextToken();
+      if ("rows".equals(name) && token == JsonToken.START_ARRAY) {
+        while (parser.nextToken() != JsonToken.END_ARRAY) {
+          if (parser.currentToken() == JsonToken.START_OBJECT) {
+            parseRow(parser, response);
+          } else {
+            parser.skipChildren();
+          }
+        }
+      } else {
+        parser.skipChildren();
+      }
+    }
+  }
+
+}
@@ -0,0 +1,54 @@
+package dev.rkoch.aws.stock.collector.api;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+public class RateLimiter {
+
+  private static final double NANOS_PER_SECOND = TimeUnit.SECONDS.toNanos(1);
+
+  public static RateLimiter unlimited() {
+    return new RateLimiter(0, 1);
+  }
+
+  private final ReentrantLock lock = new ReentrantLock();
+
+  private final double permitsPerNano;
+
+  private final double capacity;
+
+  private double tokens;
+
+  private long lastRefill = System.nanoTime();
+
+  public RateLimiter(double permitsPerSecond, int burst) {
+    this.permitsPerNano = permitsPerSecond / NANOS_PER_SECOND;
+    this.capacity = Math.max(1, burst);
+    this.tokens = capacity;
+  }
+
+  public void acquire() throws InterruptedException {
+    if (permitsPerNano <= 0) {
+      return;
+    }
+    long waitNanos;
+    lock.lock();
+    try {
+      refill();
+      tokens -= 1;
+      waitNanos = tokens >= 0 ? 0L : (long) (-tokens / permitsPerNano);
+    } finally {
+      lock.unlock();
+    }
+    if (waitNanos > 0) {
+      TimeUnit.NANOSECONDS.sleep(waitNanos);
+    }
+  }
+
+  private void refill() {
+    long now = System.nanoTime();
+    tokens = Math.min(capacity, tokens + (now - lastRefill) * permitsPerNano);
+    lastRefill = now;
+  }
+
+}
@@ -0,0 +1,47 @@
+package dev.rkoch.aws.stock.collector.cache;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import dev.rkoch.aws.stock.collector.StockHistory;
+
+public class CacheEntry {
+
+  private final StockHistory history;
+
+  private final LocalDate fromDate;
+
+  private final Instant fetchedAt;
+
+  public CacheEntry(StockHistory history, LocalDate fromDate, Instant fetchedAt) {
+    this.history = history;
+    this.fromDate = fromDate;
+    this.fetchedAt = fetchedAt;
+  }
+
+  public boolean covers(final LocalDate date) {
+    return !fromDate.isAfter(date);
+  }
+
+  public Instant getFetchedAt() {
+    return fetchedAt;
+  }
+
+  public LocalDate getFromDate() {
+    return fromDate;
+  }
+
+  public StockHistory getHistory() {
+    return history;
+  }
+
+  public boolean isFresh(final Duration ttl) {
+    return fetchedAt.plus(ttl).isAfter(Instant.now());
+  }
+
+  public CacheEntry merge(final StockHistory newer, final LocalDate from, final Instant fetchedAt) {
+    StockHistory merged = newer.isEmpty() ? history : StockHistory.builder(history.getSymbol(), history.size() + newer.size()).addAll(history).addAll(newer).build();
+    return new CacheEntry(merged, from.isBefore(fromDate) ? from : fromDate, fetchedAt);
+  }
+
+}
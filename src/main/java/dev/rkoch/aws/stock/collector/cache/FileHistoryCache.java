@@ -0,0 +1,47 @@
+package dev.rkoch.aws.stock.collector.cache;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+public class FileHistoryCache implements HistoryCache {
+
+  private final Path directory;
+
+  public FileHistoryCache(final Path directory) {
+    this.directory = directory;
+  }
+
+  @Override
+  public CacheEntry get(final String symbol) {
+    Path path = getPath(symbol);
+    if (!Files.isRegularFile(path)) {
+      return null;
+    }
+    try (InputStream inputStream = Files.newInputStream(path)) {
+      return HistoryCodec.decode(inputStream);
+    } catch (IOException e) {
+      return null;
+    }
+  }
+
+  private Path getPath(final String symbol) {
+    return directory.resolve(symbol + ".bin.gz");
+  }
+
+  @Override
+  public void put(final String symbol, final CacheEntry entry) {
+    try {
+      Files.createDirectories(directory);
+      Path tmp = Files.createTempFile(directory, symbol, ".tmp");
+      Files.write(tmp, HistoryCodec.encode(entry));
+      Files.move(tmp, getPath(symbol), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+}
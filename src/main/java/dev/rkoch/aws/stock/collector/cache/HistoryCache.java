@@ -0,0 +1,9 @@
+package dev.rkoch.aws.stock.collector.cache;
+
+public interface HistoryCache {
+
+  CacheEntry get(String symbol);
+
+  void put(String symbol, CacheEntry entry);
+
+}
@@ -0,0 +1,60 @@
+package dev.rkoch.aws.stock.collector.cache;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import dev.rkoch.aws.stock.collector.StockHistory;
+
+public final class HistoryCodec {
+
+  private static final int MAGIC = 0x53484331;
+
+  public static CacheEntry decode(final InputStream inputStream) throws IOException {
+    try (DataInputStream in = new DataInputStream(new GZIPInputStream(inputStream))) {
+      if (in.readInt() != MAGIC) {
+        throw new IOException("unexpected cache entry format");
+      }
+      Instant fetchedAt = Instant.ofEpochMilli(in.readLong());
+      LocalDate fromDate = LocalDate.ofEpochDay(in.readInt());
+      String symbol = in.readUTF();
+      int size = in.readInt();
+      StockHistory.Builder builder = StockHistory.builder(symbol, size);
+      for (int i = 0; i < size; i++) {
+        builder.add(in.readInt(), in.readDouble(), in.readDouble(), in.readDouble(), in.readDouble(), in.readLong());
+      }
+      return new CacheEntry(builder.build(), fromDate, fetchedAt);
+    }
+  }
+
+  public static byte[] encode(final CacheEntry entry) throws IOException {
+    StockHistory history = entry.getHistory();
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream(64 + history.size() * 44);
+    try (DataOutputStream out = new DataOutputStream(new GZIPOutputStream(bytes))) {
+      out.writeInt(MAGIC);
+      out.writeLong(entry.getFetchedAt().toEpochMilli());
+      out.writeInt((int) entry.getFromDate().toEpochDay());
+      out.writeUTF(history.getSymbol());
+      out.writeInt(history.size());
+      for (int i = 0; i < history.size(); i++) {
+        out.writeInt(history.getEpochDay(i));
+        out.writeDouble(history.getClose(i));
+        out.writeDouble(history.getHigh(i));
+        out.writeDouble(history.getLow(i));
+        out.writeDouble(history.getOpen(i));
+        out.writeLong(history.getVolume(i));
+      }
+    }
+    return bytes.toByteArray();
+  }
+
+  private HistoryCodec() {
+
+  }
+
+}
@@ -0,0 +1,33 @@
+package dev.rkoch.aws.stock.collector.cache;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+public class MemoryHistoryCache implements HistoryCache {
+
+  private final Map<String, CacheEntry> entries;
+
+  public MemoryHistoryCache(final int maxEntries) {
+    entries = new LinkedHashMap<>(Math.min(maxEntries, 1024), 0.75f, true) {
+
+      private static final long serialVersionUID = 1L;
+
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<String, CacheEntry> eldest) {
+        return size() > maxEntries;
+      }
+
+    };
+  }
+
+  @Override
+  public synchronized CacheEntry get(final String symbol) {
+    return entries.get(symbol);
+  }
+
+  @Override
+  public synchronized void put(final String symbol, final CacheEntry entry) {
+    entries.put(symbol, entry);
+  }
+
+}
@@ -0,0 +1,45 @@
+package dev.rkoch.aws.stock.collector.cache;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import software.amazon.awssdk.core.exception.SdkException;
+import software.amazon.awssdk.core.sync.RequestBody;
+import software.amazon.awssdk.services.s3.S3Client;
+
+public class S3HistoryCache implements HistoryCache {
+
+  private static final String KEY = "%s/%s.bin.gz";
+
+  private final S3Client s3Client;
+
+  private final String bucketName;
+
+  private final String prefix;
+
+  public S3HistoryCache(S3Client s3Client, String bucketName, String prefix) {
+    this.s3Client = s3Client;
+    this.bucketName = bucketName;
+    this.prefix = prefix;
+  }
+
+  @Override
+  public CacheEntry get(final String symbol) {
+    try (InputStream inputStream = s3Client.getObject((request) -> request.bucket(bucketName).key(KEY.formatted(prefix, symbol)))) {
+      return HistoryCodec.decode(inputStream);
+    } catch (IOException | SdkException e) {
+      return null;
+    }
+  }
+
+  @Override
+  public void put(final String symbol, final CacheEntry entry) {
+    try {
+      byte[] bytes = HistoryCodec.encode(entry);
+      s3Client.putObject((request) -> request.bucket(bucketName).key(KEY.formatted(prefix, symbol)), RequestBody.fromBytes(bytes));
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+}
@@ -0,0 +1,42 @@
+package dev.rkoch.aws.stock.collector.cache;
+
+import java.util.List;
+
+public class TieredHistoryCache implements HistoryCache {
+
+  private final List<HistoryCache> tiers;
+
+  public TieredHistoryCache(List<HistoryCache> tiers) {
+    this.tiers = List.copyOf(tiers);
+  }
+
+  @Override
+  public CacheEntry get(final String symbol) {
+    for (int i = 0; i < tiers.size(); i++) {
+      CacheEntry entry = tiers.get(i).get(symbol);
+      if (entry != null) {
+        for (int j = 0; j < i; j++) {
+          try {
+            tiers.get(j).put(symbol, entry);
+          } catch (RuntimeException e) {
+            continue;
+          }
+        }
+        return entry;
+      }
+    }
+    return null;
+  }
+
+  @Override
+  public void put(final String symbol, final CacheEntry entry) {
+    for (HistoryCache tier : tiers) {
+      try {
+        tier.put(symbol, entry);
+      } catch (RuntimeException e) {
+        continue;
+      }
+    }
+  }
+
+}
@@ -0,0 +1,11 @@
+package dev.rkoch.aws.stock.collector.exception;
+
+public class DeadlineExceededException extends Exception {
+
+  private static final long serialVersionUID = 1L;
+
+  public DeadlineExceededException(String message) {
+    super(message);
+  }
+
+}
@@ -0,0 +1,11 @@
+package dev.rkoch.aws.stock.collector.exception;
+
+public class SourceUnavailableException extends Exception {
+
+  private static final long serialVersionUID = 1L;
+
+  public SourceUnavailableException(String message, Throwable cause) {
+    super(message, cause);
+  }
+
+}
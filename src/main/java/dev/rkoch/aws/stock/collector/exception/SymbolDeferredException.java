@@ -0,0 +1,11 @@
+package dev.rkoch.aws.stock.collector.exception;
+
+public class SymbolDeferredException extends Exception {
+
+  private static final long serialVersionUID = 1L;
+
+  public SymbolDeferredException(String symbol) {
+    super(symbol + " deferred");
+  }
+
+}
@@ -0,0 +1,9 @@
+package dev.rkoch.aws.stock.collector.invoke;
+
+import dev.rkoch.aws.stock.collector.CollectRequest;
+
+public interface Invoker {
+
+  void invoke(CollectRequest request);
+
+}
@@ -0,0 +1,70 @@
+package dev.rkoch.aws.stock.collector.invoke;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import dev.rkoch.aws.stock.collector.CollectRequest;
+import software.amazon.awssdk.core.SdkBytes;
+import software.amazon.awssdk.services.lambda.LambdaClient;
+import software.amazon.awssdk.services.lambda.model.InvocationType;
+
+public class LambdaInvoker implements Invoker {
+
+  private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+  static String toJson(final CollectRequest request) {
+    StringWriter writer = new StringWriter();
+    try (JsonGenerator json = JSON_FACTORY.createGenerator(writer)) {
+      json.writeStartObject();
+      if (request.getBySector() != null) {
+        json.writeBooleanField("bySector", request.getBySector());
+      }
+      writeString(json, "fromDate", request.getFromDate());
+      writeString(json, "mode", request.getMode());
+      if (request.getSectors() != null) {
+        json.writeArrayFieldStart("sectors");
+        for (String sector : request.getSectors()) {
+          json.writeString(sector);
+        }
+        json.writeEndArray();
+      }
+      writeString(json, "shard", request.getShard());
+      if (request.getShards() != null) {
+        json.writeNumberField("shards", request.getShards());
+      }
+      writeString(json, "symbolAfter", request.getSymbolAfter());
+      if (request.getSymbolCount() != null) {
+        json.writeNumberField("symbolCount", request.getSymbolCount());
+      }
+      writeString(json, "toDate", request.getToDate());
+      json.writeEndObject();
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    return writer.toString();
+  }
+
+  private static void writeString(final JsonGenerator json, final String name, final String value) throws IOException {
+    if (value != null) {
+      json.writeStringField(name, value);
+    }
+  }
+
+  private final LambdaClient lambdaClient;
+
+  private final String functionName;
+
+  public LambdaInvoker(LambdaClient lambdaClient, String functionName) {
+    this.lambdaClient = lambdaClient;
+    this.functionName = functionName;
+  }
+
+  @Override
+  public void invoke(final CollectRequest request) {
+    lambdaClient.invoke((invokeRequest) -> invokeRequest.functionName(functionName).invocationType(InvocationType.EVENT)
+        .payload(SdkBytes.fromUtf8String(toJson(request))));
+  }
+
+}
@@ -0,0 +1,28 @@
+package dev.rkoch.aws.stock.collector.invoke;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+import dev.rkoch.aws.stock.collector.CollectRequest;
+
+public class LocalInvoker implements Invoker, AutoCloseable {
+
+  private final Consumer<CollectRequest> target;
+
+  private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+  public LocalInvoker(Consumer<CollectRequest> target) {
+    this.target = target;
+  }
+
+  @Override
+  public void close() {
+    executor.close();
+  }
+
+  @Override
+  public void invoke(final CollectRequest request) {
+    executor.submit(() -> target.accept(request));
+  }
+
+}
@@ -0,0 +1,65 @@
+package dev.rkoch.aws.stock.collector.metrics;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+public class Histogram {
+
+  private static final int BUCKETS = 48;
+
+  private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+
+  private final LongAdder count = new LongAdder();
+
+  private final LongAdder sum = new LongAdder();
+
+  private final LongAccumulator max = new LongAccumulator(Math::max, 0L);
+
+  private static int getBucket(final long micros) {
+    return Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(Math.max(0L, micros)));
+  }
+
+  public long getCount() {
+    return count.sum();
+  }
+
+  public double getMaxMillis() {
+    return max.get() / 1000.0;
+  }
+
+  public double getMeanMillis() {
+    long n = count.sum();
+    return n == 0 ? 0.0 : sum.sum() / 1000.0 / n;
+  }
+
+  public double getPercentileMillis(final double percentile) {
+    long n = count.sum();
+    if (n == 0) {
+      return 0.0;
+    }
+    long rank = (long) Math.ceil(percentile / 100.0 * n);
+    long seen = 0;
+    for (int i = 0; i < BUCKETS; i++) {
+      seen += buckets.get(i);
+      if (seen >= rank) {
+        return Math.min(1L << i, max.get()) / 1000.0;
+      }
+    }
+    return getMaxMillis();
+  }
+
+  public double getSumMillis() {
+    return sum.sum() / 1000.0;
+  }
+
+  public void record(final long nanos) {
+    long micros = TimeUnit.NANOSECONDS.toMicros(nanos);
+    buckets.incrementAndGet(getBucket(micros));
+    count.increment();
+    sum.add(micros);
+    max.accumulate(micros);
+  }
+
+}
@@ -0,0 +1,149 @@
+package dev.rkoch.aws.stock.collector.metrics;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+
+public final class Metrics {
+
+  public static final String ALPHAVANTAGE_CACHE = "alphavantage.cache";
+  public static final String ALPHAVANTAGE_DEFERRED = "alphavantage.deferred";
+  public static final String ALPHAVANTAGE_FALLBACK = "alphavantage.fallback";
+  public static final String ALPHAVANTAGE_REQUEST = "alphavantage.request";
+  public static final String COLLECT_GET_DATA = "collect.getData";
+  public static final String COLLECT_GET_HISTORIES = "collect.getHistories";
+  public static final String COLLECT_INSERT = "collect.insert";
+  public static final String COMPACT = "compact";
+  public static final String DERIVED = "derived";
+  public static final String NASDAQ = "nasdaq";
+  public static final String NASDAQ_CACHE = "nasdaq.cache";
+  public static final String NASDAQ_UNAVAILABLE = "nasdaq.unavailable";
+  public static final String QUERY_BYTES = "query.bytes";
+  public static final String QUERY_PRUNED = "query.pruned";
+  public static final String QUERY_ROW_GROUPS_SKIPPED = "query.rowGroupsSkipped";
+  public static final String QUERY_ROWS_SKIPPED = "query.rowsSkipped";
+  public static final String QUERY_SCAN = "query.scan";
+  public static final String RECONCILE_UNCHANGED = "reconcile.unchanged";
+  public static final String RECORDS_WRITTEN = "records.written";
+
+  private static final String BYTES = "bytes";
+  private static final String HIT = ".hit";
+  private static final String MISS = ".miss";
+  private static final String NAMESPACE = "StockCollector";
+
+  private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+  private final long startNanos = System.nanoTime();
+
+  private final Map<String, LongAdder> counters = new ConcurrentHashMap<>();
+
+  private final Map<String, Histogram> timers = new ConcurrentHashMap<>();
+
+  public Metrics() {
+
+  }
+
+  public void count(final String name) {
+    count(name, 1L);
+  }
+
+  public void count(final String name, final long value) {
+    counters.computeIfAbsent(name, (key) -> new LongAdder()).add(value);
+  }
+
+  public long getCount(final String name) {
+    LongAdder counter = counters.get(name);
+    return counter == null ? 0L : counter.sum();
+  }
+
+  public Histogram getTimer(final String name) {
+    return timers.computeIfAbsent(name, (key) -> new Histogram());
+  }
+
+  public void hit(final String name, final boolean hit) {
+    count(name + (hit ? HIT : MISS));
+  }
+
+  public long start() {
+    return System.nanoTime();
+  }
+
+  public void stop(final String name, final long startNanos) {
+    getTimer(name).record(System.nanoTime() - startNanos);
+  }
+
+  public String toEmf() {
+    Map<String, Double> values = new TreeMap<>();
+    Map<String, String> units = new TreeMap<>();
+    double elapsedSeconds = (System.nanoTime() - startNanos) / (double) TimeUnit.SECONDS.toNanos(1);
+    values.put("elapsed", elapsedSeconds);
+    units.put("elapsed", "Seconds");
+    counters.forEach((name, counter) -> {
+      values.put(name, (double) counter.sum());
+      units.put(name, name.toLowerCase(Locale.ROOT).endsWith(BYTES) ? "Bytes" : "Count");
+      if (name.endsWith(HIT)) {
+        String base = name.substring(0, name.length() - HIT.length());
+        long hits = counter.sum();
+        long total = hits + getCount(base + MISS);
+        values.put(base + ".hitRate", total == 0 ? 0.0 : 100.0 * hits / total);
+        units.put(base + ".hitRate", "Percent");
+      }
+    });
+    if (elapsedSeconds > 0) {
+      values.put(RECORDS_WRITTEN + ".perSecond", getCount(RECORDS_WRITTEN) / elapsedSeconds);
+      units.put(RECORDS_WRITTEN + ".perSecond", "Count/Second");
+    }
+    timers.forEach((name, histogram) -> {
+      values.put(name + ".count", (double) histogram.getCount());
+      units.put(name + ".count", "Count");
+      values.put(name + ".sum", histogram.getSumMillis());
+      values.put(name + ".mean", histogram.getMeanMillis());
+      values.put(name + ".p50", histogram.getPercentileMillis(50));
+      values.put(name + ".p99", histogram.getPercentileMillis(99));
+      values.put(name + ".max", histogram.getMaxMillis());
+      for (String suffix : new String[] {".sum", ".mean", ".p50", ".p99", ".max"}) {
+        units.put(name + suffix, "Milliseconds");
+      }
+    });
+    StringWriter writer = new StringWriter();
+    try (JsonGenerator json = JSON_FACTORY.createGenerator(writer)) {
+      json.writeStartObject();
+      json.writeObjectFieldStart("_aws");
+      json.writeNumberField("Timestamp", System.currentTimeMillis());
+      json.writeArrayFieldStart("CloudWatchMetrics");
+      json.writeStartObject();
+      json.writeStringField("Namespace", NAMESPACE);
+      json.writeArrayFieldStart("Dimensions");
+      json.writeStartArray();
+      json.writeEndArray();
+      json.writeEndArray();
+      json.writeArrayFieldStart("Metrics");
+      for (Map.Entry<String, String> unit : units.entrySet()) {
+        json.writeStartObject();
+        json.writeStringField("Name", unit.getKey());
+        json.writeStringField("Unit", unit.getValue());
+        json.writeEndObject();
+      }
+      json.writeEndArray();
+      json.writeEndObject();
+      json.writeEndArray();
+      json.writeEndObject();
+      for (Map.Entry<String, Double> value : values.entrySet()) {
+        json.writeNumberField(value.getKey(), value.getValue());
+      }
+      json.writeEndObject();
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    return writer.toString();
+  }
+
+}
@@ -0,0 +1,215 @@
+package dev.rkoch.aws.stock.collector.store;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.stream.Stream;
+import software.amazon.awssdk.core.exception.SdkClientException;
+import software.amazon.awssdk.core.sync.RequestBody;
+import software.amazon.awssdk.core.sync.ResponseTransformer;
+import software.amazon.awssdk.http.AbortableInputStream;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.DeleteObjectRequest;
+import software.amazon.awssdk.services.s3.model.DeleteObjectResponse;
+import software.amazon.awssdk.services.s3.model.GetObjectRequest;
+import software.amazon.awssdk.services.s3.model.GetObjectResponse;
+import software.amazon.awssdk.services.s3.model.HeadObjectRequest;
+import software.amazon.awssdk.services.s3.model.HeadObjectResponse;
+import software.amazon.awssdk.services.s3.model.ListObjectsV2Request;
+import software.amazon.awssdk.services.s3.model.ListObjectsV2Response;
+import software.amazon.awssdk.services.s3.model.NoSuchKeyException;
+import software.amazon.awssdk.services.s3.model.PutObjectRequest;
+import software.amazon.awssdk.services.s3.model.PutObjectResponse;
+import software.amazon.awssdk.services.s3.model.S3Exception;
+import software.amazon.awssdk.services.s3.model.S3Object;
+
+public class FileS3Client implements S3Client {
+
+  private static final String BYTES = "bytes=";
+
+  private static final int DEFAULT_MAX_KEYS = 1000;
+
+  private static final int PRECONDITION_FAILED = 412;
+
+  private static final String TMP_PREFIX = ".";
+
+  private final Path directory;
+
+  public FileS3Client(Path directory) {
+    this.directory = directory;
+  }
+
+  @Override
+  public void close() {
+
+  }
+
+  @Override
+  public DeleteObjectResponse deleteObject(final DeleteObjectRequest request) {
+    try {
+      Files.deleteIfExists(getPath(request.bucket(), request.key()));
+      return DeleteObjectResponse.builder().build();
+    } catch (IOException e) {
+      throw SdkClientException.create("delete failed for " + request.key(), e);
+    }
+  }
+
+  private String getETag(final Path path) throws IOException {
+    try (InputStream inputStream = Files.newInputStream(path)) {
+      MessageDigest digest = MessageDigest.getInstance("MD5");
+      byte[] buffer = new byte[16 * 1024];
+      int read;
+      while ((read = inputStream.read(buffer)) > 0) {
+        digest.update(buffer, 0, read);
+      }
+      return "\"" + HexFormat.of().formatHex(digest.digest()) + "\"";
+    } catch (NoSuchAlgorithmException e) {
+      throw new RuntimeException(e);
+    }
+  }
+
+  private Path getExisting(final String bucket, final String key) {
+    Path path = getPath(bucket, key);
+    if (!Files.isRegularFile(path)) {
+      throw NoSuchKeyException.builder().message("no such key " + key).statusCode(404).build();
+    }
+    return path;
+  }
+
+  private String getKey(final Path bucketDirectory, final Path path) {
+    return bucketDirectory.relativize(path).toString().replace(path.getFileSystem().getSeparator(), "/");
+  }
+
+  @Override
+  public <ReturnT> ReturnT getObject(final GetObjectRequest request, final ResponseTransformer<GetObjectResponse, ReturnT> transformer) {
+    Path path = getExisting(request.bucket(), request.key());
+    try {
+      GetObjectResponse.Builder builder = GetObjectResponse.builder().eTag(getETag(path)).lastModified(Files.getLastModifiedTime(path).toInstant());
+      InputStream inputStream;
+      if (request.range() == null) {
+        inputStream = Files.newInputStream(path);
+        builder.contentLength(Files.size(path));
+      } else {
+        byte[] bytes = Files.readAllBytes(path);
+        int[] bounds = getRange(bytes.length, request.range());
+        inputStream = new ByteArrayInputStream(bytes, bounds[0], bounds[1] - bounds[0]);
+        builder.contentLength((long) bounds[1] - bounds[0]).contentRange("bytes %s-%s/%s".formatted(bounds[0], bounds[1] - 1, bytes.length));
+      }
+      return transformer.transform(builder.build(), AbortableInputStream.create(inputStream));
+    } catch (Exception e) {
+      throw SdkClientException.create("get failed for " + request.key(), e);
+    }
+  }
+
+  private Path getPath(final String bucket, final String key) {
+    return directory.resolve(bucket).resolve(key);
+  }
+
+  private int[] getRange(final int length, final String range) {
+    if (!range.startsWith(BYTES)) {
+      throw new IllegalArgumentException("unsupported range " + range);
+    }
+    String[] bounds = range.substring(BYTES.length()).split("-", 2);
+    int from;
+    int to;
+    if (bounds[0].isEmpty()) {
+      from = Math.max(0, length - Integer.parseInt(bounds[1]));
+      to = length;
+    } else {
+      from = Integer.parseInt(bounds[0]);
+      to = bounds[1].isEmpty() ? length : Math.min(length, Integer.parseInt(bounds[1]) + 1);
+    }
+    return new int[] {Math.min(from, to), to};
+  }
+
+  @Override
+  public HeadObjectResponse headObject(final HeadObjectRequest request) {
+    Path path = getExisting(request.bucket(), request.key());
+    try {
+      return HeadObjectResponse.builder().contentLength(Files.size(path)).eTag(getETag(path)).lastModified(Files.getLastModifiedTime(path).toInstant()).build();
+    } catch (IOException e) {
+      throw SdkClientException.create("head failed for " + request.key(), e);
+    }
+  }
+
+  @Override
+  public ListObjectsV2Response listObjectsV2(final ListObjectsV2Request request) {
+    Path bucketDirectory = directory.resolve(request.bucket());
+    String prefix = request.prefix() == null ? "" : request.prefix();
+    String after = request.continuationToken() != null ? request.continuationToken() : request.startAfter();
+    int maxKeys = request.maxKeys() == null ? DEFAULT_MAX_KEYS : request.maxKeys();
+    if (!Files.isDirectory(bucketDirectory)) {
+      return ListObjectsV2Response.builder().name(request.bucket()).prefix(prefix).keyCount(0).isTruncated(false).build();
+    }
+    try (Stream<Path> paths = Files.walk(bucketDirectory)) {
+      List<Path> matches = paths.filter(Files::isRegularFile).filter((path) -> !path.getFileName().toString().startsWith(TMP_PREFIX))
+          .filter((path) -> getKey(bucketDirectory, path).startsWith(prefix)).filter((path) -> after == null || getKey(bucketDirectory, path).compareTo(after) > 0)
+          .sorted((a, b) -> getKey(bucketDirectory, a).compareTo(getKey(bucketDirectory, b))).toList();
+      List<S3Object> contents = matches.stream().limit(maxKeys).map((path) -> toS3Object(bucketDirectory, path)).toList();
+      boolean truncated = matches.size() > maxKeys;
+      return ListObjectsV2Response.builder().name(request.bucket()).prefix(prefix).contents(contents).keyCount(contents.size()).isTruncated(truncated)
+          .nextContinuationToken(truncated ? contents.getLast().key() : null).build();
+    } catch (IOException e) {
+      throw SdkClientException.create("list failed for " + prefix, e);
+    }
+  }
+
+  @Override
+  public PutObjectResponse putObject(final PutObjectRequest request, final RequestBody requestBody) {
+    Path path = getPath(request.bucket(), request.key());
+    if (request.ifMatch() == null && request.ifNoneMatch() == null) {
+      return write(path, request.key(), requestBody);
+    }
+    synchronized (this) {
+      try {
+        boolean exists = Files.isRegularFile(path);
+        if (request.ifNoneMatch() != null && exists || request.ifMatch() != null && (!exists || !request.ifMatch().equals(getETag(path)))) {
+          throw S3Exception.builder().message("precondition failed for " + request.key()).statusCode(PRECONDITION_FAILED).build();
+        }
+      } catch (IOException e) {
+        throw SdkClientException.create("put failed for " + request.key(), e);
+      }
+      return write(path, request.key(), requestBody);
+    }
+  }
+
+  @Override
+  public String serviceName() {
+    return SERVICE_NAME;
+  }
+
+  private S3Object toS3Object(final Path bucketDirectory, final Path path) {
+    try {
+      BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+      Instant lastModified = attributes.lastModifiedTime().toInstant();
+      String eTag = "\"%x-%x-%x\"".formatted(attributes.size(), lastModified.getEpochSecond(), lastModified.getNano());
+      return S3Object.builder().key(getKey(bucketDirectory, path)).size(attributes.size()).eTag(eTag).lastModified(lastModified).build();
+    } catch (IOException e) {
+      throw SdkClientException.create("stat failed for " + path, e);
+    }
+  }
+
+  private PutObjectResponse write(final Path path, final String key, final RequestBody requestBody) {
+    try {
+      Files.createDirectories(path.getParent());
+      Path tmp = Files.createTempFile(path.getParent(), TMP_PREFIX, ".tmp");
+      try (InputStream inputStream = requestBody.contentStreamProvider().newStream()) {
+        Files.copy(inputStream, tmp, StandardCopyOption.REPLACE_EXISTING);
+      }
+      Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+      return PutObjectResponse.builder().eTag(getETag(path)).build();
+    } catch (IOException e) {
+      throw SdkClientException.create("put failed for " + key, e);
+    }
+  }
+
+}
@@ -0,0 +1,29 @@
+package dev.rkoch.aws.stock.collector.store;
+
+public class ObjectRange {
+
+  private final byte[] bytes;
+
+  private final long offset;
+
+  private final long length;
+
+  public ObjectRange(byte[] bytes, long offset, long length) {
+    this.bytes = bytes;
+    this.offset = offset;
+    this.length = length;
+  }
+
+  public byte[] getBytes() {
+    return bytes;
+  }
+
+  public long getLength() {
+    return length;
+  }
+
+  public long getOffset() {
+    return offset;
+  }
+
+}
@@ -0,0 +1,23 @@
+package dev.rkoch.aws.stock.collector.store;
+
+import java.util.List;
+
+public interface ObjectStore {
+
+  boolean compareAndPut(String key, byte[] bytes, String eTag);
+
+  void delete(String key);
+
+  byte[] get(String key);
+
+  String getETag(String key);
+
+  byte[] getRange(String key, long offset, int length);
+
+  ObjectRange getTail(String key, int length);
+
+  List<String> list(String prefix);
+
+  void put(String key, byte[] bytes);
+
+}
@@ -0,0 +1,48 @@
+package dev.rkoch.aws.stock.collector.store;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Properties;
+import java.util.function.Consumer;
+
+public class PropertiesStore {
+
+  private static final int MAX_ATTEMPTS = 16;
+
+  public static Properties load(final byte[] bytes) {
+    Properties properties = new Properties();
+    if (bytes != null) {
+      try {
+        properties.load(new ByteArrayInputStream(bytes));
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    }
+    return properties;
+  }
+
+  private static byte[] store(final Properties properties) {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try {
+      properties.store(bytes, null);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    return bytes.toByteArray();
+  }
+
+  public static Properties update(final ObjectStore objectStore, final String key, final Consumer<Properties> merge) {
+    for (int attempt = 0; attempt < MAX_ATTEMPTS; attempt++) {
+      String eTag = objectStore.getETag(key);
+      Properties properties = load(eTag == null ? null : objectStore.get(key));
+      merge.accept(properties);
+      if (objectStore.compareAndPut(key, store(properties), eTag)) {
+        return properties;
+      }
+    }
+    throw new IllegalStateException("%s changed concurrently %s times".formatted(key, MAX_ATTEMPTS));
+  }
+
+}
@@ -0,0 +1,98 @@
+package dev.rkoch.aws.stock.collector.store;
+
+import java.util.List;
+import software.amazon.awssdk.core.ResponseBytes;
+import software.amazon.awssdk.core.sync.RequestBody;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.GetObjectResponse;
+import software.amazon.awssdk.services.s3.model.NoSuchKeyException;
+import software.amazon.awssdk.services.s3.model.S3Exception;
+import software.amazon.awssdk.services.s3.model.S3Object;
+
+public class S3ObjectStore implements ObjectStore {
+
+  private static final int CONFLICT = 409;
+
+  private static final int PRECONDITION_FAILED = 412;
+
+  private final S3Client s3Client;
+
+  private final String bucketName;
+
+  public S3ObjectStore(S3Client s3Client, String bucketName) {
+    this.s3Client = s3Client;
+    this.bucketName = bucketName;
+  }
+
+  @Override
+  public boolean compareAndPut(final String key, final byte[] bytes, final String eTag) {
+    try {
+      s3Client.putObject((request) -> {
+        request.bucket(bucketName).key(key);
+        if (eTag == null) {
+          request.ifNoneMatch("*");
+        } else {
+          request.ifMatch(eTag);
+        }
+      }, RequestBody.fromBytes(bytes));
+      return true;
+    } catch (S3Exception e) {
+      if (e.statusCode() == PRECONDITION_FAILED || e.statusCode() == CONFLICT) {
+        return false;
+      }
+      throw e;
+    }
+  }
+
+  @Override
+  public void delete(final String key) {
+    s3Client.deleteObject((request) -> request.bucket(bucketName).key(key));
+  }
+
+  @Override
+  public byte[] get(final String key) {
+    try {
+      return s3Client.getObjectAsBytes((request) -> request.bucket(bucketName).key(key)).asByteArray();
+    } catch (NoSuchKeyException e) {
+      return null;
+    }
+  }
+
+  @Override
+  public String getETag(final String key) {
+    try {
+      return s3Client.headObject((request) -> request.bucket(bucketName).key(key)).eTag();
+    } catch (NoSuchKeyException e) {
+      return null;
+    }
+  }
+
+  @Override
+  public byte[] getRange(final String key, final long offset, final int length) {
+    return s3Client.getObjectAsBytes((request) -> request.bucket(bucketName).key(key).range("bytes=%s-%s".formatted(offset, offset + length - 1))).asByteArray();
+  }
+
+  @Override
+  public ObjectRange getTail(final String key, final int length) {
+    try {
+      ResponseBytes<GetObjectResponse> response = s3Client.getObjectAsBytes((request) -> request.bucket(bucketName).key(key).range("bytes=-" + length));
+      byte[] bytes = response.asByteArray();
+      String contentRange = response.response().contentRange();
+      long objectLength = contentRange == null ? bytes.length : Long.parseLong(contentRange.substring(contentRange.lastIndexOf('/') + 1));
+      return new ObjectRange(bytes, objectLength - bytes.length, objectLength);
+    } catch (NoSuchKeyException e) {
+      return null;
+    }
+  }
+
+  @Override
+  public List<String> list(final String prefix) {
+    return s3Client.listObjectsV2Paginator((request) -> request.bucket(bucketName).prefix(prefix)).contents().stream().map(S3Object::key).toList();
+  }
+
+  @Override
+  public void put(final String key, final byte[] bytes) {
+    s3Client.putObject((request) -> request.bucket(bucketName).key(key), RequestBody.fromBytes(bytes));
+  }
+
+}
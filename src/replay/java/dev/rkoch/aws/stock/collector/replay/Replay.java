@@ -0,0 +1,159 @@
+package dev.rkoch.aws.stock.collector.replay;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDate;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+import com.amazonaws.services.lambda.runtime.LambdaLogger;
+import com.amazonaws.services.lambda.runtime.logging.LogLevel;
+import com.sun.management.ThreadMXBean;
+import dev.rkoch.aws.s3.parquet.S3Parquet;
+import dev.rkoch.aws.stock.collector.CollectRequest;
+import dev.rkoch.aws.stock.collector.Handler;
+import dev.rkoch.aws.stock.collector.Symbols;
+import dev.rkoch.aws.stock.collector.TradingCalendar;
+import dev.rkoch.aws.stock.collector.cache.FileHistoryCache;
+import dev.rkoch.aws.stock.collector.store.FileS3Client;
+import dev.rkoch.aws.stock.collector.store.S3ObjectStore;
+import software.amazon.awssdk.services.s3.S3Client;
+
+public class Replay {
+
+  private static final String BUCKET_NAME = "dev-rkoch-spre";
+
+  private static final String ALPHAVANTAGE = "alphavantage";
+
+  private static final String CACHE = "cache";
+
+  private static final String FIXTURES = "fixtures";
+
+  private static final String NASDAQ = "nasdaq";
+
+  private static final String STORE = "store";
+
+  private static final String PARTITION_PREFIX = "raw/stock/localDate=";
+
+  private static final int DEFAULT_RUNS = 3;
+
+  private static final int DEFAULT_SYMBOLS = 503;
+
+  private static final int DEFAULT_YEARS = 10;
+
+  private static final String CACHE_TTL_HOURS = String.valueOf(100 * 365 * 24);
+
+  private static final double MEGABYTE = 1024 * 1024;
+
+  private static void copy(final Path source, final Path target) throws IOException {
+    if (!Files.isDirectory(source)) {
+      return;
+    }
+    try (Stream<Path> paths = Files.walk(source)) {
+      for (Path path : paths.toList()) {
+        Path destination = target.resolve(source.relativize(path).toString());
+        if (Files.isDirectory(path)) {
+          Files.createDirectories(destination);
+        } else {
+          Files.copy(path, destination, StandardCopyOption.REPLACE_EXISTING);
+        }
+      }
+    }
+  }
+
+  private static void delete(final Path directory) throws IOException {
+    if (!Files.exists(directory)) {
+      return;
+    }
+    try (Stream<Path> paths = Files.walk(directory)) {
+      for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+        Files.delete(path);
+      }
+    }
+  }
+
+  public static void main(final String[] args) throws Exception {
+    Path directory = Path.of(args.length > 0 ? args[0] : "replay");
+    int symbolCount = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_SYMBOLS;
+    int years = args.length > 2 ? Integer.parseInt(args[2]) : DEFAULT_YEARS;
+    int runs = args.length > 3 ? Integer.parseInt(args[3]) : DEFAULT_RUNS;
+    new Replay(directory, new ReplayLogger(LogLevel.WARN)).run(symbolCount, years, runs);
+  }
+
+  private final Path directory;
+
+  private final LambdaLogger logger;
+
+  public Replay(Path directory, LambdaLogger logger) {
+    this.directory = directory;
+    this.logger = logger;
+  }
+
+  private long countDates(final S3Client s3Client) {
+    return s3Client.listObjectsV2Paginator((request) -> request.bucket(BUCKET_NAME).prefix(PARTITION_PREFIX)).contents().stream()
+        .map((object) -> object.key().substring(PARTITION_PREFIX.length(), PARTITION_PREFIX.length() + 10)).distinct().count();
+  }
+
+  private void generate(final Path fixtures, final int symbolCount, final int years) throws Exception {
+    S3Client s3Client = new FileS3Client(fixtures.resolve(STORE));
+    LocalDate toDate = LocalDate.now().plusDays(1);
+    new SyntheticFixtures(new S3Parquet(s3Client), new TradingCalendar(new S3ObjectStore(s3Client, BUCKET_NAME)), new FileHistoryCache(fixtures.resolve(NASDAQ)),
+        new FileHistoryCache(fixtures.resolve(ALPHAVANTAGE))).generate(symbolCount, toDate.minusYears(years).minusDays(7), toDate);
+    logger.log("generated %s symbols over %s years in %s".formatted(symbolCount, years, fixtures));
+  }
+
+  private void reset(final Path fixtures, final Path store, final Path cache) throws IOException {
+    delete(store);
+    delete(cache);
+    copy(fixtures.resolve(STORE), store);
+    copy(fixtures.resolve(ALPHAVANTAGE), cache.resolve(ALPHAVANTAGE));
+  }
+
+  public void run(final int symbolCount, final int years, final int runs) throws Exception {
+    Path fixtures = directory.resolve(FIXTURES);
+    if (!Files.isDirectory(fixtures.resolve(NASDAQ))) {
+      generate(fixtures, symbolCount, years);
+    }
+    Path store = directory.resolve(STORE);
+    Path cache = directory.resolve(CACHE);
+    try (ReplayServer server = new ReplayServer(fixtures.resolve(NASDAQ))) {
+      System.setProperty("REPLAY_DIRECTORY", store.toString());
+      System.setProperty("CACHE_DIRECTORY", cache.toString());
+      System.setProperty("CACHE_TTL_HOURS", CACHE_TTL_HOURS);
+      System.setProperty("NASDAQ_URL", server.getUri().toString());
+      System.setProperty("NASDAQ_RATE", String.valueOf(Integer.MAX_VALUE));
+      System.setProperty("INVOKER", "local");
+      System.setProperty("ALPHAVANTAGE_API_KEY", "replay");
+      for (int i = 1; i <= runs; i++) {
+        reset(fixtures, store, cache);
+        run(i, store, server);
+      }
+    }
+  }
+
+  private void run(final int run, final Path store, final ReplayServer server) {
+    ThreadMXBean threads = (ThreadMXBean) ManagementFactory.getThreadMXBean();
+    List<MemoryPoolMXBean> pools = ManagementFactory.getMemoryPoolMXBeans().stream().filter((pool) -> pool.getType() == MemoryType.HEAP).toList();
+    System.gc();
+    pools.forEach(MemoryPoolMXBean::resetPeakUsage);
+    long requests = server.getRequests();
+    long allocated = threads.getTotalThreadAllocatedBytes();
+    long start = System.nanoTime();
+    new Handler().handleRequest(new CollectRequest(), new ReplayContext(logger));
+    double seconds = (System.nanoTime() - start) / 1e9;
+    double allocatedMegabytes = (threads.getTotalThreadAllocatedBytes() - allocated) / MEGABYTE;
+    double peakMegabytes = pools.stream().mapToLong((pool) -> pool.getPeakUsage().getUsed()).sum() / MEGABYTE;
+    S3Client s3Client = new FileS3Client(store);
+    int symbols = new Symbols(new S3Parquet(s3Client), new S3ObjectStore(s3Client, BUCKET_NAME)).get().size();
+    long dates = countDates(s3Client);
+    logger.log("run %s: %s symbols, %s dates, %s requests in %.2fs: %.1f symbols/s, %.1f dates/s, %.1f MB/s allocated (%.1f MB), %.1f MB peak heap".formatted(run,
+        symbols, dates, server.getRequests() - requests, seconds, symbols / seconds, dates / seconds, allocatedMegabytes / seconds, allocatedMegabytes,
+        peakMegabytes));
+  }
+
+}
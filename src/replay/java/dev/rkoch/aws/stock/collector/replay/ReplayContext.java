@@ -0,0 +1,73 @@
+package dev.rkoch.aws.stock.collector.replay;
+
+import com.amazonaws.services.lambda.runtime.ClientContext;
+import com.amazonaws.services.lambda.runtime.CognitoIdentity;
+import com.amazonaws.services.lambda.runtime.Context;
+import com.amazonaws.services.lambda.runtime.LambdaLogger;
+
+public class ReplayContext implements Context {
+
+  private static final String NAME = "replay";
+
+  private final LambdaLogger logger;
+
+  public ReplayContext(LambdaLogger logger) {
+    this.logger = logger;
+  }
+
+  @Override
+  public String getAwsRequestId() {
+    return NAME;
+  }
+
+  @Override
+  public ClientContext getClientContext() {
+    return null;
+  }
+
+  @Override
+  public String getFunctionName() {
+    return NAME;
+  }
+
+  @Override
+  public String getFunctionVersion() {
+    return NAME;
+  }
+
+  @Override
+  public CognitoIdentity getIdentity() {
+    return null;
+  }
+
+  @Override
+  public String getInvokedFunctionArn() {
+    return NAME;
+  }
+
+  @Override
+  public String getLogGroupName() {
+    return NAME;
+  }
+
+  @Override
+  public LambdaLogger getLogger() {
+    return logger;
+  }
+
+  @Override
+  public String getLogStreamName() {
+    return NAME;
+  }
+
+  @Override
+  public int getMemoryLimitInMB() {
+    return (int) (Runtime.getRuntime().maxMemory() / (1024 * 1024));
+  }
+
+  @Override
+  public int getRemainingTimeInMillis() {
+    return Integer.MAX_VALUE;
+  }
+
+}
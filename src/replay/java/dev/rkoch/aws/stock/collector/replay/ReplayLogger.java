@@ -0,0 +1,32 @@
+package dev.rkoch.aws.stock.collector.replay;
+
+import java.nio.charset.StandardCharsets;
+import com.amazonaws.services.lambda.runtime.LambdaLogger;
+import com.amazonaws.services.lambda.runtime.logging.LogLevel;
+
+public class ReplayLogger implements LambdaLogger {
+
+  private final LogLevel minLevel;
+
+  public ReplayLogger(LogLevel minLevel) {
+    this.minLevel = minLevel;
+  }
+
+  @Override
+  public void log(final byte[] message) {
+    log(new String(message, StandardCharsets.UTF_8));
+  }
+
+  @Override
+  public void log(final String message) {
+    System.out.println(message);
+  }
+
+  @Override
+  public void log(final String message, final LogLevel logLevel) {
+    if (logLevel.ordinal() >= minLevel.ordinal()) {
+      log("%s %s".formatted(logLevel, message));
+    }
+  }
+
+}
@@ -0,0 +1,189 @@
+package dev.rkoch.aws.stock.collector.replay;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+import java.util.zip.GZIPOutputStream;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import dev.rkoch.aws.stock.collector.StockHistory;
+import dev.rkoch.aws.stock.collector.cache.CacheEntry;
+import dev.rkoch.aws.stock.collector.cache.FileHistoryCache;
+
+public class ReplayServer implements AutoCloseable {
+
+  private static class Fixture {
+
+    private final String symbol;
+
+    private final int[] epochDays;
+
+    private final byte[][] rows;
+
+    private Fixture(String symbol, StockHistory history) {
+      this.symbol = symbol;
+      this.epochDays = new int[history.size()];
+      this.rows = new byte[history.size()][];
+      for (int i = 0; i < history.size(); i++) {
+        epochDays[i] = history.getEpochDay(i);
+        rows[i] = toRow(history, i);
+      }
+    }
+
+    private int lowerBound(final int epochDay) {
+      int index = Arrays.binarySearch(epochDays, epochDay);
+      return index < 0 ? -index - 1 : index;
+    }
+
+    private byte[] render(final LocalDate fromDate, final LocalDate toDate, final int limit) {
+      int to = lowerBound((int) toDate.toEpochDay() + 1);
+      int from = Math.max(lowerBound((int) fromDate.toEpochDay()), to - limit);
+      int count = Math.max(0, to - from);
+      ByteArrayOutputStream outputStream = new ByteArrayOutputStream(RESPONSE_END.length() + count * 128);
+      outputStream.writeBytes(RESPONSE_START.formatted(symbol, count).getBytes(StandardCharsets.UTF_8));
+      for (int i = to - 1; i >= from; i--) {
+        outputStream.writeBytes(rows[i]);
+        if (i > from) {
+          outputStream.write(',');
+        }
+      }
+      outputStream.writeBytes(RESPONSE_END.getBytes(StandardCharsets.UTF_8));
+      return outputStream.toByteArray();
+    }
+
+  }
+
+  private static final String ACCEPT_ENCODING = "Accept-Encoding";
+
+  private static final String CONTENT_ENCODING = "Content-Encoding";
+
+  private static final String CONTEXT = "/api/quote/";
+
+  private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("MM/dd/yyyy");
+
+  private static final String FIXTURE_SUFFIX = ".bin.gz";
+
+  private static final String GZIP = "gzip";
+
+  private static final byte[] NOT_FOUND = ("{\"data\":null,\"message\":null,\"status\":{\"rCode\":400,\"bCodeMessage\":[{\"code\":1001,"
+      + "\"errorMessage\":\"Symbol not exists\"}],\"developerMessage\":null}}").getBytes(StandardCharsets.UTF_8);
+
+  private static final String RESPONSE_END = "]}},\"message\":null,\"status\":{\"rCode\":200,\"bCodeMessage\":null,\"developerMessage\":null}}";
+
+  private static final String RESPONSE_START = "{\"data\":{\"symbol\":\"%s\",\"totalRecords\":%s,\"tradesTable\":{\"asOf\":null,\"rows\":[";
+
+  private static final String ROW = "{\"date\":\"%s\",\"close\":\"$%,.2f\",\"volume\":\"%,d\",\"open\":\"$%,.2f\",\"high\":\"$%,.2f\",\"low\":\"$%,.2f\"}";
+
+  private static Map<String, String> getQuery(final String query) {
+    Map<String, String> parameters = new HashMap<>();
+    if (query != null) {
+      for (String parameter : query.split("&")) {
+        String[] pair = parameter.split("=", 2);
+        parameters.put(pair[0], pair.length > 1 ? pair[1] : "");
+      }
+    }
+    return parameters;
+  }
+
+  private static byte[] toRow(final StockHistory history, final int index) {
+    return String.format(Locale.US, ROW, LocalDate.ofEpochDay(history.getEpochDay(index)).format(DATE_FORMAT), history.getClose(index),
+        history.getVolume(index), history.getOpen(index), history.getHigh(index), history.getLow(index)).getBytes(StandardCharsets.UTF_8);
+  }
+
+  private final Map<String, Fixture> fixtures = new HashMap<>();
+
+  private final LongAdder requests = new LongAdder();
+
+  private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+  private final HttpServer server;
+
+  public ReplayServer(Path directory) throws IOException {
+    FileHistoryCache cache = new FileHistoryCache(directory);
+    List<String> symbols;
+    try (Stream<Path> paths = Files.list(directory)) {
+      symbols = paths.map((path) -> path.getFileName().toString()).filter((name) -> name.endsWith(FIXTURE_SUFFIX))
+          .map((name) -> name.substring(0, name.length() - FIXTURE_SUFFIX.length())).toList();
+    }
+    for (String symbol : symbols) {
+      CacheEntry entry = cache.get(symbol);
+      if (entry != null) {
+        String apiSymbol = symbol.replace(".", "-");
+        fixtures.put(apiSymbol, new Fixture(apiSymbol, entry.getHistory()));
+      }
+    }
+    server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+    server.createContext(CONTEXT, this::handle);
+    server.setExecutor(executor);
+    server.start();
+  }
+
+  @Override
+  public void close() {
+    server.stop(0);
+    executor.close();
+  }
+
+  private byte[] getBody(final URI uri) {
+    String[] segments = uri.getPath().split("/");
+    Fixture fixture = segments.length > 3 ? fixtures.get(segments[3]) : null;
+    if (fixture == null) {
+      return NOT_FOUND;
+    }
+    Map<String, String> query = getQuery(uri.getRawQuery());
+    return fixture.render(LocalDate.parse(query.get("fromdate")), LocalDate.parse(query.get("todate")), Integer.parseInt(query.get("limit")));
+  }
+
+  public long getRequests() {
+    return requests.sum();
+  }
+
+  public URI getUri() {
+    InetSocketAddress address = server.getAddress();
+    return URI.create("http://%s:%s".formatted(address.getHostString(), address.getPort()));
+  }
+
+  private void handle(final HttpExchange exchange) throws IOException {
+    try (exchange) {
+      requests.increment();
+      byte[] body;
+      try {
+        body = getBody(exchange.getRequestURI());
+      } catch (RuntimeException e) {
+        exchange.sendResponseHeaders(400, -1);
+        return;
+      }
+      String acceptEncoding = exchange.getRequestHeaders().getFirst(ACCEPT_ENCODING);
+      if (acceptEncoding != null && acceptEncoding.contains(GZIP)) {
+        exchange.getResponseHeaders().set(CONTENT_ENCODING, GZIP);
+        exchange.sendResponseHeaders(200, 0);
+        try (OutputStream outputStream = new GZIPOutputStream(exchange.getResponseBody())) {
+          outputStream.write(body);
+        }
+      } else {
+        exchange.sendResponseHeaders(200, body.length);
+        try (OutputStream outputStream = exchange.getResponseBody()) {
+          outputStream.write(body);
+        }
+      }
+    }
+  }
+
+}
@@ -0,0 +1,75 @@
+package dev.rkoch.aws.stock.collector.replay;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import dev.rkoch.aws.s3.parquet.S3Parquet;
+import dev.rkoch.aws.stock.collector.StockHistory;
+import dev.rkoch.aws.stock.collector.SymbolRecord;
+import dev.rkoch.aws.stock.collector.TradingCalendar;
+import dev.rkoch.aws.stock.collector.cache.CacheEntry;
+import dev.rkoch.aws.stock.collector.cache.HistoryCache;
+
+public class SyntheticFixtures {
+
+  private static final String BUCKET_NAME = "dev-rkoch-spre";
+
+  private static final String SYMBOLS_KEY = "symbols/spx.parquet";
+
+  private static final String[] SECTORS = {"Communication Services", "Consumer Discretionary", "Consumer Staples", "Energy", "Financials", "Health Care",
+      "Industrials", "Information Technology", "Materials", "Real Estate", "Utilities"};
+
+  private static double round(final double value) {
+    return Math.round(value * 100) / 100.0;
+  }
+
+  private final S3Parquet s3Parquet;
+
+  private final TradingCalendar tradingCalendar;
+
+  private final HistoryCache nasdaqCache;
+
+  private final HistoryCache alphaVantageCache;
+
+  public SyntheticFixtures(S3Parquet s3Parquet, TradingCalendar tradingCalendar, HistoryCache nasdaqCache, HistoryCache alphaVantageCache) {
+    this.s3Parquet = s3Parquet;
+    this.tradingCalendar = tradingCalendar;
+    this.nasdaqCache = nasdaqCache;
+    this.alphaVantageCache = alphaVantageCache;
+  }
+
+  public void generate(final int symbolCount, final LocalDate fromDate, final LocalDate toDate) throws Exception {
+    List<LocalDate> dates = tradingCalendar.getTradingDays(fromDate, toDate);
+    List<SymbolRecord> records = new ArrayList<>(symbolCount);
+    Instant fetchedAt = Instant.now();
+    for (int i = 0; i < symbolCount; i++) {
+      String symbol = getSymbol(i);
+      records.add(new SymbolRecord(symbol, SECTORS[i % SECTORS.length]));
+      CacheEntry entry = new CacheEntry(getHistory(symbol, new Random(i), dates), fromDate, fetchedAt);
+      nasdaqCache.put(symbol, entry);
+      alphaVantageCache.put(symbol, entry);
+    }
+    s3Parquet.write(BUCKET_NAME, SYMBOLS_KEY, records);
+  }
+
+  private StockHistory getHistory(final String symbol, final Random random, final List<LocalDate> dates) {
+    StockHistory.Builder builder = StockHistory.builder(symbol, dates.size());
+    double price = 20 + random.nextDouble() * 480;
+    for (LocalDate date : dates) {
+      double open = round(price);
+      double close = round(open * Math.exp(random.nextGaussian() * 0.02));
+      double high = round(Math.max(open, close) * (1 + random.nextDouble() * 0.01));
+      double low = round(Math.min(open, close) * (1 - random.nextDouble() * 0.01));
+      builder.add((int) date.toEpochDay(), close, high, low, open, 100_000 + random.nextInt(10_000_000));
+      price = Math.max(1, close);
+    }
+    return builder.build();
+  }
+
+  private String getSymbol(final int index) {
+    return index % 100 == 99 ? "SYN%03d.B".formatted(index) : "SYN%03d".formatted(index);
+  }
+
+}
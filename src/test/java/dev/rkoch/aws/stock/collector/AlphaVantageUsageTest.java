@@ -0,0 +1,43 @@
+package dev.rkoch.aws.stock.collector;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import dev.rkoch.aws.stock.collector.store.FileS3Client;
+import dev.rkoch.aws.stock.collector.store.ObjectStore;
+import dev.rkoch.aws.stock.collector.store.S3ObjectStore;
+
+class AlphaVantageUsageTest {
+
+  private static final LocalDate DATE = LocalDate.of(2025, 1, 6);
+
+  @TempDir
+  private Path directory;
+
+  @Test
+  void countsEveryShard() {
+    ObjectStore objectStore = new S3ObjectStore(new FileS3Client(directory), "bucket");
+    List<AlphaVantageUsage> usages = new ArrayList<>();
+    for (int i = 0; i < 4; i++) {
+      usages.add(new AlphaVantageUsage(objectStore, DATE));
+    }
+    try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+      for (AlphaVantageUsage usage : usages) {
+        executor.submit(() -> {
+          for (int i = 0; i < 5; i++) {
+            usage.increment();
+          }
+        });
+      }
+    }
+    assertEquals(20, new AlphaVantageUsage(objectStore, DATE).get());
+    assertEquals(0, new AlphaVantageUsage(objectStore, DATE.plusDays(1)).get());
+  }
+
+}
@@ -0,0 +1,126 @@
+package dev.rkoch.aws.stock.collector;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import dev.rkoch.aws.stock.collector.metrics.Metrics;
+import dev.rkoch.aws.stock.collector.store.FileS3Client;
+import dev.rkoch.aws.stock.collector.store.S3ObjectStore;
+
+class BulkLoaderTest {
+
+  private static final LocalDate MONDAY = LocalDate.of(2025, 1, 6);
+
+  private static StockHistory history(final String symbol, final LocalDate... dates) {
+    StockHistory.Builder builder = StockHistory.builder(symbol);
+    for (LocalDate date : dates) {
+      builder.add((int) date.toEpochDay(), date.getDayOfMonth(), date.getDayOfMonth(), date.getDayOfMonth(), date.getDayOfMonth(), date.getDayOfMonth());
+    }
+    return builder.build();
+  }
+
+  @TempDir
+  private Path directory;
+
+  private final Map<String, StockHistory> histories = new ConcurrentHashMap<>();
+
+  private final List<LocalDate> committed = new CopyOnWriteArrayList<>();
+
+  private final Map<LocalDate, StockBatch> batches = new ConcurrentHashMap<>();
+
+  private TradingCalendar tradingCalendar;
+
+  @Test
+  void failsWhenProbeHasNoData() {
+    histories.put("AAA", history("AAA"));
+    histories.put("BBB", history("BBB", MONDAY, MONDAY.plusDays(1)));
+    try (PartitionWriter writer = writer()) {
+      assertFalse(loader(7).load(List.of("AAA", "BBB"), MONDAY, MONDAY.plusDays(7), writer));
+    }
+    assertTrue(committed.isEmpty());
+  }
+
+  private BulkLoader loader(final int windowDays) {
+    return new BulkLoader(new TestLogger(), (symbol, fromDate, toDate) -> histories.get(symbol).slice(fromDate, toDate), tradingCalendar, Deadline.none(),
+        windowDays, new Metrics());
+  }
+
+  @Test
+  void learnsOpenDaysOnlyOnceSettled() {
+    LocalDate early = LocalDate.of(2025, 1, 11);
+    LocalDate late = LocalDate.of(2025, 1, 25);
+    histories.put("AAA", history("AAA", Stream.concat(tradingCalendar.getTradingDays(MONDAY, MONDAY.plusDays(21)).stream(), Stream.of(early, late)).sorted().toArray(LocalDate[]::new)));
+    try (PartitionWriter writer = writer()) {
+      assertTrue(loader(28).load(List.of("AAA"), MONDAY, MONDAY.plusDays(21), writer));
+    }
+    assertTrue(committed.containsAll(List.of(early, late)));
+    assertTrue(tradingCalendar.isTradingDay(early));
+    assertFalse(tradingCalendar.isTradingDay(late));
+  }
+
+  @Test
+  void learnsOpenDaysOnlyWithProbeOrEnoughSymbols() {
+    LocalDate probed = LocalDate.of(2025, 1, 9);
+    LocalDate stray = LocalDate.of(2025, 1, 20);
+    LocalDate shared = LocalDate.of(2025, 1, 11);
+    List<LocalDate> days = tradingCalendar.getTradingDays(MONDAY, MONDAY.plusDays(28));
+    histories.put("AAA", history("AAA", Stream.concat(days.stream(), Stream.of(probed)).sorted().toArray(LocalDate[]::new)));
+    histories.put("BBB", history("BBB", Stream.concat(days.stream(), Stream.of(shared, stray)).sorted().toArray(LocalDate[]::new)));
+    histories.put("CCC", history("CCC", Stream.concat(days.stream(), Stream.of(shared)).sorted().toArray(LocalDate[]::new)));
+    histories.put("DDD", history("DDD", Stream.concat(days.stream(), Stream.of(shared)).sorted().toArray(LocalDate[]::new)));
+    histories.put("EEE", history("EEE", Stream.concat(days.stream(), Stream.of(shared)).sorted().toArray(LocalDate[]::new)));
+    try (PartitionWriter writer = writer()) {
+      assertTrue(loader(7).load(List.of("AAA", "BBB", "CCC", "DDD", "EEE"), MONDAY, MONDAY.plusDays(28), writer));
+    }
+    assertTrue(committed.containsAll(List.of(probed, stray, shared)));
+    assertTrue(tradingCalendar.isTradingDay(probed));
+    assertTrue(tradingCalendar.isTradingDay(shared));
+    assertFalse(tradingCalendar.isTradingDay(stray));
+  }
+
+  @Test
+  void skipsEmptyProbeOutsideTradingDays() {
+    histories.put("AAA", history("AAA", MONDAY));
+    histories.put("BBB", history("BBB", MONDAY));
+    try (PartitionWriter writer = writer()) {
+      assertTrue(loader(2).load(List.of("AAA", "BBB"), MONDAY.minusDays(2), MONDAY.plusDays(1), writer));
+    }
+    assertEquals(List.of(MONDAY), committed);
+  }
+
+  @BeforeEach
+  void start() {
+    tradingCalendar = new TradingCalendar(new S3ObjectStore(new FileS3Client(directory), "bucket"));
+  }
+
+  @Test
+  void writesUnionOfDaysAcrossWindows() {
+    histories.put("AAA", history("AAA", MONDAY, MONDAY.plusDays(1), MONDAY.plusDays(7)));
+    histories.put("BBB", history("BBB", MONDAY.plusDays(1), MONDAY.plusDays(2), MONDAY.plusDays(8)));
+    try (PartitionWriter writer = writer()) {
+      assertTrue(loader(7).load(List.of("AAA", "BBB"), MONDAY, MONDAY.plusDays(14), writer));
+    }
+    assertEquals(List.of(MONDAY, MONDAY.plusDays(1), MONDAY.plusDays(2), MONDAY.plusDays(7), MONDAY.plusDays(8)), committed);
+    StockBatch batch = batches.get(MONDAY.plusDays(2));
+    assertEquals(2, batch.size());
+    assertEquals("AAA", batch.getSymbol(0));
+    assertEquals(0, batch.getClose(0));
+    assertEquals("BBB", batch.getSymbol(1));
+    assertEquals(8, batch.getClose(1));
+  }
+
+  private PartitionWriter writer() {
+    return new PartitionWriter(new TestLogger(), 4, (date, batch) -> batches.put(date, batch), (date, batch) -> committed.add(date));
+  }
+
+}
@@ -0,0 +1,115 @@
+package dev.rkoch.aws.stock.collector;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.List;
+import java.util.Set;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import dev.rkoch.aws.s3.parquet.S3Parquet;
+import dev.rkoch.aws.stock.collector.metrics.Metrics;
+import dev.rkoch.aws.stock.collector.store.FileS3Client;
+import dev.rkoch.aws.stock.collector.store.ObjectStore;
+import dev.rkoch.aws.stock.collector.store.S3ObjectStore;
+
+class CompactorTest {
+
+  private static final String BUCKET_NAME = "dev-rkoch-spre";
+
+  private static final String PARQUET_KEY = "raw/stock/localDate=%s/data.parquet";
+
+  private static final String SECTOR_KEY = "raw/stock/localDate=%s/sector=Energy/data.parquet";
+
+  private static final List<String> SYMBOLS = List.of("DDD", "AAA", "CCC", "BBB");
+
+  private static void assertSameRows(final StockBatch expected, final StockBatch actual) {
+    assertEquals(expected.size(), actual.size());
+    assertEquals(expected.sortBySymbol().getContentHash(), actual.sortBySymbol().getContentHash());
+  }
+
+  @TempDir
+  private Path directory;
+
+  private ObjectStore objectStore;
+
+  private S3Parquet s3Parquet;
+
+  private TradingCalendar tradingCalendar;
+
+  private Compactor compactor() {
+    return new Compactor(new TestLogger(), objectStore, tradingCalendar, Deadline.none(), 4, new Metrics());
+  }
+
+  @Test
+  void compactedReadsMatchDailyReads() throws Exception {
+    write(LocalDate.of(2025, 1, 1), LocalDate.of(2025, 4, 1));
+    List<StockQuery> queries = List.of(new StockQuery(LocalDate.of(2025, 1, 1), LocalDate.of(2025, 4, 1), null, null),
+        new StockQuery(LocalDate.of(2025, 1, 15), LocalDate.of(2025, 3, 10), Set.of("BBB"), List.of(StockRecord.CLOSE)),
+        new StockQuery(LocalDate.of(2025, 2, 3), LocalDate.of(2025, 2, 4), Set.of("AAA", "DDD"), null));
+    List<StockBatch> daily = queries.stream().map((query) -> reader().read(query)).toList();
+    assertTrue(compactor().compact(LocalDate.of(2025, 1, 1), LocalDate.of(2025, 4, 10)));
+    for (int i = 0; i < queries.size(); i++) {
+      assertSameRows(daily.get(i), reader().read(queries.get(i)));
+    }
+    assertNull(objectStore.get(PARQUET_KEY.formatted(LocalDate.of(2025, 1, 2))));
+    assertNotNull(objectStore.get(LayoutManifest.getKey(YearMonth.of(2025, 3))));
+    assertNull(objectStore.get(LayoutManifest.getKey(YearMonth.of(2025, 4))));
+  }
+
+  @Test
+  void keepsNonDailyKeys() throws Exception {
+    write(LocalDate.of(2025, 1, 1), LocalDate.of(2025, 2, 1));
+    s3Parquet.write(BUCKET_NAME, SECTOR_KEY.formatted(LocalDate.of(2025, 1, 2)), new StockBatch(1).add(0, "EEE", 1, 1, 1, 1, 1).rows());
+    assertTrue(compactor().compact(LocalDate.of(2025, 1, 1), LocalDate.of(2025, 2, 10)));
+    assertNotNull(objectStore.get(SECTOR_KEY.formatted(LocalDate.of(2025, 1, 2))));
+    assertTrue(objectStore.list("raw/stock/localDate=2025-01-").stream().allMatch((key) -> key.contains("sector=")));
+  }
+
+  @Test
+  void recordsEmptyMonthsAndResumes() throws Exception {
+    write(LocalDate.of(2025, 1, 1), LocalDate.of(2025, 2, 1));
+    write(LocalDate.of(2025, 3, 1), LocalDate.of(2025, 4, 1));
+    assertTrue(compactor().compact(LocalDate.of(2025, 1, 1), LocalDate.of(2025, 3, 5)));
+    LayoutManifest layout = new LayoutManifest(objectStore);
+    assertEquals(YearMonth.of(2025, 2), layout.getLastMonth());
+    assertTrue(layout.isCompacted(YearMonth.of(2025, 2)));
+    assertNull(objectStore.get(LayoutManifest.getKey(YearMonth.of(2025, 2))));
+    assertFalse(layout.isCompacted(YearMonth.of(2025, 3)));
+    assertNotNull(objectStore.get(PARQUET_KEY.formatted(LocalDate.of(2025, 3, 3))));
+    StockBatch before = reader().read(new StockQuery(LocalDate.of(2025, 1, 1), LocalDate.of(2025, 4, 1), null, null));
+    assertTrue(compactor().compact(LocalDate.of(2025, 1, 1), LocalDate.of(2025, 4, 2)));
+    assertEquals(YearMonth.of(2025, 3), new LayoutManifest(objectStore).getLastMonth());
+    assertSameRows(before, reader().read(new StockQuery(LocalDate.of(2025, 1, 1), LocalDate.of(2025, 4, 1), null, null)));
+  }
+
+  private StockReader reader() {
+    return new StockReader(objectStore, tradingCalendar, 4, new Metrics());
+  }
+
+  @BeforeEach
+  void start() {
+    FileS3Client s3Client = new FileS3Client(directory);
+    objectStore = new S3ObjectStore(s3Client, BUCKET_NAME);
+    s3Parquet = new S3Parquet(s3Client);
+    tradingCalendar = new TradingCalendar(objectStore);
+  }
+
+  private void write(final LocalDate fromDate, final LocalDate toDate) throws Exception {
+    for (LocalDate date : tradingCalendar.getTradingDays(fromDate, toDate)) {
+      StockBatch batch = new StockBatch(SYMBOLS.size());
+      for (int i = 0; i < SYMBOLS.size(); i++) {
+        double price = date.getDayOfYear() * 10 + i + 0.25;
+        batch.add((int) date.toEpochDay(), SYMBOLS.get(i), price, price + 1, price - 1, price, date.getDayOfYear() * 1000L + i);
+      }
+      s3Parquet.write(BUCKET_NAME, PARQUET_KEY.formatted(date), batch.rows());
+    }
+  }
+
+}
@@ -0,0 +1,69 @@
+package dev.rkoch.aws.stock.collector;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.Map;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import dev.rkoch.aws.stock.collector.store.FileS3Client;
+import dev.rkoch.aws.stock.collector.store.ObjectStore;
+import dev.rkoch.aws.stock.collector.store.S3ObjectStore;
+
+class DeferredSymbolsTest {
+
+  private static final LocalDate DATE = LocalDate.of(2025, 1, 6);
+
+  @TempDir
+  private Path directory;
+
+  private ObjectStore objectStore;
+
+  @Test
+  void keepsEarlierDeferralFromAnotherShard() {
+    DeferredSymbols first = new DeferredSymbols(objectStore);
+    DeferredSymbols second = new DeferredSymbols(objectStore);
+    first.add("AAA", DATE.plusDays(2), DeferredSymbols.Reason.NASDAQ);
+    first.save();
+    second.add("AAA", DATE, DeferredSymbols.Reason.NASDAQ);
+    second.save();
+    assertEquals(Map.of("AAA", DATE), new DeferredSymbols(objectStore).get(DeferredSymbols.Reason.NASDAQ));
+  }
+
+  @Test
+  void mergesConcurrentShards() {
+    DeferredSymbols first = new DeferredSymbols(objectStore);
+    DeferredSymbols second = new DeferredSymbols(objectStore);
+    first.add("AAA", DATE, DeferredSymbols.Reason.NASDAQ);
+    second.add("BBB", DATE.plusDays(1), DeferredSymbols.Reason.ALPHAVANTAGE);
+    first.save();
+    second.save();
+    DeferredSymbols loaded = new DeferredSymbols(objectStore);
+    assertEquals(Map.of("AAA", DATE), loaded.get(DeferredSymbols.Reason.NASDAQ));
+    assertEquals(Map.of("BBB", DATE.plusDays(1)), loaded.get(DeferredSymbols.Reason.ALPHAVANTAGE));
+    assertEquals(Map.of("AAA", DATE), second.get(DeferredSymbols.Reason.NASDAQ));
+  }
+
+  @Test
+  void removeKeepsNewerDeferralFromAnotherShard() {
+    DeferredSymbols seed = new DeferredSymbols(objectStore);
+    seed.add("AAA", DATE.plusDays(3), DeferredSymbols.Reason.NASDAQ);
+    seed.add("BBB", DATE, DeferredSymbols.Reason.NASDAQ);
+    seed.save();
+    DeferredSymbols first = new DeferredSymbols(objectStore);
+    DeferredSymbols second = new DeferredSymbols(objectStore);
+    second.add("AAA", DATE, DeferredSymbols.Reason.NASDAQ);
+    second.save();
+    first.remove("AAA");
+    first.remove("BBB");
+    first.save();
+    assertEquals(Map.of("AAA", DATE), new DeferredSymbols(objectStore).get(DeferredSymbols.Reason.NASDAQ));
+  }
+
+  @BeforeEach
+  void start() {
+    objectStore = new S3ObjectStore(new FileS3Client(directory), "bucket");
+  }
+
+}
@@ -0,0 +1,186 @@
+package dev.rkoch.aws.stock.collector;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import dev.rkoch.aws.s3.parquet.S3Parquet;
+import dev.rkoch.aws.stock.collector.metrics.Metrics;
+import dev.rkoch.aws.stock.collector.store.FileS3Client;
+import dev.rkoch.aws.stock.collector.store.ObjectStore;
+import dev.rkoch.aws.stock.collector.store.S3ObjectStore;
+
+class DerivedStageTest {
+
+  private static class Fixture {
+
+    private final ObjectStore objectStore;
+
+    private final S3Parquet s3Parquet;
+
+    private final TradingCalendar tradingCalendar;
+
+    private Fixture(Path directory) {
+      FileS3Client s3Client = new FileS3Client(directory);
+      this.objectStore = new S3ObjectStore(s3Client, BUCKET_NAME);
+      this.s3Parquet = new S3Parquet(s3Client);
+      this.tradingCalendar = new TradingCalendar(objectStore);
+    }
+
+    private List<String> derived(final LocalDate date) throws Exception {
+      DerivedBatch batch = DerivedBatch.from(s3Parquet.read(BUCKET_NAME, DERIVED_KEY.formatted(date), DerivedBatch.Row.class));
+      List<String> rows = new ArrayList<>(batch.size());
+      for (int i = 0; i < batch.size(); i++) {
+        rows.add("%s %s %s %s %s %s %s %s".formatted(batch.getEpochDay(i), batch.getSymbol(i), batch.getClose(i), batch.getDailyReturn(i),
+            batch.getSmaShort(i), batch.getSmaLong(i), batch.getVolatility(i), batch.getVwap(i)));
+      }
+      return rows.stream().sorted().toList();
+    }
+
+    private DerivedStage stage() {
+      return new DerivedStage(new TestLogger(), objectStore, s3Parquet, tradingCalendar, 4, new Metrics());
+    }
+
+    private StockBatch write(final LocalDate date, final double shift) throws Exception {
+      StockBatch batch = new StockBatch(SYMBOLS.size());
+      for (int i = 0; i < SYMBOLS.size(); i++) {
+        double close = price(i, date) + shift;
+        batch.add((int) date.toEpochDay(), SYMBOLS.get(i), close, close * 1.01, close * 0.98, close, volume(i, date));
+      }
+      s3Parquet.write(BUCKET_NAME, RAW_KEY.formatted(date), batch.rows());
+      return batch;
+    }
+
+  }
+
+  private static final String BUCKET_NAME = "dev-rkoch-spre";
+
+  private static final String DERIVED_KEY = "derived/stock/localDate=%s/data.parquet";
+
+  private static final String RAW_KEY = "raw/stock/localDate=%s/data.parquet";
+
+  private static final String STATE_KEY = "state/derived/windows.bin";
+
+  private static final List<String> SYMBOLS = List.of("CCC", "AAA", "BBB");
+
+  private static final LocalDate FROM_DATE = LocalDate.of(2025, 1, 1);
+
+  private static final LocalDate SPLIT_DATE = LocalDate.of(2025, 3, 1);
+
+  private static final LocalDate TO_DATE = LocalDate.of(2025, 5, 1);
+
+  private static double price(final int symbol, final LocalDate date) {
+    return 50 + symbol * 25 + new Random(date.toEpochDay() * 31 + symbol).nextInt(1000) / 100.0;
+  }
+
+  private static long volume(final int symbol, final LocalDate date) {
+    return 1_000 + new Random(date.toEpochDay() * 17 + symbol).nextInt(100_000);
+  }
+
+  @TempDir
+  private Path directory;
+
+  @Test
+  void catchUpMatchesIncrementalAccept() throws Exception {
+    Fixture backfill = new Fixture(directory.resolve("backfill"));
+    List<LocalDate> dates = backfill.tradingCalendar.getTradingDays(FROM_DATE, TO_DATE);
+    for (LocalDate date : dates) {
+      backfill.write(date, 0);
+    }
+    DerivedStage backfillStage = backfill.stage();
+    assertTrue(backfillStage.catchUp(FROM_DATE, TO_DATE, Deadline.none()));
+    backfillStage.save();
+    Fixture incremental = new Fixture(directory.resolve("incremental"));
+    for (LocalDate date : dates.stream().filter((date) -> date.isBefore(SPLIT_DATE)).toList()) {
+      incremental.write(date, 0);
+    }
+    DerivedStage incrementalStage = incremental.stage();
+    assertTrue(incrementalStage.catchUp(FROM_DATE, SPLIT_DATE, Deadline.none()));
+    for (LocalDate date : dates.stream().filter((date) -> !date.isBefore(SPLIT_DATE)).toList()) {
+      incrementalStage.accept(date, incremental.write(date, 0));
+    }
+    incrementalStage.save();
+    for (LocalDate date : dates) {
+      assertEquals(backfill.derived(date), incremental.derived(date), date.toString());
+    }
+    assertArrayEquals(backfill.objectStore.get(STATE_KEY), incremental.objectStore.get(STATE_KEY));
+  }
+
+  @Test
+  void catchUpMatchesNaiveWindows() throws Exception {
+    Fixture fixture = new Fixture(directory);
+    List<LocalDate> dates = fixture.tradingCalendar.getTradingDays(FROM_DATE, TO_DATE);
+    for (LocalDate date : dates) {
+      fixture.write(date, 0);
+    }
+    assertTrue(fixture.stage().catchUp(FROM_DATE, TO_DATE, Deadline.none()));
+    int symbol = SYMBOLS.indexOf("BBB");
+    for (int n = RollingWindows.LONG_WINDOW; n <= dates.size(); n++) {
+      LocalDate date = dates.get(n - 1);
+      DerivedBatch batch = DerivedBatch.from(fixture.s3Parquet.read(BUCKET_NAME, DERIVED_KEY.formatted(date), DerivedBatch.Row.class));
+      int index = 0;
+      while (!"BBB".equals(batch.getSymbol(index))) {
+        index++;
+      }
+      double shortSum = 0;
+      double longSum = 0;
+      double typicalVolumeSum = 0;
+      double volumeSum = 0;
+      for (int k = n - RollingWindows.LONG_WINDOW; k < n; k++) {
+        double close = price(symbol, dates.get(k));
+        longSum += close;
+        if (k >= n - RollingWindows.SHORT_WINDOW) {
+          long volume = volume(symbol, dates.get(k));
+          shortSum += close;
+          typicalVolumeSum += (close * 1.01 + close * 0.98 + close) / 3 * volume;
+          volumeSum += volume;
+        }
+      }
+      assertEquals(shortSum / RollingWindows.SHORT_WINDOW, batch.getSmaShort(index), 1e-9, date.toString());
+      assertEquals(longSum / RollingWindows.LONG_WINDOW, batch.getSmaLong(index), 1e-9, date.toString());
+      assertEquals(typicalVolumeSum / volumeSum, batch.getVwap(index), 1e-9, date.toString());
+    }
+  }
+
+  @Test
+  void recomputeRewritesFromDate() throws Exception {
+    Fixture fixture = new Fixture(directory.resolve("recompute"));
+    List<LocalDate> dates = fixture.tradingCalendar.getTradingDays(FROM_DATE, TO_DATE);
+    for (LocalDate date : dates) {
+      fixture.write(date, 0);
+    }
+    assertTrue(fixture.stage().catchUp(FROM_DATE, TO_DATE, Deadline.none()));
+    List<LocalDate> before = dates.stream().filter((date) -> date.isBefore(SPLIT_DATE)).toList();
+    List<List<String>> unchanged = new ArrayList<>();
+    for (LocalDate date : before) {
+      unchanged.add(fixture.derived(date));
+    }
+    LocalDate changed = dates.get(before.size());
+    List<String> stale = fixture.derived(changed);
+    fixture.write(changed, 1.5);
+    DerivedStage stage = fixture.stage();
+    assertTrue(stage.recompute(FROM_DATE, changed, TO_DATE, Deadline.none()));
+    stage.save();
+    Fixture expected = new Fixture(directory.resolve("expected"));
+    for (LocalDate date : dates) {
+      expected.write(date, date.equals(changed) ? 1.5 : 0);
+    }
+    assertTrue(expected.stage().catchUp(FROM_DATE, TO_DATE, Deadline.none()));
+    for (int i = 0; i < before.size(); i++) {
+      assertEquals(unchanged.get(i), fixture.derived(before.get(i)));
+    }
+    assertNotEquals(stale, fixture.derived(changed));
+    for (LocalDate date : dates) {
+      assertEquals(expected.derived(date), fixture.derived(date), date.toString());
+    }
+    assertArrayEquals(expected.objectStore.get(STATE_KEY), fixture.objectStore.get(STATE_KEY));
+  }
+
+}
@@ -0,0 +1,88 @@
+package dev.rkoch.aws.stock.collector;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import dev.rkoch.aws.collector.utils.State;
+import dev.rkoch.aws.s3.parquet.S3Parquet;
+import dev.rkoch.aws.stock.collector.store.FileS3Client;
+import dev.rkoch.aws.stock.collector.store.ObjectStore;
+import dev.rkoch.aws.stock.collector.store.S3ObjectStore;
+
+class FanOutCoordinatorTest {
+
+  private static final String BUCKET_NAME = "dev-rkoch-spre";
+
+  private static final String PARQUET_KEY = "raw/stock/localDate=%s/data.parquet";
+
+  private static final String STAGING_KEY = "staging/stock/localDate=%s/shard=%s/data.parquet";
+
+  private static final LocalDate FROM_DATE = LocalDate.of(2025, 1, 6);
+
+  private static final LocalDate TO_DATE = LocalDate.of(2025, 1, 8);
+
+  @TempDir
+  private Path directory;
+
+  private FileS3Client s3Client;
+
+  private ObjectStore objectStore;
+
+  private S3Parquet s3Parquet;
+
+  private FanOutPlan plan;
+
+  private void done(final CollectRequest request) {
+    new ShardProgress(objectStore, "fanout/" + Shard.toPartitionValue(request.getShard())).setLastAddedStockDate(TO_DATE.minusDays(1));
+  }
+
+  @Test
+  void mergesDatesStagedByOnlySomeShards() throws Exception {
+    CollectRequest first = plan.getRequests().get(0);
+    CollectRequest second = plan.getRequests().get(1);
+    stage(first, FROM_DATE, "AAA");
+    stage(second, FROM_DATE, "ZZZ");
+    stage(first, FROM_DATE.plusDays(1), "AAA");
+    done(first);
+    done(second);
+    try (State state = new State(s3Client, BUCKET_NAME)) {
+      new FanOutCoordinator(new TestLogger(), objectStore).merge(state);
+    }
+    assertEquals(2, StockBatch.from(s3Parquet.read(BUCKET_NAME, PARQUET_KEY.formatted(FROM_DATE), StockBatch.Row.class)).size());
+    assertEquals(1, StockBatch.from(s3Parquet.read(BUCKET_NAME, PARQUET_KEY.formatted(FROM_DATE.plusDays(1)), StockBatch.Row.class)).size());
+    assertNull(FanOutPlan.load(objectStore));
+  }
+
+  private void stage(final CollectRequest request, final LocalDate date, final String symbol) throws Exception {
+    s3Parquet.write(BUCKET_NAME, STAGING_KEY.formatted(date, Shard.toPartitionValue(request.getShard())),
+        List.of(StockRecord.of(date, symbol, 10, 11, 9, 10, 1_000)));
+  }
+
+  @BeforeEach
+  void start() {
+    s3Client = new FileS3Client(directory);
+    objectStore = new S3ObjectStore(s3Client, BUCKET_NAME);
+    s3Parquet = new S3Parquet(s3Client);
+    plan = FanOutPlan.create(FROM_DATE, TO_DATE, List.of("AAA", "ZZZ"), 2);
+    plan.save(objectStore);
+  }
+
+  @Test
+  void waitsForShardsStillRunning() throws Exception {
+    CollectRequest first = plan.getRequests().get(0);
+    stage(first, FROM_DATE, "AAA");
+    done(first);
+    try (State state = new State(s3Client, BUCKET_NAME)) {
+      new FanOutCoordinator(new TestLogger(), objectStore).merge(state);
+    }
+    assertNull(objectStore.get(PARQUET_KEY.formatted(FROM_DATE)));
+    assertNotNull(FanOutPlan.load(objectStore));
+  }
+
+}
@@ -0,0 +1,87 @@
+package dev.rkoch.aws.stock.collector;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+
+class PartitionWriterTest {
+
+  private static final LocalDate DATE = LocalDate.of(2025, 1, 2);
+
+  private static StockBatch batch(final int epochDay) {
+    return new StockBatch(1).add(epochDay, "AAA", 1, 1, 1, 1, 1);
+  }
+
+  @Test
+  void commitFailureIsRethrownFromClose() {
+    IllegalStateException failure = new IllegalStateException("commit failed");
+    PartitionWriter writer = new PartitionWriter(new TestLogger(), 2, (date, batch) -> Thread.sleep(20), (date, batch) -> {
+      throw failure;
+    });
+    writer.submit(DATE, () -> batch(0));
+    assertSame(failure, assertThrows(IllegalStateException.class, writer::close));
+    assertTrue(writer.isFailed());
+  }
+
+  @Test
+  void commitsInSubmissionOrder() {
+    List<LocalDate> committed = new CopyOnWriteArrayList<>();
+    try (PartitionWriter writer = new PartitionWriter(new TestLogger(), 8, (date, batch) -> Thread.sleep(80 - date.getDayOfMonth() * 5L),
+        (date, batch) -> committed.add(date))) {
+      for (int i = 0; i < 12; i++) {
+        assertTrue(writer.submit(DATE.plusDays(i), () -> batch(0)));
+      }
+      assertTrue(writer.flush());
+    }
+    assertEquals(12, committed.size());
+    for (int i = 0; i < committed.size(); i++) {
+      assertEquals(DATE.plusDays(i), committed.get(i));
+    }
+  }
+
+  @Test
+  void limitsPendingUploads() {
+    AtomicInteger running = new AtomicInteger();
+    AtomicInteger maxRunning = new AtomicInteger();
+    try (PartitionWriter writer = new PartitionWriter(new TestLogger(), 3, (date, batch) -> {
+      maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+      Thread.sleep(10);
+      running.decrementAndGet();
+    }, (date, batch) -> {
+    })) {
+      for (int i = 0; i < 30; i++) {
+        writer.submit(DATE.plusDays(i), () -> batch(0));
+      }
+      assertTrue(writer.flush());
+    }
+    assertTrue(maxRunning.get() <= 3, "ran " + maxRunning.get());
+  }
+
+  @Test
+  void stopsCommittingAfterUploadFailure() {
+    List<LocalDate> committed = new CopyOnWriteArrayList<>();
+    TestLogger logger = new TestLogger();
+    try (PartitionWriter writer = new PartitionWriter(logger, 4, (date, batch) -> {
+      if (date.equals(DATE.plusDays(2))) {
+        throw new IOException("upload failed");
+      }
+    }, (date, batch) -> committed.add(date))) {
+      for (int i = 0; i < 5; i++) {
+        writer.submit(DATE.plusDays(i), () -> batch(0));
+      }
+      assertFalse(writer.flush());
+      assertFalse(writer.submit(DATE.plusDays(5), () -> batch(0)));
+    }
+    assertEquals(List.of(DATE, DATE.plusDays(1)), committed);
+    assertTrue(logger.getMessages().stream().anyMatch((message) -> message.contains("upload failed")));
+  }
+
+}
@@ -0,0 +1,24 @@
+package dev.rkoch.aws.stock.collector;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+
+class PrimerTest {
+
+  @Test
+  void primeLeavesSymbolDictionaryUnchanged() {
+    SymbolDictionary symbols = SymbolDictionary.symbols();
+    int code = symbols.code("PRIMER-TEST");
+    int size = symbols.size();
+    new Primer().prime();
+    assertEquals(size, symbols.size());
+    assertEquals(code, symbols.find("PRIMER-TEST"));
+    assertEquals(-1, symbols.find("PRIME"));
+    for (int i = 0; i < 16; i++) {
+      assertEquals(-1, symbols.find("PRIME" + i));
+    }
+    assertTrue(symbols.code("PRIME") >= size);
+  }
+
+}
@@ -0,0 +1,115 @@
+package dev.rkoch.aws.stock.collector;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import dev.rkoch.aws.stock.collector.metrics.Metrics;
+import dev.rkoch.aws.stock.collector.store.FileS3Client;
+import dev.rkoch.aws.stock.collector.store.ObjectStore;
+import dev.rkoch.aws.stock.collector.store.S3ObjectStore;
+
+class ReconcilerTest {
+
+  private static final String PARQUET_KEY = "raw/stock/localDate=%s/data.parquet";
+
+  private static final List<String> SYMBOLS = List.of("BBB", "AAA");
+
+  private static final YearMonth MONTH = YearMonth.of(2025, 1);
+
+  private static final LocalDate CORRECTED = LocalDate.of(2025, 1, 15);
+
+  private static double price(final LocalDate date, final int symbol) {
+    return date.getDayOfMonth() * 10 + symbol + 0.5;
+  }
+
+  @TempDir
+  private Path directory;
+
+  private final Map<String, StockHistory> histories = new ConcurrentHashMap<>();
+
+  private ObjectStore objectStore;
+
+  private TradingCalendar tradingCalendar;
+
+  private TestLogger logger;
+
+  private void compact() {
+    assertTrue(new Compactor(new TestLogger(), objectStore, tradingCalendar, Deadline.none(), 4, new Metrics()).compact(MONTH.atDay(1), MONTH.plusMonths(1).atDay(10)));
+  }
+
+  private Reconciler reconciler() {
+    BulkLoader loader = new BulkLoader(new TestLogger(), (symbol, fromDate, toDate) -> histories.get(symbol).slice(fromDate, toDate), tradingCalendar, Deadline.none(), 31,
+        new Metrics());
+    return new Reconciler(logger, objectStore, new LayoutManifest(objectStore), loader, Deadline.none(), new Metrics());
+  }
+
+  private List<LocalDate> days() {
+    return tradingCalendar.getTradingDays(MONTH.atDay(1), MONTH.plusMonths(1).atDay(1));
+  }
+
+  @Test
+  void reconcilesCompactedMonths() throws Exception {
+    for (LocalDate date : days()) {
+      StockBatch batch = new StockBatch(SYMBOLS.size());
+      for (int i = 0; i < SYMBOLS.size(); i++) {
+        batch.add((int) date.toEpochDay(), SYMBOLS.get(i), price(date, i), price(date, i), price(date, i), price(date, i), i);
+      }
+      StockWriter.write(objectStore, PARQUET_KEY.formatted(date), batch);
+    }
+    compact();
+    for (int i = 0; i < SYMBOLS.size(); i++) {
+      StockHistory.Builder builder = StockHistory.builder(SYMBOLS.get(i));
+      for (LocalDate date : days()) {
+        double close = date.equals(CORRECTED) && i == 0 ? 99.5 : price(date, i);
+        builder.add((int) date.toEpochDay(), close, price(date, i), price(date, i), price(date, i), i);
+      }
+      histories.put(SYMBOLS.get(i), builder.build());
+    }
+    Shard shard = new Shard("all", SYMBOLS, PARQUET_KEY, null);
+    Reconciler reconciler = reconciler();
+    assertTrue(reconciler.reconcile(shard, days()));
+    assertEquals(CORRECTED, reconciler.getReconciledFrom());
+    assertNull(objectStore.get(PARQUET_KEY.formatted(CORRECTED)));
+    StockBatch month = StockReader.read(objectStore, LayoutManifest.getKey(MONTH));
+    assertEquals(days().size() * SYMBOLS.size(), month.size());
+    for (int i = 0; i < month.size(); i++) {
+      LocalDate date = LocalDate.ofEpochDay(month.getEpochDay(i));
+      int symbol = SYMBOLS.indexOf(month.getSymbol(i));
+      assertEquals(date.equals(CORRECTED) && symbol == 0 ? 99.5 : price(date, symbol), month.getClose(i));
+    }
+    String eTag = objectStore.getETag(LayoutManifest.getKey(MONTH));
+    Reconciler unchanged = reconciler();
+    assertTrue(unchanged.reconcile(shard, days()));
+    assertNull(unchanged.getReconciledFrom());
+    assertEquals(eTag, objectStore.getETag(LayoutManifest.getKey(MONTH)));
+  }
+
+  @Test
+  void skipsCompactedMonthsWithoutData() {
+    compact();
+    histories.put("BBB", StockHistory.builder("BBB").build());
+    histories.put("AAA", StockHistory.builder("AAA").build());
+    Reconciler reconciler = reconciler();
+    assertTrue(reconciler.reconcile(new Shard("all", SYMBOLS, PARQUET_KEY, null), days()));
+    assertNull(reconciler.getReconciledFrom());
+    assertNull(objectStore.get(LayoutManifest.getKey(MONTH)));
+    assertTrue(logger.getMessages().stream().anyMatch((message) -> message.contains("compacted without data")));
+  }
+
+  @BeforeEach
+  void start() {
+    objectStore = new S3ObjectStore(new FileS3Client(directory), "dev-rkoch-spre");
+    tradingCalendar = new TradingCalendar(objectStore);
+    logger = new TestLogger();
+  }
+
+}
@@ -0,0 +1,119 @@
+package dev.rkoch.aws.stock.collector;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import dev.rkoch.aws.s3.parquet.S3Parquet;
+import dev.rkoch.aws.stock.collector.store.FileS3Client;
+import dev.rkoch.aws.stock.collector.store.S3ObjectStore;
+
+class StockBatchTest {
+
+  private static final String BUCKET_NAME = "bucket";
+
+  private static final LocalDate DATE = LocalDate.of(2025, 1, 2);
+
+  private static void assertRecord(final StockRecord expected, final StockRecord actual) {
+    assertEquals(expected.getLocalDate(), actual.getLocalDate());
+    assertEquals(expected.getId(), actual.getId());
+    assertEquals(expected.getClose(), actual.getClose());
+    assertEquals(expected.getHigh(), actual.getHigh());
+    assertEquals(expected.getLow(), actual.getLow());
+    assertEquals(expected.getOpen(), actual.getOpen());
+    assertEquals(expected.getVolume(), actual.getVolume());
+  }
+
+  private static List<StockRecord> records(final int count) {
+    List<StockRecord> records = new ArrayList<>(count);
+    for (int i = 0; i < count; i++) {
+      records.add(StockRecord.of(DATE, "S" + (count - i), 10.25 + i, 11.5 + i, 9.75 + i, 10 + i, 1_000L * i));
+    }
+    return records;
+  }
+
+  @TempDir
+  private Path directory;
+
+  @Test
+  void batchReadsRowPathFiles() throws Exception {
+    S3Parquet s3Parquet = new S3Parquet(new FileS3Client(directory));
+    List<StockRecord> records = records(1500);
+    s3Parquet.write(BUCKET_NAME, "rows.parquet", records);
+    StockBatch batch = StockBatch.from(s3Parquet.read(BUCKET_NAME, "rows.parquet", StockBatch.Row.class));
+    assertEquals(records.size(), batch.size());
+    for (int i = 0; i < records.size(); i++) {
+      assertRecord(records.get(i), batch.getRecord(i));
+    }
+  }
+
+  @Test
+  void columnPathReadsRowPathFiles() throws Exception {
+    FileS3Client s3Client = new FileS3Client(directory);
+    List<StockRecord> records = records(1500);
+    new S3Parquet(s3Client).write(BUCKET_NAME, "rows.parquet", records);
+    StockBatch batch = StockReader.read(new S3ObjectStore(s3Client, BUCKET_NAME), "rows.parquet");
+    assertEquals(records.size(), batch.size());
+    for (int i = 0; i < records.size(); i++) {
+      assertRecord(records.get(i), batch.getRecord(i));
+    }
+  }
+
+  @Test
+  void columnPathRoundTrips() throws Exception {
+    StockBatch batch = StockBatch.of(records(2500));
+    StockBatch read = StockReader.read(StockWriter.write(batch));
+    assertEquals(batch.size(), read.size());
+    assertEquals(batch.getContentHash(), read.getContentHash());
+    assertEquals(0, StockReader.read(StockWriter.write(new StockBatch(0))).size());
+  }
+
+  @Test
+  void contentHashTracksContent() {
+    StockBatch batch = StockBatch.of(records(10));
+    assertEquals(batch.getContentHash(), StockBatch.of(records(10)).getContentHash());
+    List<StockRecord> changed = records(10);
+    changed.get(5).setClose(changed.get(5).getClose() + 0.01);
+    assertNotEquals(batch.getContentHash(), StockBatch.of(changed).getContentHash());
+    assertNotEquals(batch.getContentHash(), StockBatch.of(records(9)).getContentHash());
+  }
+
+  @Test
+  void rowPathReadsBatchFiles() throws Exception {
+    S3Parquet s3Parquet = new S3Parquet(new FileS3Client(directory));
+    List<StockRecord> records = records(1500);
+    s3Parquet.write(BUCKET_NAME, "batch.parquet", StockBatch.of(records).rows());
+    List<StockRecord> read = s3Parquet.read(BUCKET_NAME, "batch.parquet", StockRecord.class);
+    assertEquals(records.size(), read.size());
+    for (int i = 0; i < records.size(); i++) {
+      assertRecord(records.get(i), read.get(i));
+    }
+  }
+
+  @Test
+  void rowPathReadsColumnFiles() throws Exception {
+    FileS3Client s3Client = new FileS3Client(directory);
+    List<StockRecord> records = records(2500);
+    StockWriter.write(new S3ObjectStore(s3Client, BUCKET_NAME), "columns.parquet", StockBatch.of(records));
+    List<StockRecord> read = new S3Parquet(s3Client).read(BUCKET_NAME, "columns.parquet", StockRecord.class);
+    assertEquals(records.size(), read.size());
+    for (int i = 0; i < records.size(); i++) {
+      assertRecord(records.get(i), read.get(i));
+    }
+  }
+
+  @Test
+  void sortBySymbolOrdersBySymbolThenDate() {
+    StockBatch batch = new StockBatch(4).add(2, "B", 1, 1, 1, 1, 1).add(1, "B", 2, 2, 2, 2, 2).add(3, "A", 3, 3, 3, 3, 3).sortBySymbol();
+    assertEquals("A", batch.getSymbol(0));
+    assertEquals("B", batch.getSymbol(1));
+    assertEquals(1, batch.getEpochDay(1));
+    assertEquals(2, batch.getEpochDay(2));
+    assertEquals(1, batch.getClose(2));
+  }
+
+}
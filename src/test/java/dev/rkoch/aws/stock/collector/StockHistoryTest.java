@@ -0,0 +1,74 @@
+package dev.rkoch.aws.stock.collector;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class StockHistoryTest {
+
+  private static final LocalDate FROM_DATE = LocalDate.of(2015, 1, 1);
+
+  private static final LocalDate TO_DATE = LocalDate.of(2025, 1, 1);
+
+  private static boolean isWeekend(final LocalDate date) {
+    return date.getDayOfWeek() == DayOfWeek.SATURDAY || date.getDayOfWeek() == DayOfWeek.SUNDAY;
+  }
+
+  private static StockHistory weekdays(final String symbol) {
+    StockHistory.Builder builder = StockHistory.builder(symbol);
+    for (LocalDate date = TO_DATE.minusDays(1); !date.isBefore(FROM_DATE); date = date.minusDays(1)) {
+      if (!isWeekend(date)) {
+        builder.add((int) date.toEpochDay(), date.getDayOfYear(), date.getDayOfYear() + 1, date.getDayOfYear() - 1, date.getDayOfYear(), date.getYear());
+      }
+    }
+    return builder.build();
+  }
+
+  @Test
+  void buildSortsAndKeepsLastDuplicate() {
+    StockHistory history = StockHistory.builder("AAA").add(20, 2, 2, 2, 2, 2).add(10, 1, 1, 1, 1, 1).add(20, 3, 3, 3, 3, 3).build();
+    assertEquals(2, history.size());
+    assertEquals(10, history.getEpochDay(0));
+    assertEquals(20, history.getEpochDay(1));
+    assertEquals(3, history.getClose(1));
+  }
+
+  @Test
+  void getMatchesReversedScan() {
+    StockHistory history = weekdays("AAA");
+    List<StockRecord> records = history.getRecords();
+    for (LocalDate date = FROM_DATE.minusDays(3); date.isBefore(TO_DATE.plusDays(3)); date = date.plusDays(1)) {
+      StockRecord expected = null;
+      for (StockRecord record : records.reversed()) {
+        if (record.getLocalDate().isEqual(date)) {
+          expected = record;
+          break;
+        }
+      }
+      StockRecord actual = history.get(date);
+      if (expected == null) {
+        assertNull(actual, date.toString());
+      } else {
+        assertEquals(expected.getLocalDate(), actual.getLocalDate());
+        assertEquals(expected.getClose(), actual.getClose());
+        assertEquals(expected.getVolume(), actual.getVolume());
+      }
+    }
+  }
+
+  @Test
+  void sliceIsHalfOpen() {
+    StockHistory history = weekdays("AAA");
+    StockHistory slice = history.slice(LocalDate.of(2020, 3, 2), LocalDate.of(2020, 3, 9));
+    assertEquals(5, slice.size());
+    assertEquals(LocalDate.of(2020, 3, 2), slice.getFirstDate());
+    assertEquals(LocalDate.of(2020, 3, 6), slice.getLastDate());
+    assertSame(history, history.slice(FROM_DATE, TO_DATE));
+    assertEquals(0, history.slice(TO_DATE, TO_DATE.plusDays(7)).size());
+  }
+
+}
@@ -0,0 +1,255 @@
+package dev.rkoch.aws.stock.collector;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.parquet.hadoop.ParquetWriter;
+import org.apache.parquet.hadoop.api.WriteSupport;
+import org.apache.parquet.io.LocalOutputFile;
+import org.apache.parquet.io.OutputFile;
+import org.apache.parquet.io.api.Binary;
+import org.apache.parquet.io.api.RecordConsumer;
+import org.apache.parquet.schema.MessageType;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import dev.rkoch.aws.stock.collector.metrics.Metrics;
+import dev.rkoch.aws.stock.collector.store.FileS3Client;
+import dev.rkoch.aws.stock.collector.store.ObjectRange;
+import dev.rkoch.aws.stock.collector.store.ObjectStore;
+import dev.rkoch.aws.stock.collector.store.S3ObjectStore;
+
+class StockReaderTest {
+
+  private static class CountingObjectStore implements ObjectStore {
+
+    private final ObjectStore objectStore;
+
+    private final AtomicInteger gets = new AtomicInteger();
+
+    private final AtomicInteger ranges = new AtomicInteger();
+
+    private final AtomicInteger tails = new AtomicInteger();
+
+    private final AtomicLong bytes = new AtomicLong();
+
+    private CountingObjectStore(ObjectStore objectStore) {
+      this.objectStore = objectStore;
+    }
+
+    @Override
+    public boolean compareAndPut(final String key, final byte[] bytes, final String eTag) {
+      return objectStore.compareAndPut(key, bytes, eTag);
+    }
+
+    @Override
+    public void delete(final String key) {
+      objectStore.delete(key);
+    }
+
+    @Override
+    public byte[] get(final String key) {
+      gets.incrementAndGet();
+      return objectStore.get(key);
+    }
+
+    @Override
+    public String getETag(final String key) {
+      return objectStore.getETag(key);
+    }
+
+    @Override
+    public byte[] getRange(final String key, final long offset, final int length) {
+      ranges.incrementAndGet();
+      bytes.addAndGet(length);
+      return objectStore.getRange(key, offset, length);
+    }
+
+    @Override
+    public ObjectRange getTail(final String key, final int length) {
+      tails.incrementAndGet();
+      ObjectRange tail = objectStore.getTail(key, length);
+      if (tail != null) {
+        bytes.addAndGet(tail.getBytes().length);
+      }
+      return tail;
+    }
+
+    @Override
+    public List<String> list(final String prefix) {
+      return objectStore.list(prefix);
+    }
+
+    @Override
+    public void put(final String key, final byte[] bytes) {
+      objectStore.put(key, bytes);
+    }
+
+  }
+
+  private static class RowWriter extends ParquetWriter.Builder<Integer, RowWriter> {
+
+    private final StockBatch batch;
+
+    private RowWriter(OutputFile file, StockBatch batch) {
+      super(file);
+      this.batch = batch;
+    }
+
+    @Override
+    protected WriteSupport<Integer> getWriteSupport(final Configuration configuration) {
+      return new WriteSupport<>() {
+
+        private RecordConsumer recordConsumer;
+
+        @Override
+        public WriteContext init(final Configuration configuration) {
+          return new WriteContext(SCHEMA, new HashMap<>());
+        }
+
+        @Override
+        public void prepareForWrite(final RecordConsumer recordConsumer) {
+          this.recordConsumer = recordConsumer;
+        }
+
+        @Override
+        public void write(final Integer index) {
+          int i = index;
+          recordConsumer.startMessage();
+          write(StockRecord.LOCAL_DATE, () -> recordConsumer.addInteger(batch.getEpochDay(i)));
+          write(StockRecord.ID, () -> recordConsumer.addBinary(Binary.fromString(batch.getSymbol(i))));
+          write(StockRecord.CLOSE, () -> recordConsumer.addDouble(batch.getClose(i)));
+          write(StockRecord.HIGH, () -> recordConsumer.addDouble(batch.getHigh(i)));
+          write(StockRecord.LOW, () -> recordConsumer.addDouble(batch.getLow(i)));
+          write(StockRecord.OPEN, () -> recordConsumer.addDouble(batch.getOpen(i)));
+          write(StockRecord.VOLUME, () -> recordConsumer.addLong(batch.getVolume(i)));
+          recordConsumer.endMessage();
+        }
+
+        private void write(final String field, final Runnable value) {
+          int index = SCHEMA.getFieldIndex(field);
+          recordConsumer.startField(field, index);
+          value.run();
+          recordConsumer.endField(field, index);
+        }
+
+      };
+    }
+
+    @Override
+    protected RowWriter self() {
+      return this;
+    }
+
+  }
+
+  private static final String BUCKET_NAME = "dev-rkoch-spre";
+
+  private static final String MONTHLY_KEY = "raw/stock/month=2025-01/data.parquet";
+
+  private static final String DAILY_KEY_FORMAT = "raw/stock/localDate=%s/data.parquet";
+
+  private static final String DAILY_KEY = DAILY_KEY_FORMAT.formatted(LocalDate.of(2025, 1, 2));
+
+  private static final LocalDate FROM_DATE = LocalDate.of(2025, 1, 1);
+
+  private static final MessageType SCHEMA = new StockRecord().getSchema();
+
+  private static final int DAYS = 40;
+
+  private static final int SYMBOLS = 200;
+
+  @TempDir
+  private Path directory;
+
+  private CountingObjectStore objectStore;
+
+  private StockBatch batch(final int symbols, final int days) {
+    StockBatch batch = new StockBatch(symbols * days);
+    for (int s = 0; s < symbols; s++) {
+      for (int d = 0; d < days; d++) {
+        double price = s * 100 + d + 0.5;
+        batch.add((int) FROM_DATE.plusDays(d).toEpochDay(), "S%03d".formatted(s), price, price + 1, price - 1, price, s * 1000L + d);
+      }
+    }
+    return batch;
+  }
+
+  private StockReader reader(final Metrics metrics) {
+    return new StockReader(objectStore, new TradingCalendar(objectStore.objectStore), DAILY_KEY_FORMAT, 1, metrics);
+  }
+
+  @Test
+  void readsSmallFilesWithOneRequest() throws Exception {
+    Metrics metrics = new Metrics();
+    StockReader reader = reader(metrics);
+    StockBatch batch = batch(SYMBOLS, 1);
+    write(DAILY_KEY, batch, 1024 * 1024);
+    StockBatch actual = reader.read(List.of(DAILY_KEY), new StockQuery(FROM_DATE, FROM_DATE.plusDays(1), null, null));
+    assertEquals(batch.getContentHash(), actual.sortBySymbol().getContentHash());
+    assertEquals(1, objectStore.tails.get());
+    assertEquals(0, objectStore.ranges.get());
+    assertEquals(0, objectStore.gets.get());
+    assertEquals(0, metrics.getCount(Metrics.QUERY_ROWS_SKIPPED));
+  }
+
+  @Test
+  void skipsRowGroupsOfOtherSymbols() throws Exception {
+    Metrics metrics = new Metrics();
+    StockReader reader = reader(metrics);
+    StockBatch batch = batch(SYMBOLS, DAYS);
+    int length = write(MONTHLY_KEY, batch, 16 * 1024);
+    StockBatch actual = reader.read(List.of(MONTHLY_KEY), new StockQuery(FROM_DATE, FROM_DATE.plusDays(DAYS), Set.of("S007"), null));
+    assertEquals(DAYS, actual.size());
+    for (int i = 0; i < actual.size(); i++) {
+      assertEquals("S007", actual.getSymbol(i));
+      assertEquals(700 + actual.getEpochDay(i) - FROM_DATE.toEpochDay() + 0.5, actual.getClose(i));
+    }
+    assertTrue(metrics.getCount(Metrics.QUERY_ROW_GROUPS_SKIPPED) > 0);
+    assertEquals(batch.size() - DAYS, metrics.getCount(Metrics.QUERY_ROWS_SKIPPED));
+    assertEquals(0, objectStore.gets.get());
+    assertTrue(objectStore.bytes.get() < length / 2, "fetched %s of %s bytes".formatted(objectStore.bytes.get(), length));
+    assertEquals(objectStore.bytes.get(), metrics.getCount(Metrics.QUERY_BYTES));
+  }
+
+  @Test
+  void skipsRowsOutsideDateRange() throws Exception {
+    Metrics metrics = new Metrics();
+    StockReader reader = reader(metrics);
+    StockBatch batch = batch(SYMBOLS, DAYS);
+    write(MONTHLY_KEY, batch, 16 * 1024);
+    StockBatch actual = reader.read(List.of(MONTHLY_KEY), new StockQuery(FROM_DATE.plusDays(10), FROM_DATE.plusDays(12), null, null));
+    assertEquals(SYMBOLS * 2, actual.size());
+    for (int i = 0; i < actual.size(); i++) {
+      assertTrue(actual.getEpochDay(i) >= FROM_DATE.plusDays(10).toEpochDay() && actual.getEpochDay(i) < FROM_DATE.plusDays(12).toEpochDay());
+    }
+    assertEquals(batch.size() - SYMBOLS * 2, metrics.getCount(Metrics.QUERY_ROWS_SKIPPED));
+  }
+
+  @BeforeEach
+  void start() {
+    objectStore = new CountingObjectStore(new S3ObjectStore(new FileS3Client(directory), BUCKET_NAME));
+  }
+
+  private int write(final String key, final StockBatch batch, final int rowGroupSize) throws Exception {
+    Path file = directory.resolve("upload.parquet");
+    try (ParquetWriter<Integer> writer = new RowWriter(new LocalOutputFile(file), batch).withRowGroupSize(rowGroupSize).withPageRowCountLimit(20).build()) {
+      for (int i = 0; i < batch.size(); i++) {
+        writer.write(i);
+      }
+    }
+    byte[] bytes = Files.readAllBytes(file);
+    Files.delete(file);
+    objectStore.put(key, bytes);
+    return bytes.length;
+  }
+
+}
@@ -0,0 +1,32 @@
+package dev.rkoch.aws.stock.collector;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import com.amazonaws.services.lambda.runtime.LambdaLogger;
+import com.amazonaws.services.lambda.runtime.logging.LogLevel;
+
+public class TestLogger implements LambdaLogger {
+
+  private final List<String> messages = new CopyOnWriteArrayList<>();
+
+  public List<String> getMessages() {
+    return messages;
+  }
+
+  @Override
+  public void log(final byte[] message) {
+    log(new String(message, StandardCharsets.UTF_8));
+  }
+
+  @Override
+  public void log(final String message) {
+    messages.add(message);
+  }
+
+  @Override
+  public void log(final String message, final LogLevel logLevel) {
+    log("%s %s".formatted(logLevel, message));
+  }
+
+}
@@ -0,0 +1,97 @@
+package dev.rkoch.aws.stock.collector;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import dev.rkoch.aws.stock.collector.store.FileS3Client;
+import dev.rkoch.aws.stock.collector.store.ObjectStore;
+import dev.rkoch.aws.stock.collector.store.PropertiesStore;
+import dev.rkoch.aws.stock.collector.store.S3ObjectStore;
+
+class TradingCalendarTest {
+
+  @TempDir
+  private Path directory;
+
+  private ObjectStore objectStore;
+
+  @Test
+  void closesGoodFriday() {
+    TradingCalendar calendar = new TradingCalendar(objectStore);
+    assertEquals(LocalDate.of(2024, 3, 31), TradingCalendar.getEasterSunday(2024));
+    assertFalse(calendar.isTradingDay(LocalDate.of(2024, 3, 29)));
+    assertEquals(List.of(LocalDate.of(2024, 3, 28), LocalDate.of(2024, 4, 1)), calendar.getTradingDays(LocalDate.of(2024, 3, 28), LocalDate.of(2024, 4, 2)));
+  }
+
+  @Test
+  void closesSpecialClosures() {
+    TradingCalendar calendar = new TradingCalendar(objectStore);
+    assertTrue(calendar.isTradingDay(LocalDate.of(2012, 10, 26)));
+    assertFalse(calendar.isTradingDay(LocalDate.of(2012, 10, 29)));
+    assertFalse(calendar.isTradingDay(LocalDate.of(2012, 10, 30)));
+    assertTrue(calendar.isTradingDay(LocalDate.of(2012, 10, 31)));
+    assertFalse(calendar.isTradingDay(LocalDate.of(2025, 1, 9)));
+    assertEquals(LocalDate.of(2025, 1, 10), calendar.next(LocalDate.of(2025, 1, 9)));
+  }
+
+  @Test
+  void loadsSavedOverrides() {
+    TradingCalendar calendar = new TradingCalendar(objectStore);
+    calendar.learn(LocalDate.of(2025, 1, 9), true);
+    calendar.learn(LocalDate.of(2025, 3, 3), false);
+    calendar.learn(LocalDate.of(2025, 3, 4), true);
+    calendar.save();
+    assertEquals(Map.of("2025-01-09", "open", "2025-03-03", "closed"), PropertiesStore.load(objectStore.get("state/calendar/overrides.properties")));
+    TradingCalendar loaded = new TradingCalendar(objectStore);
+    assertTrue(loaded.isTradingDay(LocalDate.of(2025, 1, 9)));
+    assertFalse(loaded.isTradingDay(LocalDate.of(2025, 3, 3)));
+    assertTrue(loaded.isTradingDay(LocalDate.of(2025, 3, 4)));
+    assertEquals(List.of(LocalDate.of(2025, 3, 4)), loaded.getTradingDays(LocalDate.of(2025, 3, 1), LocalDate.of(2025, 3, 5)));
+  }
+
+  @Test
+  void mergesOverridesLearnedConcurrently() {
+    TradingCalendar first = new TradingCalendar(objectStore);
+    TradingCalendar second = new TradingCalendar(objectStore);
+    first.learn(LocalDate.of(2025, 1, 6), false);
+    second.learn(LocalDate.of(2025, 1, 7), false);
+    first.save();
+    second.save();
+    TradingCalendar loaded = new TradingCalendar(objectStore);
+    assertFalse(loaded.isTradingDay(LocalDate.of(2025, 1, 6)));
+    assertFalse(loaded.isTradingDay(LocalDate.of(2025, 1, 7)));
+    assertTrue(loaded.isTradingDay(LocalDate.of(2025, 1, 8)));
+    assertFalse(second.isTradingDay(LocalDate.of(2025, 1, 6)));
+  }
+
+  @Test
+  void observesJuneteenthFrom2022() {
+    TradingCalendar calendar = new TradingCalendar(objectStore);
+    assertTrue(calendar.isTradingDay(LocalDate.of(2021, 6, 18)));
+    assertFalse(calendar.isTradingDay(LocalDate.of(2022, 6, 20)));
+    assertTrue(calendar.isTradingDay(LocalDate.of(2022, 6, 17)));
+    assertFalse(calendar.isTradingDay(LocalDate.of(2024, 6, 19)));
+  }
+
+  @Test
+  void observesNewYearsDayOnWeekends() {
+    TradingCalendar calendar = new TradingCalendar(objectStore);
+    assertTrue(calendar.isTradingDay(LocalDate.of(2021, 12, 31)));
+    assertTrue(calendar.isTradingDay(LocalDate.of(2022, 1, 3)));
+    assertFalse(calendar.isTradingDay(LocalDate.of(2023, 1, 2)));
+    assertEquals(LocalDate.of(2023, 1, 3), calendar.next(LocalDate.of(2022, 12, 31)));
+  }
+
+  @BeforeEach
+  void start() {
+    objectStore = new S3ObjectStore(new FileS3Client(directory), "bucket");
+  }
+
+}
@@ -0,0 +1,111 @@
+package dev.rkoch.aws.stock.collector.api;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import dev.rkoch.aws.stock.collector.Deadline;
+import dev.rkoch.aws.stock.collector.metrics.Metrics;
+
+class HttpTransportCompressionTest {
+
+  private static final String BODY = "{\"rows\":[%s]}".formatted("{\"close\":\"$1.25\",\"volume\":\"1,000\"},".repeat(2000) + "{}");
+
+  private static String read(final InputStream body) throws IOException {
+    return new String(body.readAllBytes(), StandardCharsets.UTF_8);
+  }
+
+  private final AtomicReference<String> acceptEncoding = new AtomicReference<>();
+
+  private final AtomicReference<String> contentEncoding = new AtomicReference<>();
+
+  private final Metrics metrics = new Metrics();
+
+  private HttpClient httpClient;
+
+  private HttpServer server;
+
+  @AfterEach
+  void close() {
+    server.stop(0);
+    httpClient.close();
+  }
+
+  @Test
+  void decodesDeflate() throws Exception {
+    contentEncoding.set("deflate");
+    assertEquals(BODY, transport(true).get(getUri(), HttpTransportCompressionTest::read, metrics, Deadline.none()));
+    assertTrue(metrics.getCount(Metrics.NASDAQ + ".bytes") < BODY.length() / 10);
+    assertEquals(BODY.length(), metrics.getCount(Metrics.NASDAQ + ".decodedBytes"));
+  }
+
+  @Test
+  void decodesGzip() throws Exception {
+    contentEncoding.set("gzip");
+    assertEquals(BODY, transport(true).get(getUri(), HttpTransportCompressionTest::read, metrics, Deadline.none()));
+    assertEquals("gzip, deflate", acceptEncoding.get());
+    assertTrue(metrics.getCount(Metrics.NASDAQ + ".bytes") < BODY.length() / 10);
+    assertEquals(BODY.length(), metrics.getCount(Metrics.NASDAQ + ".decodedBytes"));
+  }
+
+  private URI getUri() {
+    return URI.create("http://%s:%s/quote".formatted(server.getAddress().getHostString(), server.getAddress().getPort()));
+  }
+
+  private void handle(final HttpExchange exchange) throws IOException {
+    try (exchange) {
+      acceptEncoding.set(exchange.getRequestHeaders().getFirst("Accept-Encoding"));
+      String encoding = acceptEncoding.get() == null ? null : contentEncoding.get();
+      byte[] body = BODY.getBytes(StandardCharsets.UTF_8);
+      if (encoding == null) {
+        exchange.sendResponseHeaders(200, body.length);
+        exchange.getResponseBody().write(body);
+        return;
+      }
+      exchange.getResponseHeaders().set("Content-Encoding", encoding);
+      exchange.sendResponseHeaders(200, 0);
+      try (OutputStream outputStream = "gzip".equals(encoding) ? new GZIPOutputStream(exchange.getResponseBody())
+          : new DeflaterOutputStream(exchange.getResponseBody())) {
+        outputStream.write(body);
+      }
+    }
+  }
+
+  @Test
+  void sendsNoAcceptEncodingWithoutCompression() throws Exception {
+    contentEncoding.set("gzip");
+    assertEquals(BODY, transport(false).get(getUri(), HttpTransportCompressionTest::read, metrics, Deadline.none()));
+    assertNull(acceptEncoding.get());
+    assertEquals(BODY.length(), metrics.getCount(Metrics.NASDAQ + ".bytes"));
+  }
+
+  @BeforeEach
+  void start() throws IOException {
+    server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+    server.createContext("/", this::handle);
+    server.start();
+    httpClient = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+  }
+
+  private HttpTransport transport(final boolean compression) {
+    return new HttpTransport(Metrics.NASDAQ, httpClient, RateLimiter.unlimited(), 1, Duration.ofSeconds(5), 1, Duration.ZERO, Duration.ZERO,
+        CircuitBreaker.disabled(), compression);
+  }
+
+}
@@ -0,0 +1,390 @@
+package dev.rkoch.aws.stock.collector.api;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.Authenticator;
+import java.net.CookieHandler;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ProxySelector;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.HttpResponse.BodyHandler;
+import java.net.http.HttpResponse.PushPromiseHandler;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLParameters;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import dev.rkoch.aws.stock.collector.Deadline;
+import dev.rkoch.aws.stock.collector.exception.SourceUnavailableException;
+import dev.rkoch.aws.stock.collector.metrics.Metrics;
+
+class HttpTransportTest {
+
+  private enum Fault {
+    DROP, OK, SLOW
+  }
+
+  private static class Reply {
+
+    private final Fault fault;
+
+    private final int status;
+
+    private final String retryAfter;
+
+    private Reply(Fault fault, int status, String retryAfter) {
+      this.fault = fault;
+      this.status = status;
+      this.retryAfter = retryAfter;
+    }
+
+  }
+
+  private static class FaultServer implements AutoCloseable {
+
+    private final Queue<Reply> replies = new ConcurrentLinkedQueue<>();
+
+    private final AtomicInteger requests = new AtomicInteger();
+
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    private final HttpServer server;
+
+    private FaultServer() throws IOException {
+      server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+      server.createContext("/", this::handle);
+      server.setExecutor(executor);
+      server.start();
+    }
+
+    @Override
+    public void close() {
+      server.stop(0);
+      executor.close();
+    }
+
+    private URI getUri() {
+      return URI.create("http://%s:%s/quote".formatted(server.getAddress().getHostString(), server.getAddress().getPort()));
+    }
+
+    private void handle(final HttpExchange exchange) throws IOException {
+      requests.incrementAndGet();
+      Reply reply = replies.poll();
+      if (reply == null) {
+        reply = ok();
+      }
+      if (reply.fault == Fault.DROP) {
+        exchange.close();
+        return;
+      }
+      if (reply.fault == Fault.SLOW) {
+        try {
+          Thread.sleep(1000);
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+      }
+      try (exchange) {
+        if (reply.retryAfter != null) {
+          exchange.getResponseHeaders().set("Retry-After", reply.retryAfter);
+        }
+        byte[] body = "status %s".formatted(reply.status).getBytes(StandardCharsets.UTF_8);
+        exchange.sendResponseHeaders(reply.status, body.length);
+        exchange.getResponseBody().write(body);
+      }
+    }
+
+    private FaultServer script(final Reply... script) {
+      replies.addAll(List.of(script));
+      return this;
+    }
+
+  }
+
+  private static class ThrowingHttpClient extends HttpClient {
+
+    @Override
+    public Optional<Authenticator> authenticator() {
+      return Optional.empty();
+    }
+
+    @Override
+    public Optional<Duration> connectTimeout() {
+      return Optional.empty();
+    }
+
+    @Override
+    public Optional<CookieHandler> cookieHandler() {
+      return Optional.empty();
+    }
+
+    @Override
+    public Optional<Executor> executor() {
+      return Optional.empty();
+    }
+
+    @Override
+    public Redirect followRedirects() {
+      return Redirect.NEVER;
+    }
+
+    @Override
+    public Optional<ProxySelector> proxy() {
+      return Optional.empty();
+    }
+
+    @Override
+    public <T> HttpResponse<T> send(final HttpRequest request, final BodyHandler<T> responseBodyHandler) {
+      throw new IllegalStateException("client failure");
+    }
+
+    @Override
+    public <T> CompletableFuture<HttpResponse<T>> sendAsync(final HttpRequest request, final BodyHandler<T> responseBodyHandler) {
+      throw new IllegalStateException("client failure");
+    }
+
+    @Override
+    public <T> CompletableFuture<HttpResponse<T>> sendAsync(final HttpRequest request, final BodyHandler<T> responseBodyHandler,
+        final PushPromiseHandler<T> pushPromiseHandler) {
+      throw new IllegalStateException("client failure");
+    }
+
+    @Override
+    public SSLContext sslContext() {
+      return null;
+    }
+
+    @Override
+    public SSLParameters sslParameters() {
+      return null;
+    }
+
+    @Override
+    public Version version() {
+      return Version.HTTP_1_1;
+    }
+
+  }
+
+  private static Reply drop() {
+    return new Reply(Fault.DROP, 0, null);
+  }
+
+  private static Reply ok() {
+    return new Reply(Fault.OK, 200, null);
+  }
+
+  private static String read(final InputStream body) throws IOException {
+    return new String(body.readAllBytes(), StandardCharsets.UTF_8);
+  }
+
+  private static Reply slow() {
+    return new Reply(Fault.SLOW, 200, null);
+  }
+
+  private static Reply status(final int status) {
+    return new Reply(Fault.OK, status, null);
+  }
+
+  private static Reply status(final int status, final String retryAfter) {
+    return new Reply(Fault.OK, status, retryAfter);
+  }
+
+  private final Metrics metrics = new Metrics();
+
+  private HttpClient httpClient;
+
+  private FaultServer server;
+
+  @AfterEach
+  void close() {
+    server.close();
+    httpClient.close();
+  }
+
+  @Test
+  void failsFastWhenOpenBeyondDeadline() throws Exception {
+    CircuitBreaker circuitBreaker = new CircuitBreaker(1, Duration.ofSeconds(60));
+    HttpTransport transport = transport(1, Duration.ofSeconds(5), circuitBreaker);
+    server.script(status(503), ok());
+    assertThrows(IOException.class, () -> transport.get(server.getUri(), HttpTransportTest::read, metrics, Deadline.none()));
+    long start = System.nanoTime();
+    Deadline deadline = new Deadline(() -> 30_000L, Duration.ZERO);
+    assertThrows(SourceUnavailableException.class, () -> transport.get(server.getUri(), HttpTransportTest::read, metrics, deadline));
+    assertTrue(Duration.ofNanos(System.nanoTime() - start).toMillis() < 1000);
+    assertEquals(1, server.requests.get());
+  }
+
+  @Test
+  void failsFastWhileProbeInFlight() throws Exception {
+    CircuitBreaker circuitBreaker = new CircuitBreaker(1, Duration.ofMillis(50));
+    circuitBreaker.acquire(Deadline.none());
+    circuitBreaker.onFailure();
+    Thread.sleep(100);
+    circuitBreaker.acquire(Deadline.none());
+    assertTimeoutPreemptively(Duration.ofSeconds(1), () -> assertThrows(SourceUnavailableException.class, () -> circuitBreaker.acquire(Deadline.none())));
+    circuitBreaker.onSuccess();
+    circuitBreaker.acquire(Deadline.none());
+  }
+
+  @Test
+  void failedProbeReopensForLonger() throws Exception {
+    CircuitBreaker circuitBreaker = new CircuitBreaker(1, Duration.ofMillis(200));
+    HttpTransport transport = transport(1, Duration.ofSeconds(5), circuitBreaker);
+    server.script(status(500), status(500), ok());
+    assertThrows(IOException.class, () -> transport.get(server.getUri(), HttpTransportTest::read, metrics, Deadline.none()));
+    long start = System.nanoTime();
+    assertThrows(IOException.class, () -> transport.get(server.getUri(), HttpTransportTest::read, metrics, Deadline.none()));
+    assertTrue(Duration.ofNanos(System.nanoTime() - start).toMillis() >= 150);
+    start = System.nanoTime();
+    assertEquals("status 200", transport.get(server.getUri(), HttpTransportTest::read, metrics, Deadline.none()));
+    assertTrue(Duration.ofNanos(System.nanoTime() - start).toMillis() >= 350);
+    assertFalse(circuitBreaker.isOpen());
+  }
+
+  @Test
+  void givesUpAfterMaxAttempts() {
+    HttpTransport transport = transport(3, Duration.ofSeconds(5), CircuitBreaker.disabled());
+    server.script(status(500), status(500), status(500));
+    IOException e = assertThrows(IOException.class, () -> transport.get(server.getUri(), HttpTransportTest::read, metrics, Deadline.none()));
+    assertTrue(e.getMessage().contains("500"), e.getMessage());
+    assertEquals(3, server.requests.get());
+    assertEquals(2, metrics.getCount(Metrics.NASDAQ + ".retry"));
+  }
+
+  @Test
+  void honoursRetryAfter() throws Exception {
+    HttpTransport transport = transport(2, Duration.ofSeconds(5), CircuitBreaker.disabled());
+    server.script(status(429, "1"), ok());
+    long start = System.nanoTime();
+    assertEquals("status 200", transport.get(server.getUri(), HttpTransportTest::read, metrics, Deadline.none()));
+    assertTrue(Duration.ofNanos(System.nanoTime() - start).toMillis() >= 1000);
+    assertEquals(2, server.requests.get());
+  }
+
+  @Test
+  void opensBreakerAfterThreshold() throws Exception {
+    CircuitBreaker circuitBreaker = new CircuitBreaker(2, Duration.ofMillis(300));
+    HttpTransport transport = transport(1, Duration.ofSeconds(5), circuitBreaker);
+    server.script(status(503), status(503), ok());
+    assertThrows(IOException.class, () -> transport.get(server.getUri(), HttpTransportTest::read, metrics, Deadline.none()));
+    assertFalse(circuitBreaker.isOpen());
+    assertThrows(IOException.class, () -> transport.get(server.getUri(), HttpTransportTest::read, metrics, Deadline.none()));
+    assertTrue(circuitBreaker.isOpen());
+    long start = System.nanoTime();
+    assertEquals("status 200", transport.get(server.getUri(), HttpTransportTest::read, metrics, Deadline.none()));
+    assertTrue(Duration.ofNanos(System.nanoTime() - start).toMillis() >= 250);
+    assertFalse(circuitBreaker.isOpen());
+    assertEquals(3, server.requests.get());
+  }
+
+  @Test
+  void opensBreakerOnUnreadableBodies() throws Exception {
+    CircuitBreaker circuitBreaker = new CircuitBreaker(2, Duration.ofSeconds(60));
+    HttpTransport transport = transport(1, Duration.ofSeconds(5), circuitBreaker);
+    server.script(ok(), ok());
+    HttpTransport.BodyReader<String> corrupt = (body) -> {
+      throw new IOException("truncated body");
+    };
+    assertThrows(IOException.class, () -> transport.get(server.getUri(), corrupt, metrics, Deadline.none()));
+    assertFalse(circuitBreaker.isOpen());
+    assertThrows(IOException.class, () -> transport.get(server.getUri(), corrupt, metrics, Deadline.none()));
+    assertTrue(circuitBreaker.isOpen());
+  }
+
+  @Test
+  void parsesRetryAfter() {
+    assertEquals(Duration.ofSeconds(5), HttpTransport.parseRetryAfter(" 5 "));
+    assertEquals(Duration.ZERO, HttpTransport.parseRetryAfter("-3"));
+    assertEquals(Duration.ZERO, HttpTransport.parseRetryAfter(null));
+    assertEquals(Duration.ZERO, HttpTransport.parseRetryAfter("soon"));
+    assertEquals(Duration.ZERO, HttpTransport.parseRetryAfter(DateTimeFormatter.RFC_1123_DATE_TIME.format(ZonedDateTime.now(ZoneOffset.UTC).minusMinutes(1))));
+    Duration future = HttpTransport.parseRetryAfter(DateTimeFormatter.RFC_1123_DATE_TIME.format(ZonedDateTime.now(ZoneOffset.UTC).plusSeconds(30)));
+    assertTrue(future.getSeconds() > 20 && future.getSeconds() <= 30, future.toString());
+  }
+
+  @Test
+  void passesClientErrorsThrough() throws Exception {
+    HttpTransport transport = transport(3, Duration.ofSeconds(5), CircuitBreaker.disabled());
+    server.script(status(404));
+    assertEquals("status 404", transport.get(server.getUri(), HttpTransportTest::read, metrics, Deadline.none()));
+    assertEquals(1, server.requests.get());
+  }
+
+  @Test
+  void releasesProbeOnRuntimeException() throws Exception {
+    CircuitBreaker circuitBreaker = new CircuitBreaker(1, Duration.ofMillis(100));
+    circuitBreaker.acquire(Deadline.none());
+    circuitBreaker.onFailure();
+    Thread.sleep(150);
+    HttpTransport transport = new HttpTransport(Metrics.NASDAQ, new ThrowingHttpClient(), RateLimiter.unlimited(), 4, Duration.ofSeconds(1), 3, Duration.ZERO,
+        Duration.ZERO, circuitBreaker, true);
+    assertThrows(IllegalStateException.class, () -> transport.get(server.getUri(), HttpTransportTest::read, metrics, Deadline.none()));
+    assertTimeoutPreemptively(Duration.ofSeconds(1), () -> circuitBreaker.acquire(Deadline.none()));
+  }
+
+  @Test
+  void retriesDroppedConnectionsAndTimeouts() throws Exception {
+    HttpTransport transport = transport(3, Duration.ofMillis(300), CircuitBreaker.disabled());
+    server.script(drop(), slow(), ok());
+    assertEquals("status 200", transport.get(server.getUri(), HttpTransportTest::read, metrics, Deadline.none()));
+    assertEquals(3, server.requests.get());
+  }
+
+  @Test
+  void retriesServerErrors() throws Exception {
+    HttpTransport transport = transport(3, Duration.ofSeconds(5), CircuitBreaker.disabled());
+    server.script(status(503), status(502), ok());
+    assertEquals("status 200", transport.get(server.getUri(), HttpTransportTest::read, metrics, Deadline.none()));
+    assertEquals(3, server.requests.get());
+    assertEquals(2, metrics.getCount(Metrics.NASDAQ + ".retry"));
+  }
+
+  @BeforeEach
+  void start() throws IOException {
+    server = new FaultServer();
+    httpClient = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+  }
+
+  @Test
+  void stopsWhenRetryAfterExceedsDeadline() {
+    HttpTransport transport = transport(3, Duration.ofSeconds(1), CircuitBreaker.disabled());
+    server.script(status(429, "3600"));
+    long start = System.nanoTime();
+    Deadline deadline = new Deadline(() -> 5_000L, Duration.ZERO);
+    assertThrows(IOException.class, () -> transport.get(server.getUri(), HttpTransportTest::read, metrics, deadline));
+    assertTrue(Duration.ofNanos(System.nanoTime() - start).toMillis() < 1000);
+    assertEquals(1, server.requests.get());
+  }
+
+  private HttpTransport transport(final int maxAttempts, final Duration timeout, final CircuitBreaker circuitBreaker) {
+    return new HttpTransport(Metrics.NASDAQ, httpClient, RateLimiter.unlimited(), 4, timeout, maxAttempts, Duration.ofMillis(10), Duration.ofMillis(50),
+        circuitBreaker, true);
+  }
+
+}
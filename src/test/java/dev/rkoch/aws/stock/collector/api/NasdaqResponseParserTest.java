@@ -0,0 +1,86 @@
+package dev.rkoch.aws.stock.collector.api;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.Locale;
+import java.util.SplittableRandom;
+import org.junit.jupiter.api.Test;
+import dev.rkoch.aws.stock.collector.StockHistory;
+
+class NasdaqResponseParserTest {
+
+  private static final String NOT_FOUND = "{\"data\":null,\"message\":null,\"status\":{\"rCode\":400,\"bCodeMessage\":[{\"code\":1001,"
+      + "\"errorMessage\":\"Symbol not exists\"}],\"developerMessage\":null}}";
+
+  private static final String RESPONSE = "{\"data\":{\"symbol\":\"AAA\",\"totalRecords\":2,\"tradesTable\":{\"asOf\":null,\"headers\":{\"date\":\"Date\"},\"rows\":["
+      + "{\"date\":\"01/03/2025\",\"close\":\"$1.25\",\"volume\":\"1,000\",\"open\":\"$1.00\",\"high\":\"$1.50\",\"low\":\"$0.75\"},"
+      + "{\"date\":\"01/02/2025\",\"close\":\"$1,001.25\",\"volume\":\"N/A\",\"open\":\"$1,000\",\"high\":\"$1,002.5\",\"low\":\"$999.0001\"}]}},"
+      + "\"message\":null,\"status\":{\"rCode\":200,\"bCodeMessage\":null,\"developerMessage\":null}}";
+
+  private static double parseDecimal(final String value) {
+    return NasdaqResponseParser.parseDecimal(value.toCharArray(), 0, value.length());
+  }
+
+  private static long parseVolume(final String value) {
+    return NasdaqResponseParser.parseVolume(value.toCharArray(), 0, value.length());
+  }
+
+  @Test
+  void parseDecimalMatchesParseDouble() {
+    SplittableRandom random = new SplittableRandom(7);
+    for (int i = 0; i < 100_000; i++) {
+      String value = String.format(Locale.US, "%." + random.nextInt(5) + "f", random.nextDouble(0, 100_000));
+      assertEquals(Double.parseDouble(value), parseDecimal(value), value);
+      assertEquals(Double.parseDouble(value), parseDecimal("$" + value), value);
+    }
+  }
+
+  @Test
+  void parseDecimalStripsCurrencyAndGrouping() {
+    assertEquals(1001.25, parseDecimal("$1,001.25"));
+    assertEquals(0.75, parseDecimal("$0.75"));
+    assertEquals(1000, parseDecimal("$1,000"));
+    assertEquals(-1.5, parseDecimal("-1.5"));
+    assertEquals(.5, parseDecimal(".5"));
+    assertEquals(1234567890123456789.5, parseDecimal("$1,234,567,890,123,456,789.5"));
+    assertThrows(NumberFormatException.class, () -> parseDecimal("N/A"));
+    assertThrows(NumberFormatException.class, () -> parseDecimal("$"));
+  }
+
+  @Test
+  void parseReadsRows() throws Exception {
+    NasdaqResponseParser.Response response = new NasdaqResponseParser().parse(new ByteArrayInputStream(RESPONSE.getBytes(StandardCharsets.UTF_8)), "AAA");
+    assertEquals(200, response.getRCode());
+    assertEquals(2, response.getTotalRecords());
+    StockHistory history = response.getHistory();
+    assertEquals(2, history.size());
+    assertEquals(LocalDate.of(2025, 1, 2), history.getFirstDate());
+    assertEquals(1001.25, history.getClose(0));
+    assertEquals(1002.5, history.getHigh(0));
+    assertEquals(999.0001, history.getLow(0));
+    assertEquals(1000, history.getOpen(0));
+    assertEquals(0, history.getVolume(0));
+    assertEquals(1.25, history.getClose(1));
+    assertEquals(1000, history.getVolume(1));
+  }
+
+  @Test
+  void parseReadsSymbolNotExists() throws Exception {
+    NasdaqResponseParser.Response response = new NasdaqResponseParser().parse(new ByteArrayInputStream(NOT_FOUND.getBytes(StandardCharsets.UTF_8)), "AAA");
+    assertEquals(400, response.getRCode());
+    assertEquals(1001, response.getBCode());
+    assertEquals(0, response.getHistory().size());
+  }
+
+  @Test
+  void parseVolumeFallsBackToZero() {
+    assertEquals(12_345_678, parseVolume("12,345,678"));
+    assertEquals(0, parseVolume("N/A"));
+    assertEquals(0, parseVolume(""));
+    assertEquals(0, parseVolume("99,999,999,999,999,999,999"));
+  }
+
+}